@@ -0,0 +1,61 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.Basket;
+import proekt.Money;
+import proekt.ProductQuantity;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Корзина принадлежит одному покупателю, поэтому в многопоточном варианте
+ * у каждого потока своя корзина — меряется масштабируемость, а не конкуренция.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BasketBenchmark {
+
+    private static final long PRICE = Money.toMinor(new BigDecimal("1.20"));
+
+    @Param({"3", "30"})
+    public int lines;
+
+    private Basket basket;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        basket = new Basket(1, 1);
+        for (int id = 0; id < lines; id++) basket.add(id, 2, PRICE);
+    }
+
+    @Benchmark
+    public long addDelete(ThreadCursor cursor) {
+        int id = cursor.next(lines);
+        basket.add(id, 1, PRICE);
+        basket.delete(id, 1, PRICE);
+        return basket.getTotalMinor();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long addDeleteMt(ThreadCursor cursor) {
+        return addDelete(cursor);
+    }
+
+    @Benchmark
+    public List<ProductQuantity> getAll() {
+        return basket.getAll();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<ProductQuantity> getAllMt() {
+        return getAll();
+    }
+}
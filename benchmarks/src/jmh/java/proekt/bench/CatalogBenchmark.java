@@ -0,0 +1,56 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.Category;
+import proekt.CompactCatalog;
+import proekt.Product;
+import proekt.Store;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск товара по id: стоимость должна оставаться плоской при росте каталога.
+ * compactPrice — то же по столбцам CompactCatalog (память см. CatalogFootprint).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    @Param({"7", "10000", "1000000"})
+    public int catalogSize;
+
+    private Store store;
+    private CompactCatalog compact;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new Store(0);
+        Category[] categories = Category.values();
+        for (int id = 1; id <= catalogSize; id++) {
+            store.getProductCatalog().add(new Product(id, "Product " + id, categories[id % categories.length],
+                    BigDecimal.valueOf(id % 1000, 2), null, null));
+        }
+        compact = CompactCatalog.of(store.getProductCatalog());
+    }
+
+    @Benchmark
+    public Product findProduct(ThreadCursor cursor) {
+        return store.findProduct(1 + cursor.next(catalogSize));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Product findProductMt(ThreadCursor cursor) {
+        return findProduct(cursor);
+    }
+
+    @Benchmark
+    public long compactPrice(ThreadCursor cursor) {
+        return compact.getPriceMinor(compact.indexOf(1 + cursor.next(catalogSize)));
+    }
+}
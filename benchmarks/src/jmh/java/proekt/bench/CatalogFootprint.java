@@ -0,0 +1,69 @@
+package proekt.bench;
+
+import proekt.Category;
+import proekt.CompactCatalog;
+import proekt.Product;
+import proekt.ProductCatalog;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Память каталога на товар: ProductCatalog с объектами Product против столбцов CompactCatalog.
+ * Не JMH — меряется занятая куча после сборки мусора до и после построения каталога.
+ * Запуск: java -cp benchmarks/build/libs/benchmarks-jmh.jar proekt.bench.CatalogFootprint [products]
+ * (лучше с -XX:+UseSerialGC: при ней размер занятой кучи после System.gc() точнее).
+ */
+public class CatalogFootprint {
+
+    private static final String[] DESCRIPTIONS = {
+            "Fresh red apple", "Whole milk 1L", "USB-A to USB-C cable", "Loaf of bread",
+            "Blue denim jeans", "Ballpoint pen", "Ceramic mug 350ml", null};
+
+    public static void main(String[] args) {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long objects = measure("ProductCatalog (Product objects)", products, () -> productCatalog(products));
+        long compact = measure("CompactCatalog (columns)", products, () -> CompactCatalog.of(productCatalog(products)));
+        System.out.printf("CompactCatalog uses %.1fx less memory%n", (double) objects / compact);
+    }
+
+    /**
+     * Как CSV-загрузка: уникальные названия, описания из небольшого набора, срок у еды.
+     */
+    static ProductCatalog productCatalog(int products) {
+        Category[] categories = Category.values();
+        LocalDate today = LocalDate.now();
+        ProductCatalog catalog = new ProductCatalog(products);
+        for (int id = 1; id <= products; id++) {
+            Category category = categories[id % categories.length];
+            catalog.add(new Product(id, "Product " + id, category, 50L + id % 10_000,
+                    category == Category.FOOD ? today.plusDays(id % 30) : null,
+                    DESCRIPTIONS[id % DESCRIPTIONS.length] == null ? null : new String(DESCRIPTIONS[id % DESCRIPTIONS.length])));
+        }
+        return catalog;
+    }
+
+    private static long measure(String label, int products, Supplier<Object> build) {
+        long before = usedAfterGc();
+        Object catalog = build.get();
+        long after = usedAfterGc();
+        long bytes = after - before;
+        System.out.printf("%-34s %,d products: %,d bytes, %.1f bytes/product%n",
+                label, products, bytes, (double) bytes / products);
+        if (catalog.hashCode() == 42) System.out.print(""); // держим каталог живым до замера
+        return bytes;
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Несколько проходов: после первого могут остаться объекты, ждущие финализации
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,67 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.CatalogLoader;
+import proekt.Category;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Старт магазина с большим ассортиментом: разбор CSV против чтения двоичного снимка.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogLoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int skuCount;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path dir;
+    private Path csv;
+    private Path bin;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("catalog-load");
+        csv = dir.resolve("assortment.csv");
+        bin = dir.resolve("assortment.bin");
+        Category[] categories = Category.values();
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            out.write("id,name,category,price,expireDate,description,quantity\n");
+            for (int id = 1; id <= skuCount; id++) {
+                out.write(id + ",Product " + id + "," + categories[id % categories.length] + ","
+                        + (id % 100) + "." + (10 + id % 90) + "," + (id % 3 == 0 ? "2030-01-15" : "")
+                        + ",Description " + id + "," + (id % 7) + "\n");
+            }
+        }
+        CatalogLoader.writeBinary(bin, CatalogLoader.readCsv(csv, threads));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(bin);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public CatalogLoader.Assortment readCsv() throws IOException {
+        return CatalogLoader.readCsv(csv, threads);
+    }
+
+    @Benchmark
+    public CatalogLoader.Assortment readBinary() throws IOException {
+        return CatalogLoader.readBinary(bin, threads);
+    }
+}
@@ -0,0 +1,81 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import proekt.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный неинтерактивный цикл покупателя: randomCart() -> резерв -> оплата/откат.
+ * Цена StoreMetrics — сравнить с прогоном с -jvmArgsAppend -Dproekt.metrics=false.
+ * zipf > 0 сосредотачивает покупки на первых SKU каталога — так видна конкуренция за горячий товар.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"0", "1.2"})
+    public double zipf;
+
+    private Store store;
+    private CheckoutPolicy policy;
+    private WorkloadProfile profile;
+
+    /**
+     * Свой генератор на поток: общий SplittableRandom между потоками не делится.
+     */
+    @State(Scope.Thread)
+    public static class Customers {
+        CustomerGenerator generator;
+        AuthUser regular;
+        List<ProductQuantity> cart;
+
+        @Setup(Level.Trial)
+        public void setUp(CheckoutBenchmark bench, ThreadParams thread) {
+            generator = new CustomerGenerator(bench.store.getProductCatalog(), bench.profile,
+                    SEED + thread.getThreadIndex());
+            regular = generator.randomCustomer();
+            cart = List.of(new ProductQuantity(1, 1), new ProductQuantity(4, 2), new ProductQuantity(6, 1));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new Store(10_000);
+        store.initDefaultAssortment();
+        policy = new AutoCheckoutPolicy(true, 20, true);
+        profile = WorkloadProfile.standard().withZipf(zipf);
+    }
+
+    @Benchmark
+    public CheckoutResult checkout(Customers customers) {
+        AuthUser customer = customers.generator.randomCustomer();
+        List<ProductQuantity> cart = customers.generator.randomCart(customer);
+        return store.serve(customer, cart, policy, CheckoutListener.NONE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CheckoutResult checkoutMt(Customers customers) {
+        return checkout(customers);
+    }
+
+    /**
+     * Один и тот же покупатель с одной корзиной: gc.alloc.rate.norm (-prof gc) — аллокации
+     * самого чекаута, без генератора покупателей.
+     */
+    @Benchmark
+    public CheckoutResult checkoutSameCart(Customers customers) {
+        AuthUser customer = customers.regular;
+        customer.setCashMinor(Long.MAX_VALUE / 2);
+        return store.serve(customer, customers.cart, policy, CheckoutListener.NONE);
+    }
+}
@@ -0,0 +1,43 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.Payment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись оплаты в полосатую кассу: с ростом числа потоков время на операцию
+ * не должно расти, как росло бы на одном общем поле.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentBenchmark {
+
+    private Payment payment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payment = new Payment();
+    }
+
+    @Benchmark
+    public void addMinor() {
+        payment.addMinor(150L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addMinorMt() {
+        payment.addMinor(150L);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addMinorMt8() {
+        payment.addMinor(150L);
+    }
+}
@@ -0,0 +1,56 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.Money;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подсчёт суммы корзины: прежний путь на BigDecimal против long в минимальных единицах.
+ * Запускать с -Pjmh.profilers=gc, чтобы увидеть разницу в B/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+
+    private static final String[] PRICES = {"0.50", "1.20", "5.00", "0.80", "25.00", "0.30", "7.50"};
+
+    private BigDecimal[] prices;
+    private long[] pricesMinor;
+    private int[] quantities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        prices = new BigDecimal[PRICES.length];
+        pricesMinor = new long[PRICES.length];
+        quantities = new int[PRICES.length];
+        for (int i = 0; i < PRICES.length; i++) {
+            prices[i] = new BigDecimal(PRICES[i]);
+            pricesMinor[i] = Money.toMinor(prices[i]);
+            quantities[i] = 1 + i % 5;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            total = total.add(prices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long fixedPointTotal() {
+        long total = 0L;
+        for (int i = 0; i < pricesMinor.length; i++) {
+            total = Money.add(total, Money.multiply(pricesMinor[i], quantities[i]));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,47 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.AutoCheckoutPolicy;
+import proekt.CheckoutPolicy;
+import proekt.ShopperSimulation;
+import proekt.Store;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время, за которое обслуживается партия покупателей с паузами у полок: поток на покупателя
+ * (threads = 0, виртуальные) против пула платформенных потоков. С thinkMicros = 0 видна чистая
+ * цена создания задач и планирования, с паузой — сколько покупателей помещается в зал.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShopperBenchmark {
+
+    @Param({"0", "64", "256"})
+    public int threads;
+
+    @Param({"0", "1000"})
+    public long thinkMicros;
+
+    @Param({"10000"})
+    public long customers;
+
+    private Store store;
+    private CheckoutPolicy policy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new Store(1_000_000);
+        store.initDefaultAssortment();
+        policy = new AutoCheckoutPolicy(true, 1_000, true);
+    }
+
+    @Benchmark
+    public long shoppers() throws InterruptedException {
+        return new ShopperSimulation(store, policy, threads, customers, thinkMicros, 0).execute();
+    }
+}
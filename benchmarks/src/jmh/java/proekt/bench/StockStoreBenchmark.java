@@ -0,0 +1,85 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.CachedStockStore;
+import proekt.ConcurrentIntIntMap;
+import proekt.StockFile;
+import proekt.StockStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Резерв и возврат одной единицы (tryDecrement + addAndGet) в хранилищах остатков:
+ * в памяти, прямо в файле и в файле за кэшем на CACHE товаров.
+ * hot — покупают HOT товаров, которые помещаются в кэш; uniform — любой из skuCount, почти всегда промах.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockStoreBenchmark {
+
+    private static final int CACHE = 16 * 1024;
+    private static final int HOT = 4 * 1024;
+
+    @Param({"memory", "file", "cached"})
+    public String store;
+
+    @Param({"hot", "uniform"})
+    public String access;
+
+    @Param({"1000000"})
+    public int skuCount;
+
+    private StockStore stock;
+    private ScheduledExecutorService writeBehind;
+    private Path file;
+    private int range;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (store.equals("memory")) {
+            stock = new ConcurrentIntIntMap(skuCount);
+        } else {
+            file = Files.createTempFile("stock", ".bin");
+            StockFile stockFile = StockFile.create(file, skuCount);
+            if (store.equals("file")) {
+                stock = stockFile;
+            } else {
+                CachedStockStore cached = new CachedStockStore(stockFile, CACHE);
+                writeBehind = cached.start(100);
+                stock = cached;
+            }
+        }
+        for (int id = 0; id < skuCount; id++) stock.addAndGet(id, 1000);
+        range = access.equals("hot") ? HOT : skuCount;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (writeBehind != null) writeBehind.shutdownNow();
+        if (stock instanceof CachedStockStore cached) cached.close();
+        if (stock instanceof StockFile stockFile) stockFile.close();
+        if (file != null) Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public boolean reserveRelease(ThreadCursor cursor) {
+        int id = cursor.next(range);
+        if (!stock.tryDecrement(id, 1)) return false;
+        stock.addAndGet(id, 1);
+        return true;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean reserveReleaseMt(ThreadCursor cursor) {
+        return reserveRelease(cursor);
+    }
+}
@@ -0,0 +1,20 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Дешёвый потоковый генератор индексов (xorshift), чтобы выбор SKU не мерился вместе с кодом.
+ */
+@State(Scope.Thread)
+public class ThreadCursor {
+
+    private int seed = (int) System.nanoTime() | 1;
+
+    public int next(int bound) {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return (seed & Integer.MAX_VALUE) % bound;
+    }
+}
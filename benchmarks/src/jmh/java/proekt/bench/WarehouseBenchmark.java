@@ -0,0 +1,115 @@
+package proekt.bench;
+
+import org.openjdk.jmh.annotations.*;
+import proekt.ProductQuantity;
+import proekt.Warehouse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции склада при разном числе SKU: время не должно зависеть от skuCount.
+ * Пары add/remove и reserve/release оставляют остатки неизменными.
+ * reserveBasket*: корзина из BASKET_LINES строк — построчно или одним reserveAll.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WarehouseBenchmark {
+
+    private static final int BASKET_LINES = 5;
+
+    @Param({"100", "10000", "1000000"})
+    public int skuCount;
+
+    private Warehouse warehouse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warehouse = new Warehouse(Integer.MAX_VALUE);
+        for (int id = 0; id < skuCount; id++) warehouse.addProduct(id, 1000);
+    }
+
+    @Benchmark
+    public boolean addRemove(ThreadCursor cursor) {
+        int id = cursor.next(skuCount);
+        warehouse.addProduct(id, 1);
+        return warehouse.removeProduct(id, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean addRemoveMt(ThreadCursor cursor) {
+        return addRemove(cursor);
+    }
+
+    @Benchmark
+    public boolean reserveRelease(ThreadCursor cursor) {
+        int id = cursor.next(skuCount);
+        if (!warehouse.tryReserve(id, 1)) return false;
+        warehouse.release(id, 1);
+        return true;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean reserveReleaseMt(ThreadCursor cursor) {
+        return reserveRelease(cursor);
+    }
+
+    /**
+     * Корзина потока: строки переиспользуются, меняются только id товаров.
+     */
+    @State(Scope.Thread)
+    public static class Basket {
+        final List<ProductQuantity> lines = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < BASKET_LINES; i++) lines.add(new ProductQuantity(0, 1));
+        }
+
+        List<ProductQuantity> next(ThreadCursor cursor, int skuCount) {
+            for (ProductQuantity pq : lines) pq.setProductId(cursor.next(skuCount));
+            return lines;
+        }
+    }
+
+    @Benchmark
+    public int reserveBasketLines(ThreadCursor cursor, Basket basket) {
+        List<ProductQuantity> lines = basket.next(cursor, skuCount);
+        int reserved = 0;
+        for (ProductQuantity pq : lines) {
+            if (warehouse.tryReserve(pq.getProductId(), pq.getQuantity())) reserved++;
+            else break;
+        }
+        for (int i = 0; i < reserved; i++) warehouse.release(lines.get(i).getProductId(), lines.get(i).getQuantity());
+        return reserved;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int reserveBasketLinesMt(ThreadCursor cursor, Basket basket) {
+        return reserveBasketLines(cursor, basket);
+    }
+
+    @Benchmark
+    public int reserveBasketAll(ThreadCursor cursor, Basket basket) {
+        List<ProductQuantity> lines = basket.next(cursor, skuCount);
+        Warehouse.ReserveResult result = warehouse.reserveAll(lines, Warehouse.ReserveMode.ALL_OR_NOTHING);
+        for (int i = 0; i < lines.size(); i++) {
+            if (result.isReserved(i)) warehouse.release(lines.get(i).getProductId(), lines.get(i).getQuantity());
+        }
+        return result.getReservedLines();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int reserveBasketAllMt(ThreadCursor cursor, Basket basket) {
+        return reserveBasketAll(cursor, basket);
+    }
+}
@@ -0,0 +1,27 @@
+package proekt;
+
+/**
+ * ANSI color codes (may not work on some consoles)
+ */
+final class Ansi {
+
+    static final String RESET = "\u001B[0m";
+    static final String RED = "\u001B[31m";
+    static final String GREEN = "\u001B[32m";
+    static final String YELLOW = "\u001B[33m";
+    static final String CYAN = "\u001B[36m";
+    static final String BLUE = "\u001B[34m";
+
+    private static final String BAR = "========================================";
+
+    private Ansi() {
+    }
+
+    static void banner(StringBuilder out, String title, String color) {
+        out.append(color).append(BAR).append(System.lineSeparator());
+        out.append("= ").append(title).append(System.lineSeparator());
+        out.append(BAR);
+        if (!color.isEmpty()) out.append(RESET);
+        out.append(System.lineSeparator());
+    }
+}
@@ -1,3 +1,5 @@
+package proekt;
+
 import java.math.BigDecimal;
 
 public class AuthUser extends User {
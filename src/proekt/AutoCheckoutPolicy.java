@@ -0,0 +1,45 @@
+package proekt;
+
+/**
+ * Неинтерактивная политика: при нехватке докупает недостающее плюс restockBatch,
+ * оплату подтверждает всегда (если autoConfirm).
+ */
+public class AutoCheckoutPolicy implements CheckoutPolicy {
+
+    private final boolean autoRestock;
+    private final int restockBatch;
+    private final boolean autoConfirm;
+
+    public AutoCheckoutPolicy(boolean autoRestock, int restockBatch, boolean autoConfirm) {
+        this.autoRestock = autoRestock;
+        this.restockBatch = Math.max(0, restockBatch);
+        this.autoConfirm = autoConfirm;
+    }
+
+    public boolean isAutoRestock() {
+        return autoRestock;
+    }
+
+    public int getRestockBatch() {
+        return restockBatch;
+    }
+
+    public boolean isAutoConfirm() {
+        return autoConfirm;
+    }
+
+    @Override
+    public boolean shouldRestock(Product product, int have, int want) {
+        return autoRestock;
+    }
+
+    @Override
+    public int restockAmount(Product product, int have, int want) {
+        return want - have + restockBatch;
+    }
+
+    @Override
+    public boolean confirmPayment(Basket basket) {
+        return autoConfirm;
+    }
+}
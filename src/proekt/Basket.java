@@ -0,0 +1,261 @@
+package proekt;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Корзина одного покупателя. После buy() заморожена: строки больше не меняются.
+ * Store берёт корзины из пула и возвращает их после чекаута, поэтому корзина, полученная
+ * в CheckoutListener или CheckoutPolicy, действительна только во время вызова; что нужно
+ * дольше — снимок snapshot().
+ */
+public class Basket {
+
+    private int basketId;
+    private int userId;
+    private final IntIntMap items;
+    // Сколько начислено по каждому товару: строки одного товара сливаются в items, а цену каждая
+    // получила по своему количеству, поэтому из итогового количества сумму не пересчитать
+    private final IntIntMap chargedLine = new IntIntMap(); // товар -> номер в charged
+    private long[] charged = new long[8];
+    private int chargedLines;
+    private long totalMinor;
+    private boolean status;
+    private Snapshot snapshot; // снимок, снятый в buy()
+
+    public Basket(int basketId, int userId) {
+        this.basketId = basketId;
+        this.userId = userId;
+        this.items = new IntIntMap();
+        this.totalMinor = 0L;
+        this.status = false;
+    }
+
+    public int getBasketId() {
+        return basketId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Позиции корзины, только для чтения.
+     */
+    public Map<Integer, Integer> getItems() {
+        return items.asMap();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int getLineCount() {
+        return items.size();
+    }
+
+    public BigDecimal getTotalPrice() {
+        return Money.toBigDecimal(totalMinor);
+    }
+
+    public long getTotalMinor() {
+        return totalMinor;
+    }
+
+    public boolean isStatus() {
+        return status;
+    }
+
+    public void add(int productId, int quantity, BigDecimal unitPrice) {
+        add(productId, quantity, unitPrice == null ? 0L : Money.toMinor(unitPrice));
+    }
+
+    public void add(int productId, int quantity, long unitPriceMinor) {
+        if (status) throw new IllegalStateException("Basket closed");
+        long amount = Money.multiply(unitPriceMinor, quantity);
+        items.addTo(productId, quantity);
+        charge(productId, amount);
+        totalMinor = Money.add(totalMinor, amount);
+    }
+
+    public void delete(int productId, int quantity, BigDecimal unitPrice) {
+        delete(productId, quantity, unitPrice == null ? 0L : Money.toMinor(unitPrice));
+    }
+
+    public void delete(int productId, int quantity, long unitPriceMinor) {
+        if (status) throw new IllegalStateException("Basket closed");
+        int current = items.get(productId, 0);
+        if (current == 0) return;
+
+        int removed = Math.min(quantity, current);
+        if (removed == current) items.remove(productId, 0);
+        else items.put(productId, current - removed);
+
+        long amount = Money.multiply(unitPriceMinor, removed);
+        charge(productId, -amount);
+        totalMinor = Money.subtract(totalMinor, amount);
+    }
+
+    /**
+     * Сколько начислено за товар — по ценам, с которыми добавлялись его строки.
+     */
+    public long getLineAmountMinor(int productId) {
+        int i = chargedLine.get(productId, -1);
+        return i < 0 ? 0L : charged[i];
+    }
+
+    private void charge(int productId, long amount) {
+        int i = chargedLine.get(productId, -1);
+        if (i < 0) {
+            if (chargedLines == charged.length) charged = Arrays.copyOf(charged, chargedLines * 2);
+            i = chargedLines++;
+            chargedLine.put(productId, i);
+            charged[i] = 0L;
+        }
+        charged[i] = Money.add(charged[i], amount);
+    }
+
+    /**
+     * Обход строк (id товара, количество) без копирования и без объектов на строку.
+     */
+    public void forEachLine(IntIntConsumer action) {
+        items.forEach(action);
+    }
+
+    /**
+     * Копирует строки в массивы (не короче getLineCount()); возвращает число строк.
+     */
+    public int copyLines(int[] productIds, int[] quantities) {
+        return items.copyTo(productIds, quantities);
+    }
+
+    /**
+     * Строки списком. У купленной корзины список один и тот же при каждом вызове (из снимка);
+     * для обхода без аллокаций — forEachLine.
+     */
+    public List<ProductQuantity> getAll() {
+        if (status) return snapshot().getAll();
+        List<ProductQuantity> list = new ArrayList<>(items.size());
+        items.forEach((id, q) -> list.add(new ProductQuantity(id, q)));
+        return list;
+    }
+
+    /**
+     * Неизменяемая копия корзины, которую можно хранить после чекаута. У купленной корзины —
+     * снимок, снятый в buy(), у открытой — новая копия при каждом вызове.
+     */
+    public Snapshot snapshot() {
+        return snapshot != null ? snapshot : freeze();
+    }
+
+    public void buy() {
+        if (status) return;
+        snapshot = freeze();
+        status = true;
+    }
+
+    private Snapshot freeze() {
+        int[] ids = new int[items.size()];
+        int[] quantities = new int[items.size()];
+        copyLines(ids, quantities);
+        long[] amounts = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) amounts[i] = getLineAmountMinor(ids[i]);
+        return new Snapshot(basketId, userId, ids, quantities, amounts, totalMinor);
+    }
+
+    /**
+     * Пустая открытая корзина для следующего покупателя (пул Store).
+     */
+    void reset(int basketId, int userId) {
+        this.basketId = basketId;
+        this.userId = userId;
+        items.clear();
+        chargedLine.clear();
+        chargedLines = 0;
+        totalMinor = 0L;
+        status = false;
+        snapshot = null;
+    }
+
+    /**
+     * Замороженные строки корзины; от самой корзины не зависит.
+     */
+    public static final class Snapshot {
+        private final int basketId;
+        private final int userId;
+        private final int[] productIds;
+        private final int[] quantities;
+        private final long[] amounts;
+        private final long totalMinor;
+        private List<ProductQuantity> all;
+
+        private Snapshot(int basketId, int userId, int[] productIds, int[] quantities, long[] amounts, long totalMinor) {
+            this.basketId = basketId;
+            this.userId = userId;
+            this.productIds = productIds;
+            this.quantities = quantities;
+            this.amounts = amounts;
+            this.totalMinor = totalMinor;
+        }
+
+        public int getBasketId() {
+            return basketId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+
+        public int getLineCount() {
+            return productIds.length;
+        }
+
+        public int getProductId(int line) {
+            return productIds[line];
+        }
+
+        public int getQuantity(int line) {
+            return quantities[line];
+        }
+
+        /**
+         * Начислено за строку (см. Basket.getLineAmountMinor).
+         */
+        public long getAmountMinor(int line) {
+            return amounts[line];
+        }
+
+        public void forEachLine(IntIntConsumer action) {
+            for (int i = 0; i < productIds.length; i++) action.accept(productIds[i], quantities[i]);
+        }
+
+        // Массивы снимка без копии — для SalesAnalytics; менять их нельзя
+        int[] productIds() {
+            return productIds;
+        }
+
+        int[] quantities() {
+            return quantities;
+        }
+
+        long[] amounts() {
+            return amounts;
+        }
+
+        /**
+         * Строки списком только для чтения; создаётся при первом вызове.
+         */
+        public synchronized List<ProductQuantity> getAll() {
+            if (all == null) {
+                List<ProductQuantity> list = new ArrayList<>(productIds.length);
+                for (int i = 0; i < productIds.length; i++) list.add(new ProductQuantity(productIds[i], quantities[i]));
+                all = Collections.unmodifiableList(list);
+            }
+            return all;
+        }
+    }
+}
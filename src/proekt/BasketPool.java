@@ -0,0 +1,54 @@
+package proekt;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Пул пустых корзин для Store: чекаут берёт корзину и возвращает её, когда покупатель ушёл.
+ * Ячейки разбиты на полосы по потокам, как в Payment, поэтому потоки почти не встречаются
+ * на одних и тех же ячейках; взять и вернуть — один CAS. Пустой пул или занятые ячейки —
+ * просто новая корзина (или лишняя уходит сборщику), без ожидания.
+ * Не ThreadLocal: виртуальных потоков может быть сотни тысяч.
+ */
+final class BasketPool {
+
+    private static final int PER_LANE = 4;
+    // Корзина с большим числом строк вырастила свою таблицу — держать её в пуле дорого
+    private static final int MAX_POOLED_LINES = 64;
+
+    private final AtomicReferenceArray<Basket> slots;
+    private final int lanes;
+
+    BasketPool() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.lanes = Integer.highestOneBit(Math.max(1, cpus * 2 - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(lanes * PER_LANE);
+    }
+
+    Basket acquire(int basketId, int userId) {
+        int base = laneOf(Thread.currentThread()) * PER_LANE;
+        for (int i = base; i < base + PER_LANE; i++) {
+            Basket basket = slots.get(i);
+            if (basket != null && slots.compareAndSet(i, basket, null)) {
+                basket.reset(basketId, userId);
+                return basket;
+            }
+        }
+        return new Basket(basketId, userId);
+    }
+
+    /**
+     * После release корзину трогать нельзя: её получит следующий покупатель.
+     */
+    void release(Basket basket) {
+        if (basket.getLineCount() > MAX_POOLED_LINES) return;
+        int base = laneOf(Thread.currentThread()) * PER_LANE;
+        for (int i = base; i < base + PER_LANE; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, basket)) return;
+        }
+    }
+
+    private int laneOf(Thread thread) {
+        long id = thread.threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 40) & (lanes - 1);
+    }
+}
@@ -0,0 +1,329 @@
+package proekt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Остатки больше кучи: горячие товары — в кэше в памяти, остальные — в StockFile на диске.
+ * Кэш множественно-ассоциативный: товар может лежать только в одном из WAYS мест своего набора,
+ * поэтому поиск — чтение восьми слов без блокировок. Слово — ключ, остаток и бит «изменён» в одном long:
+ * резерв — тот же единственный CAS, что в ConcurrentIntIntMap, а товар, вытесненный между поиском
+ * и CAS, узнаётся по ключу в слове, и CAS просто не проходит.
+ *
+ * Промах загружает товар из файла под блокировкой полосы наборов; место освобождает CLOCK
+ * (приближение LRU): товар, тронутый с прошлого обхода, получает второй шанс.
+ * Запись отложенная: изменённые остатки пачками переносит в файл flush() (фоново — start()),
+ * поэтому вытеснение обычно находит жертву чистой и на пути покупателя ничего не пишет.
+ * Остаток в кэше ограничен ±2^30: один бит слова отдан под флаг.
+ * Файл — рабочая область одного запуска, а не копия для следующего: вытесненный товар нужно где-то
+ * держать вне кучи, а после перезапуска остатки восстанавливает TransactionJournal.
+ */
+public final class CachedStockStore implements StockStore, Closeable {
+
+    private static final int WAYS = 8;
+    private static final int STRIPES = 256;
+    private static final int MAX_QUANTITY = (1 << 30) - 1;
+    private static final int MIN_QUANTITY = -(1 << 30);
+
+    private final StockFile file;
+    private final int setMask;
+    private final AtomicLongArray words;
+    private final byte[] referenced;            // CLOCK: тронут с прошлого обхода; гонки записи безвредны
+    private final byte[] hands;                 // стрелка CLOCK набора, меняется под блокировкой полосы
+    private final AtomicIntegerArray dirtySets; // подсказка flush(): в наборе могли появиться изменённые слова
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+    private volatile boolean closed;
+    private volatile ContentionStats contention = ContentionStats.NONE;
+
+    /**
+     * @param cacheEntries сколько товаров держать в памяти (округляется вверх до степени двойки)
+     */
+    public CachedStockStore(StockFile file, int cacheEntries) {
+        this.file = file;
+        int sets = Integer.highestOneBit(Math.max(1, (cacheEntries + WAYS - 1) / WAYS) * 2 - 1);
+        this.setMask = sets - 1;
+        this.words = new AtomicLongArray(sets * WAYS);
+        for (int i = 0; i < sets * WAYS; i++) words.lazySet(i, word(IntIntMap.FREE, 0, false));
+        this.referenced = new byte[sets * WAYS];
+        this.hands = new byte[sets];
+        this.dirtySets = new AtomicIntegerArray(sets);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
+    }
+
+    public StockFile getFile() {
+        return file;
+    }
+
+    @Override
+    public void setContentionStats(ContentionStats stats) {
+        this.contention = stats == null ? ContentionStats.NONE : stats;
+        file.setContentionStats(stats);
+    }
+
+    public int getCacheEntries() {
+        return words.length();
+    }
+
+    /**
+     * Товаров загружено в кэш из файла (промахи записи; чтение мимо кэша не загружает).
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Остатков записано в файл — отложенной записью и при вытеснении.
+     */
+    public long getWriteBacks() {
+        return writeBacks.sum();
+    }
+
+    /**
+     * Чтение мимо кэша идёт в файл и кэш не засоряет.
+     */
+    @Override
+    public int get(int productId) {
+        int i = find(productId);
+        if (i >= 0) {
+            long w = words.get(i);
+            if (keyOf(w) == productId) {
+                touch(i);
+                return quantityOf(w);
+            }
+        }
+        return file.get(productId);
+    }
+
+    @Override
+    public int addAndGet(int productId, int delta) {
+        while (true) {
+            int i = find(productId);
+            if (i < 0) i = load(productId);
+            long w = words.get(i);
+            if (keyOf(w) != productId) continue; // вытеснен после поиска
+            long q = (long) quantityOf(w) + delta;
+            if (q > MAX_QUANTITY || q < MIN_QUANTITY) throw new ArithmeticException("Stock out of range: " + q);
+            if (words.compareAndSet(i, w, word(productId, (int) q, true))) {
+                updated(i);
+                return (int) q;
+            }
+            contention.casRetry();
+        }
+    }
+
+    /**
+     * Нехватка холодного товара решается по файлу, без загрузки в кэш.
+     */
+    @Override
+    public boolean tryDecrement(int productId, int delta) {
+        while (true) {
+            int i = find(productId);
+            if (i < 0) {
+                if (delta > file.get(productId)) return false;
+                i = load(productId);
+            }
+            long w = words.get(i);
+            if (keyOf(w) != productId) continue;
+            int q = quantityOf(w);
+            if (delta > q) return false;
+            if (words.compareAndSet(i, w, word(productId, q - delta, true))) {
+                updated(i);
+                return true;
+            }
+            contention.casRetry();
+        }
+    }
+
+    /**
+     * Все товары файла; у загруженных в кэш остаток берётся из кэша.
+     */
+    @Override
+    public void forEach(IntIntConsumer action) {
+        file.forEach((productId, stored) -> {
+            int i = find(productId);
+            long w = i < 0 ? 0 : words.get(i);
+            action.accept(productId, i >= 0 && keyOf(w) == productId ? quantityOf(w) : stored);
+        });
+    }
+
+    @Override
+    public int size() {
+        return file.size();
+    }
+
+    /**
+     * Переносит изменённые остатки в файл (в отображение; на диск страницы сбрасывает ОС).
+     *
+     * @return сколько остатков записано
+     */
+    public int flush() {
+        int written = 0;
+        for (int set = 0; set <= setMask; set++) {
+            if (dirtySets.get(set) == 0) continue;
+            // Подсказка снимается до обхода: изменение после обхода поставит её снова
+            dirtySets.set(set, 0);
+            ReentrantLock lock = stripes[set & (STRIPES - 1)];
+            contention.lock(lock);
+            try {
+                for (int i = set * WAYS; i < (set + 1) * WAYS; i++) {
+                    long w = words.get(i);
+                    if (!isDirty(w)) continue;
+                    file.put(keyOf(w), quantityOf(w));
+                    written++;
+                    // Не прошло — остаток успели изменить, слово осталось изменённым до следующего раза
+                    words.compareAndSet(i, w, w & ~1L);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        writeBacks.add(written);
+        return written;
+    }
+
+    /**
+     * Фоновая отложенная запись раз в periodMillis.
+     */
+    public ScheduledExecutorService start(long periodMillis) {
+        return start(periodMillis, List.of(this));
+    }
+
+    /**
+     * Одна фоновая отложенная запись на несколько кэшей (например, остатки и резервы склада).
+     */
+    public static ScheduledExecutorService start(long periodMillis, List<CachedStockStore> stores) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            for (CachedStockStore store : stores) {
+                if (!store.closed) store.flush();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    /**
+     * Дописывает изменённое и закрывает файл.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        closed = true;
+        file.close();
+    }
+
+    @Override
+    public String toString() {
+        return "CachedStockStore{cache=" + words.length() + ", loads=" + loads.sum() + ", evictions=" + evictions.sum()
+                + ", writeBacks=" + writeBacks.sum() + ", " + file + "}";
+    }
+
+    private int find(int productId) {
+        if (productId == IntIntMap.FREE) throw new IllegalArgumentException("Reserved key: " + productId);
+        int base = setOf(productId) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (keyOf(words.get(i)) == productId) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Загружает товар из файла на место жертвы CLOCK; изменённую жертву сначала записывает в файл.
+     * Всё под блокировкой полосы набора: и загрузки одного товара, и flush() того же набора идут по очереди,
+     * поэтому файл для товара вне кэша всегда актуален.
+     */
+    private int load(int productId) {
+        int set = setOf(productId);
+        ReentrantLock lock = stripes[set & (STRIPES - 1)];
+        contention.lock(lock);
+        try {
+            int i = find(productId);
+            if (i >= 0) return i; // загрузил другой поток, пока ждали
+            int quantity = file.load(productId);
+            if (quantity > MAX_QUANTITY || quantity < MIN_QUANTITY) {
+                throw new ArithmeticException("Stock out of range: " + quantity);
+            }
+            int victim = victim(set);
+            while (true) {
+                long w = words.get(victim);
+                if (isDirty(w)) {
+                    file.put(keyOf(w), quantityOf(w));
+                    writeBacks.increment();
+                }
+                // Не прошло — жертву изменили: записываем заново
+                if (words.compareAndSet(victim, w, word(productId, quantity, false))) {
+                    if (keyOf(w) != IntIntMap.FREE) evictions.increment();
+                    break;
+                }
+            }
+            referenced[victim] = 1;
+            loads.increment();
+            return victim;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int victim(int set) {
+        int base = set * WAYS;
+        int hand = hands[set];
+        for (int step = 0; ; step++) {
+            int i = base + hand;
+            hand = (hand + 1) & (WAYS - 1);
+            // Два круга — предел: покупатели могут снова трогать товары, пока стрелка идёт
+            if (keyOf(words.get(i)) == IntIntMap.FREE || referenced[i] == 0 || step == 2 * WAYS) {
+                hands[set] = (byte) hand;
+                return i;
+            }
+            referenced[i] = 0;
+        }
+    }
+
+    private void touch(int i) {
+        if (referenced[i] == 0) referenced[i] = 1;
+    }
+
+    private void updated(int i) {
+        touch(i);
+        int set = i / WAYS;
+        if (dirtySets.get(set) == 0) dirtySets.set(set, 1);
+    }
+
+    private int setOf(int productId) {
+        return IntIntMap.mix(productId) & setMask;
+    }
+
+    private static long word(int productId, int quantity, boolean dirty) {
+        return ((long) productId << 32) | (((quantity << 1) | (dirty ? 1 : 0)) & 0xFFFFFFFFL);
+    }
+
+    private static int keyOf(long w) {
+        return (int) (w >>> 32);
+    }
+
+    private static int quantityOf(long w) {
+        return ((int) w) >> 1;
+    }
+
+    private static boolean isDirty(long w) {
+        return (w & 1) != 0;
+    }
+}
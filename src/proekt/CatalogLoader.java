@@ -0,0 +1,562 @@
+package proekt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Массовая загрузка ассортимента (каталог + начальные остатки) из файла.
+ *
+ * CSV: {@code id,name,category,price,expireDate,description,quantity}, по строке на товар;
+ * первая строка может быть заголовком, пустые строки и строки с '#' пропускаются.
+ * Поле можно взять в кавычки ("" внутри — кавычка), но перевод строки внутри поля не допускается:
+ * файл отображается в память и режется на куски по '\n', куски разбираются параллельно.
+ *
+ * Двоичный формат — тот же ассортимент готовыми записями, разбитыми на блоки с CRC32C;
+ * блоки тоже читаются параллельно. load() рядом с CSV кладёт такой снимок (file.csv.bin)
+ * и при следующем запуске, если CSV не менялся, читает снимок вместо разбора текста.
+ */
+public final class CatalogLoader {
+
+    private static final int MAGIC = 0x50524B43; // "PRKC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int INDEX_ENTRY_BYTES = 20;
+    private static final int BLOCK_RECORDS = 1 << 16;
+    private static final int BLOCK_BYTES = 32 << 20;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final byte[][] CATEGORY_NAMES;
+
+    static {
+        Category[] values = Category.values();
+        CATEGORY_NAMES = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            CATEGORY_NAMES[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private CatalogLoader() {
+    }
+
+    /**
+     * Загруженный ассортимент: товары в порядке файла и остатки id -> количество (> 0).
+     */
+    public static final class Assortment {
+        private final List<Product> products;
+        private final IntIntMap stock;
+
+        public Assortment(List<Product> products, IntIntMap stock) {
+            this.products = products;
+            this.stock = stock;
+        }
+
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        public IntIntMap getStock() {
+            return stock;
+        }
+    }
+
+    /**
+     * Двоичный файл читается напрямую; для CSV используется свежий снимок рядом с ним,
+     * а если его нет или он устарел — CSV разбирается и снимок пишется заново.
+     */
+    public static Assortment load(Path source, int threads) throws IOException {
+        if (isBinary(source)) return readBinary(source, threads);
+        Path snapshot = source.resolveSibling(source.getFileName() + SNAPSHOT_SUFFIX);
+        if (Files.exists(snapshot)
+                && Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(source)) >= 0) {
+            try {
+                return readBinary(snapshot, threads);
+            } catch (IOException e) {
+                // повреждённый снимок — просто разбираем CSV заново
+            }
+        }
+        Assortment assortment = readCsv(source, threads);
+        try {
+            writeBinary(snapshot, assortment);
+        } catch (IOException e) {
+            // снимок — только ускорение старта; каталог только для чтения тоже допустим
+        }
+        return assortment;
+    }
+
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && ch.read(head) >= 0) {
+            }
+            return head.position() == 4 && head.getInt(0) == MAGIC;
+        }
+    }
+
+    // --- CSV
+
+    public static Assortment readCsv(Path path, int threads) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(ch, threads);
+            List<Callable<Assortment>> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long length = bounds[i + 1] - start;
+                boolean first = i == 0;
+                tasks.add(() -> new CsvChunk(ch.map(FileChannel.MapMode.READ_ONLY, start, length), start, first).parse());
+            }
+            return merge(runAll(tasks, threads));
+        }
+    }
+
+    /**
+     * Делит файл на куски примерно равного размера; каждая граница сдвигается на начало строки.
+     */
+    private static long[] chunkBounds(FileChannel ch, int threads) throws IOException {
+        long size = ch.size();
+        long chunks = Math.max(1, Math.min(threads * 4L, size / MIN_CHUNK_BYTES));
+        chunks = Math.max(chunks, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        long[] bounds = new long[(int) chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunks; i++) {
+            long pos = Math.max(bounds[i - 1], size / chunks * i);
+            bounds[i] = size;
+            scan:
+            while (pos < size) {
+                probe.clear();
+                int n = ch.read(probe, pos);
+                if (n <= 0) break;
+                for (int j = 0; j < n; j++) {
+                    if (probe.get(j) == '\n') {
+                        bounds[i] = pos + j + 1;
+                        break scan;
+                    }
+                }
+                pos += n;
+            }
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+
+    /**
+     * Разбор одного куска CSV прямо из отображённого буфера: числа, цены и даты читаются
+     * из байтов, строки создаются только для названия и описания.
+     */
+    private static final class CsvChunk {
+        private static final int FIELDS = 7;
+
+        private final MappedByteBuffer buf;
+        private final long offset;
+        private final boolean first;
+        private final int[] start = new int[FIELDS];
+        private final int[] end = new int[FIELDS];
+        private final boolean[] quoted = new boolean[FIELDS];
+        private final List<Product> products = new ArrayList<>();
+        private final IntIntMap stock = new IntIntMap();
+
+        CsvChunk(MappedByteBuffer buf, long offset, boolean first) {
+            this.buf = buf;
+            this.offset = offset;
+            this.first = first;
+        }
+
+        Assortment parse() throws IOException {
+            int limit = buf.limit();
+            int pos = 0;
+            boolean header = first;
+            while (pos < limit) {
+                int eol = pos;
+                while (eol < limit && buf.get(eol) != '\n') eol++;
+                int lineEnd = eol > pos && buf.get(eol - 1) == '\r' ? eol - 1 : eol;
+                if (lineEnd > pos && buf.get(pos) != '#') {
+                    boolean skipHeader = header && !isDigit(buf.get(pos)) && buf.get(pos) != '-';
+                    if (!skipHeader) parseLine(pos, lineEnd);
+                    header = false;
+                }
+                pos = eol + 1;
+            }
+            return new Assortment(products, stock);
+        }
+
+        private void parseLine(int from, int to) throws IOException {
+            int field = 0;
+            int pos = from;
+            while (true) {
+                if (field == FIELDS) throw error(from, "more than " + FIELDS + " fields");
+                if (pos < to && buf.get(pos) == '"') {
+                    quoted[field] = true;
+                    start[field] = ++pos;
+                    while (true) {
+                        if (pos >= to) throw error(from, "unterminated quote");
+                        if (buf.get(pos) == '"') {
+                            if (pos + 1 < to && buf.get(pos + 1) == '"') {
+                                pos += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        pos++;
+                    }
+                    end[field] = pos++;
+                    if (pos < to && buf.get(pos) != ',') throw error(from, "text after closing quote");
+                } else {
+                    quoted[field] = false;
+                    start[field] = pos;
+                    while (pos < to && buf.get(pos) != ',') pos++;
+                    end[field] = pos;
+                }
+                field++;
+                if (pos >= to) break;
+                pos++; // ','
+            }
+            if (field < FIELDS) throw error(from, "expected " + FIELDS + " fields, got " + field);
+
+            int id = parseInt(0, from);
+            if (id == IntIntMap.FREE) throw error(from, "reserved product id " + id);
+            int quantity = parseInt(6, from);
+            if (quantity < 0) throw error(from, "negative quantity");
+            Product product = new Product(id, text(1), parseCategory(from), parsePrice(from),
+                    parseDate(from), text(5));
+            products.add(product);
+            if (quantity > 0) {
+                stock.put(id, quantity);
+            } else {
+                stock.remove(id, 0);
+            }
+        }
+
+        private String text(int f) {
+            int len = end[f] - start[f];
+            if (len == 0) return null;
+            byte[] bytes = new byte[len];
+            buf.get(start[f], bytes);
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            return quoted[f] ? s.replace("\"\"", "\"") : s.trim();
+        }
+
+        private int parseInt(int f, int line) throws IOException {
+            int pos = start[f];
+            int to = end[f];
+            while (pos < to && buf.get(pos) == ' ') pos++;
+            while (to > pos && buf.get(to - 1) == ' ') to--;
+            if (pos == to) {
+                if (f == 6) return 0; // пустое количество — товара нет на складе
+                throw error(line, "empty number in field " + (f + 1));
+            }
+            boolean negative = buf.get(pos) == '-';
+            if (negative && ++pos == to) throw error(line, "bad number in field " + (f + 1));
+            long value = 0;
+            for (; pos < to; pos++) {
+                byte b = buf.get(pos);
+                if (!isDigit(b)) throw error(line, "bad number in field " + (f + 1));
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE + 1L) throw error(line, "number too large in field " + (f + 1));
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) throw error(line, "number too large in field " + (f + 1));
+            return (int) value;
+        }
+
+        private Category parseCategory(int line) throws IOException {
+            int from = start[2];
+            int to = end[2];
+            while (from < to && buf.get(from) == ' ') from++;
+            while (to > from && buf.get(to - 1) == ' ') to--;
+            if (from == to) return Category.OTHER;
+            for (int c = 0; c < CATEGORY_NAMES.length; c++) {
+                byte[] name = CATEGORY_NAMES[c];
+                if (name.length != to - from) continue;
+                int i = 0;
+                while (i < name.length && Character.toUpperCase(buf.get(from + i)) == name[i]) i++;
+                if (i == name.length) return Category.values()[c];
+            }
+            throw error(line, "unknown category");
+        }
+
+        /**
+         * Цена сразу в минимальных единицах; больше SCALE знаков или очень длинные числа
+         * округляются так же, как Money.toMinor.
+         */
+        private long parsePrice(int line) throws IOException {
+            int pos = start[3];
+            int to = end[3];
+            while (pos < to && buf.get(pos) == ' ') pos++;
+            while (to > pos && buf.get(to - 1) == ' ') to--;
+            if (pos == to) throw error(line, "empty price");
+            int from = pos;
+            boolean negative = buf.get(pos) == '-';
+            if (negative) pos++;
+            long value = 0;
+            int digits = 0;
+            int fraction = -1;
+            for (; pos < to; pos++) {
+                byte b = buf.get(pos);
+                if (b == '.' && fraction < 0) {
+                    fraction = 0;
+                } else if (isDigit(b)) {
+                    value = value * 10 + (b - '0');
+                    digits++;
+                    if (fraction >= 0) fraction++;
+                } else {
+                    throw error(line, "bad price");
+                }
+            }
+            if (digits == 0) throw error(line, "bad price");
+            if (fraction < 0) fraction = 0;
+            if (fraction > Money.SCALE || digits > 17) {
+                byte[] bytes = new byte[to - from];
+                buf.get(from, bytes);
+                try {
+                    return Money.toMinor(new BigDecimal(new String(bytes, StandardCharsets.US_ASCII)));
+                } catch (ArithmeticException e) {
+                    throw error(line, "price out of range");
+                }
+            }
+            for (int i = fraction; i < Money.SCALE; i++) value *= 10;
+            return negative ? -value : value;
+        }
+
+        private LocalDate parseDate(int line) throws IOException {
+            int pos = start[4];
+            int to = end[4];
+            while (pos < to && buf.get(pos) == ' ') pos++;
+            while (to > pos && buf.get(to - 1) == ' ') to--;
+            if (pos == to) return null;
+            // yyyy-MM-dd
+            if (to - pos != 10 || buf.get(pos + 4) != '-' || buf.get(pos + 7) != '-') throw error(line, "bad date");
+            try {
+                return LocalDate.of(digits(pos, 4, line), digits(pos + 5, 2, line), digits(pos + 8, 2, line));
+            } catch (DateTimeException e) {
+                throw error(line, "bad date");
+            }
+        }
+
+        private int digits(int pos, int count, int line) throws IOException {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                byte b = buf.get(pos + i);
+                if (!isDigit(b)) throw error(line, "bad date");
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private IOException error(int lineStart, String reason) {
+            return new IOException("Bad assortment line at byte " + (offset + lineStart) + ": " + reason);
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // --- двоичный формат
+    //
+    // заголовок (32 байта): magic, version, число товаров, число блоков, смещение индекса, резерв
+    // блоки записей: id, категория (байт), цена в минимальных единицах, срок (epochDay или NO_DATE),
+    //                количество, название и описание (short длина в байтах UTF-8, -1 — null, затем байты)
+    // индекс: на каждый блок смещение, длина, число записей, CRC32C
+
+    public static void writeBinary(Path path, Assortment assortment) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        List<Product> products = assortment.getProducts();
+        IntIntMap stock = assortment.getStock();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        int blocks = 0;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = HEADER_BYTES;
+            ByteArrayOutputStream block = new ByteArrayOutputStream(1 << 20);
+            DataOutputStream out = new DataOutputStream(block);
+            int records = 0;
+            for (int i = 0; i <= products.size(); i++) {
+                boolean last = i == products.size();
+                if (records > 0 && (last || records == BLOCK_RECORDS || block.size() >= BLOCK_BYTES)) {
+                    byte[] bytes = block.toByteArray();
+                    CRC32C crc = new CRC32C();
+                    crc.update(bytes);
+                    writeFully(ch, ByteBuffer.wrap(bytes), pos);
+                    indexOut.writeLong(pos);
+                    indexOut.writeInt(bytes.length);
+                    indexOut.writeInt(records);
+                    indexOut.writeInt((int) crc.getValue());
+                    pos += bytes.length;
+                    blocks++;
+                    block.reset();
+                    records = 0;
+                }
+                if (last) break;
+                Product p = products.get(i);
+                out.writeInt(p.getProductId());
+                out.writeByte(p.getCategory() == null ? -1 : p.getCategory().ordinal());
+                out.writeLong(p.getPriceMinor());
+                out.writeInt(p.getExpireDate() == null ? NO_DATE : (int) p.getExpireDate().toEpochDay());
+                out.writeInt(stock.get(p.getProductId(), 0));
+                writeText(out, p.getName());
+                writeText(out, p.getDescription());
+                records++;
+            }
+            writeFully(ch, ByteBuffer.wrap(index.toByteArray()), pos);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(products.size()).putInt(blocks).putLong(pos).putLong(0L);
+            writeFully(ch, header.flip(), 0);
+            ch.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Assortment readBinary(Path path, int threads) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) throw new IOException("Not an assortment snapshot: " + path);
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not an assortment snapshot: " + path);
+            }
+            int count = header.getInt(8);
+            int blocks = header.getInt(12);
+            long indexOffset = header.getLong(16);
+            if (blocks < 0 || indexOffset < HEADER_BYTES || indexOffset + (long) blocks * INDEX_ENTRY_BYTES != size) {
+                throw new IOException("Truncated assortment snapshot: " + path);
+            }
+            ByteBuffer index = ch.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) blocks * INDEX_ENTRY_BYTES);
+            List<Callable<Assortment>> tasks = new ArrayList<>(blocks);
+            long total = 0;
+            for (int b = 0; b < blocks; b++) {
+                long offset = index.getLong(b * INDEX_ENTRY_BYTES);
+                int length = index.getInt(b * INDEX_ENTRY_BYTES + 8);
+                int records = index.getInt(b * INDEX_ENTRY_BYTES + 12);
+                int crc = index.getInt(b * INDEX_ENTRY_BYTES + 16);
+                if (offset < HEADER_BYTES || length < 0 || offset + length > indexOffset) {
+                    throw new IOException("Corrupt block index in " + path);
+                }
+                total += records;
+                tasks.add(() -> readBlock(ch.map(FileChannel.MapMode.READ_ONLY, offset, length), records, crc, path));
+            }
+            if (total != count) throw new IOException("Corrupt block index in " + path);
+            return merge(runAll(tasks, threads));
+        }
+    }
+
+    private static Assortment readBlock(MappedByteBuffer buf, int records, int expectedCrc, Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.duplicate());
+        if ((int) crc.getValue() != expectedCrc) throw new IOException("Checksum mismatch in " + path);
+        List<Product> products = new ArrayList<>(records);
+        IntIntMap stock = new IntIntMap(records);
+        byte[] scratch = new byte[Short.MAX_VALUE];
+        try {
+            for (int r = 0; r < records; r++) {
+                int id = buf.getInt();
+                int category = buf.get();
+                long priceMinor = buf.getLong();
+                int day = buf.getInt();
+                int quantity = buf.getInt();
+                String name = readText(buf, scratch);
+                String description = readText(buf, scratch);
+                products.add(new Product(id, name, category < 0 ? null : Category.values()[category], priceMinor,
+                        day == NO_DATE ? null : LocalDate.ofEpochDay(day), description));
+                if (quantity > 0) stock.put(id, quantity);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt record in " + path, e);
+        }
+        return new Assortment(products, stock);
+    }
+
+    private static void writeText(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IOException("Text too long for snapshot: " + bytes.length + " bytes");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(ByteBuffer buf, byte[] scratch) {
+        int len = buf.getShort();
+        if (len < 0) return null;
+        buf.get(scratch, 0, len);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) pos += ch.write(buf, pos);
+    }
+
+    // --- общее
+
+    private static List<Assortment> runAll(List<Callable<Assortment>> tasks, int threads) throws IOException {
+        if (tasks.size() <= 1 || threads <= 1) {
+            List<Assortment> parts = new ArrayList<>(tasks.size());
+            for (Callable<Assortment> task : tasks) parts.add(call(task));
+            return parts;
+        }
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()))) {
+            List<Future<Assortment>> futures = pool.invokeAll(tasks);
+            List<Assortment> parts = new ArrayList<>(futures.size());
+            for (Future<Assortment> f : futures) parts.add(f.get());
+            return parts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Assortment loading interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Assortment loading failed", e.getCause());
+        }
+    }
+
+    private static Assortment call(Callable<Assortment> task) throws IOException {
+        try {
+            return task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Склеивает куски в порядке файла: при повторе id побеждает последняя строка.
+     */
+    private static Assortment merge(List<Assortment> parts) {
+        if (parts.size() == 1) return parts.get(0);
+        int total = 0;
+        for (Assortment a : parts) total += a.getProducts().size();
+        List<Product> products = new ArrayList<>(total);
+        IntIntMap stock = new IntIntMap(total);
+        for (Assortment a : parts) {
+            products.addAll(a.getProducts());
+            for (Product p : a.getProducts()) {
+                int q = a.getStock().get(p.getProductId(), 0);
+                if (q > 0) {
+                    stock.put(p.getProductId(), q);
+                } else {
+                    stock.remove(p.getProductId(), 0);
+                }
+            }
+        }
+        return new Assortment(products, stock);
+    }
+}
@@ -1,3 +1,5 @@
+package proekt;
+
 public enum Category {
     FOOD, ELECTRONICS, CLOTHING, HOME, OTHER
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package proekt;
+
+import java.util.List;
+
+/**
+ * Наблюдатель за ходом обслуживания покупателя. Все методы по умолчанию пустые,
+ * поэтому headless-режим использует {@link #NONE} и ничего не печатает.
+ */
+public interface CheckoutListener {
+
+    CheckoutListener NONE = new CheckoutListener() {};
+
+    default void onArrival(AuthUser customer, List<ProductQuantity> desired) {}
+
+    default void onReserved(Product product, int quantity) {}
+
+    default void onReserveFailed(Product product, boolean afterRestock) {}
+
+    default void onOutOfStock(Product product, int have, int want) {}
+
+    default void onRestocked(Product product, int amount) {}
+
+    default void onSkipped(Product product) {}
+
+    default void onEmptyBasket() {}
+
+    default void onTotal(Basket basket) {}
+
+    default void onDeclined(Basket basket) {}
+
+    default void onPaid(Basket basket, Payment register) {}
+
+    default void onInsufficientFunds(Basket basket) {}
+
+    default void onHoldExpired(Basket basket) {}
+}
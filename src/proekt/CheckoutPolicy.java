@@ -0,0 +1,14 @@
+package proekt;
+
+/**
+ * Решения, которые в консольном режиме принимает продавец (askYesNo/askInt),
+ * а в headless-режиме — автоматическая политика.
+ */
+public interface CheckoutPolicy {
+
+    boolean shouldRestock(Product product, int have, int want);
+
+    int restockAmount(Product product, int have, int want);
+
+    boolean confirmPayment(Basket basket);
+}
@@ -0,0 +1,5 @@
+package proekt;
+
+public enum CheckoutResult {
+    EMPTY, DECLINED, INSUFFICIENT_FUNDS, HOLD_EXPIRED, PAID
+}
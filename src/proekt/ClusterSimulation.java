@@ -0,0 +1,134 @@
+package proekt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный режим для StoreCluster: producers потоков генерируют покупателей и отправляют заказы
+ * в их домашние магазины, партиции обслуживают. Чтобы очереди не росли без предела, в полёте
+ * одновременно не больше MAX_IN_FLIGHT_PER_STORE заказов на магазин.
+ * В конце печатает пропускную способность, задержку заказа (от отправки до последнего чекаута),
+ * исходы чекаутов и переводы между складами.
+ */
+public class ClusterSimulation {
+
+    private static final int MAX_IN_FLIGHT_PER_STORE = 64;
+
+    private final StoreCluster cluster;
+    private final CustomerGenerator generator;
+    private final int producers;
+    private final long customers;
+
+    private final AtomicLong nextTicket = new AtomicLong();
+    private final Semaphore inFlight;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder[] results = new LongAdder[CheckoutResult.values().length];
+    private final AtomicLong failed = new AtomicLong();
+
+    public ClusterSimulation(StoreCluster cluster, int producers, long customers) {
+        this.cluster = cluster;
+        this.generator = MainGame.customerGenerator(cluster.getStore(0).getProductCatalog());
+        this.producers = Math.max(1, producers);
+        this.customers = Math.max(0, customers);
+        this.inFlight = new Semaphore(MAX_IN_FLIGHT_PER_STORE * cluster.size());
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    public void run() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CustomerGenerator[] generators = new CustomerGenerator[producers];
+        for (int t = 0; t < producers; t++) generators[t] = generator.split();
+
+        long start = System.nanoTime();
+        for (int t = 0; t < producers; t++) {
+            CustomerGenerator g = generators[t];
+            pool.execute(() -> produce(g));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        // Дождаться заказов, ещё обходящих магазины
+        inFlight.acquire(MAX_IN_FLIGHT_PER_STORE * cluster.size());
+        long elapsed = System.nanoTime() - start;
+
+        printReport(elapsed);
+    }
+
+    private void produce(CustomerGenerator generator) {
+        while (nextTicket.getAndIncrement() < customers) {
+            AuthUser customer = generator.randomCustomer();
+            List<ProductQuantity> desired = generator.randomCart(customer);
+            inFlight.acquireUninterruptibly();
+            long submitted = System.nanoTime();
+            cluster.submit(customer, desired, cluster.homeOf(customer)).whenComplete((order, error) -> {
+                if (error == null) {
+                    latency.record(System.nanoTime() - submitted);
+                    for (int leg = 0; leg < order.getLegs(); leg++) results[order.getResult(leg).ordinal()].increment();
+                } else if (failed.getAndIncrement() == 0) {
+                    System.err.println("Order failed: " + error);
+                }
+                inFlight.release();
+            });
+        }
+    }
+
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        LatencyHistogram.Snapshot orders = latency.snapshot();
+        System.out.println("========================================");
+        System.out.println("= CLUSTER SIMULATION");
+        System.out.println("========================================");
+        System.out.printf("Stores: %d, producers: %d, customers: %d%n", cluster.size(), producers, orders.getCount());
+        WorkloadProfile profile = generator.getProfile();
+        System.out.println("Workload: " + profile.getName() + ", zipf=" + profile.getZipf()
+                + ", seed=" + generator.getSeed());
+        System.out.printf("Elapsed: %.3f s, throughput: %.0f customers/s%n", seconds, orders.getCount() / seconds);
+        System.out.println("Order latency: " + orders);
+        for (CheckoutResult r : CheckoutResult.values()) {
+            System.out.println("  " + r + ": " + results[r.ordinal()].sum());
+        }
+        if (failed.get() > 0) System.out.println("  FAILED: " + failed.get());
+        System.out.println("Routing: " + cluster);
+        long cash = 0;
+        for (int i = 0; i < cluster.size(); i++) {
+            Store store = cluster.getStore(i);
+            Payment.Snapshot register = store.getPaymentBox().snapshot();
+            cash += register.getTotalMinor();
+            System.out.println("  store " + i + ": checkouts=" + cluster.getCheckouts(i)
+                    + " payments=" + register.getTransactions() + " on-hand=" + store.getWarehouse().getSize()
+                    + " available=" + store.getWarehouse().getAvailable());
+        }
+        System.out.println("Cash in registers: " + Money.toBigDecimal(cash));
+    }
+
+    /**
+     * Аргументы: [customers] [stores] [producers] [restockBatch] [capacityPerStore]
+     * Каждый магазин получает один и тот же ассортимент (см. MainGame.initAssortment, без журнала).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        long customers = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int stores = args.length > 1 ? Integer.parseInt(args[1]) : cpus;
+        int producers = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, cpus / 2);
+        int restockBatch = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int capacity = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+
+        CheckoutPolicy policy = new AutoCheckoutPolicy(true, restockBatch, true);
+        StoreCluster cluster = new StoreCluster(stores, capacity, MainGame.holdTtlMillis(), store -> {
+            try {
+                MainGame.initAssortment(store, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            store.getWarehouse().evictExpired();
+        }, policy, CheckoutListener.NONE).start();
+        try {
+            new ClusterSimulation(cluster, producers, customers).run();
+        } finally {
+            cluster.close();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package proekt;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Неизменяемый компактный снимок каталога: столбцы вместо объектов Product (struct-of-arrays).
+ * На товар — id (int), цена в минимальных единицах (long), срок годности как эпохальный день
+ * (int), категория (byte) и ссылки (int) на название и описание. Строки хранятся один раз
+ * в общей таблице UTF-8 байтов: одинаковые описания и названия не дублируются.
+ * Поиск по id — своя открытая адресация по массиву int, без боксинга.
+ *
+ * Снимок не меняется никогда, поэтому читать его можно из любых потоков без блокировок.
+ * Изменения — через edit(): правка копирует только затронутые столбцы (copy-on-write),
+ * остальные новая версия делит со старой. Текущую версию для читателей держит SharedCatalog.
+ */
+public final class CompactCatalog {
+
+    static final int NO_EXPIRY = Integer.MIN_VALUE;
+    static final int NO_TEXT = -1;
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final long version;
+    private final int size;
+    private final int[] ids;
+    private final long[] prices;
+    private final int[] expireDays;
+    private final byte[] categories; // Category.ordinal(), -1 — без категории
+    private final int[] nameRefs;
+    private final int[] descriptionRefs;
+    private final Text text;
+    private final int[] slots; // позиция + 1 по хешу id; 0 — пусто
+
+    private CompactCatalog(long version, int size, int[] ids, long[] prices, int[] expireDays, byte[] categories,
+                           int[] nameRefs, int[] descriptionRefs, Text text, int[] slots) {
+        this.version = version;
+        this.size = size;
+        this.ids = ids;
+        this.prices = prices;
+        this.expireDays = expireDays;
+        this.categories = categories;
+        this.nameRefs = nameRefs;
+        this.descriptionRefs = descriptionRefs;
+        this.text = text;
+        this.slots = slots;
+    }
+
+    public static CompactCatalog empty() {
+        return new CompactCatalog(0, 0, new int[0], new long[0], new int[0], new byte[0],
+                new int[0], new int[0], Text.EMPTY, new int[2]);
+    }
+
+    /**
+     * Снимок товаров в их порядке; товар с повторным id заменяет предыдущий.
+     */
+    public static CompactCatalog of(Collection<Product> products) {
+        Editor editor = empty().edit();
+        for (Product p : products) editor.put(p);
+        return editor.build();
+    }
+
+    public static CompactCatalog of(ProductCatalog catalog) {
+        return of(catalog.getAll());
+    }
+
+    /**
+     * Номер версии: у каждой правки на единицу больше, чем у снимка, от которого она начата.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Позиция товара 0..size()-1 или -1; позиции не меняются от версии к версии.
+     */
+    public int indexOf(int productId) {
+        int mask = slots.length - 1;
+        for (int i = mix(productId) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) return -1;
+            if (ids[slot - 1] == productId) return slot - 1;
+        }
+    }
+
+    public boolean contains(int productId) {
+        return indexOf(productId) >= 0;
+    }
+
+    public int getProductId(int position) {
+        Objects.checkIndex(position, size);
+        return ids[position];
+    }
+
+    public long getPriceMinor(int position) {
+        Objects.checkIndex(position, size);
+        return prices[position];
+    }
+
+    /**
+     * Срок годности как LocalDate.toEpochDay() или NO_EXPIRY.
+     */
+    public int getExpireDay(int position) {
+        Objects.checkIndex(position, size);
+        return expireDays[position];
+    }
+
+    public LocalDate getExpireDate(int position) {
+        int day = getExpireDay(position);
+        return day == NO_EXPIRY ? null : LocalDate.ofEpochDay(day);
+    }
+
+    public Category getCategory(int position) {
+        Objects.checkIndex(position, size);
+        byte c = categories[position];
+        return c < 0 ? null : CATEGORIES[c];
+    }
+
+    /**
+     * Строки декодируются при каждом вызове: для показа, а не для горячего пути.
+     */
+    public String getName(int position) {
+        Objects.checkIndex(position, size);
+        return text.get(nameRefs[position]);
+    }
+
+    public String getDescription(int position) {
+        Objects.checkIndex(position, size);
+        return text.get(descriptionRefs[position]);
+    }
+
+    /**
+     * Обычный (изменяемый) объект Product для кода, который работает с ним.
+     */
+    public Product toProduct(int position) {
+        return new Product(getProductId(position), getName(position), getCategory(position),
+                getPriceMinor(position), getExpireDate(position), getDescription(position));
+    }
+
+    /**
+     * Различных строк в таблице (названия и описания вместе).
+     */
+    public int getDistinctTexts() {
+        return text.count();
+    }
+
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    @Override
+    public String toString() {
+        return "CompactCatalog{version=" + version + ", products=" + size + ", texts=" + text.count()
+                + ", textBytes=" + text.bytes.length + "}";
+    }
+
+    /**
+     * Правка снимка: накапливает изменения и строит новую версию, не трогая исходную.
+     * Не потокобезопасен; одновременные правки одной версии дают разные независимые версии —
+     * чтобы они не терялись, правьте через SharedCatalog.update().
+     */
+    public static final class Editor {
+        private final CompactCatalog base;
+        private int size;
+        private int[] ids;
+        private long[] prices;
+        private int[] expireDays;
+        private byte[] categories;
+        private int[] nameRefs;
+        private int[] descriptionRefs;
+        private int[] slots;
+        private boolean pricesCopied;
+        private boolean rowsCopied;
+        private Text.Builder text;
+
+        private Editor(CompactCatalog base) {
+            this.base = base;
+            this.size = base.size;
+            this.ids = base.ids;
+            this.prices = base.prices;
+            this.expireDays = base.expireDays;
+            this.categories = base.categories;
+            this.nameRefs = base.nameRefs;
+            this.descriptionRefs = base.descriptionRefs;
+            this.slots = base.slots;
+        }
+
+        /**
+         * Новая цена товара; копируется только столбец цен.
+         *
+         * @throws IllegalArgumentException если товара нет
+         */
+        public Editor setPrice(int productId, long priceMinor) {
+            int pos = find(productId);
+            if (pos < 0) throw new IllegalArgumentException("Product id=" + productId + " not in catalog");
+            if (!pricesCopied) {
+                prices = Arrays.copyOf(prices, Math.max(prices.length, size));
+                pricesCopied = true;
+            }
+            prices[pos] = priceMinor;
+            return this;
+        }
+
+        /**
+         * Добавляет товар или заменяет товар с тем же id (все столбцы строки).
+         */
+        public Editor put(Product p) {
+            copyRows(size + 1);
+            int pos = find(p.getProductId());
+            if (pos < 0) {
+                pos = size++;
+                ids[pos] = p.getProductId();
+                insertSlot(pos);
+            }
+            prices[pos] = p.getPriceMinor();
+            expireDays[pos] = p.getExpireDate() == null ? NO_EXPIRY : (int) p.getExpireDate().toEpochDay();
+            categories[pos] = p.getCategory() == null ? -1 : (byte) p.getCategory().ordinal();
+            nameRefs[pos] = text().ref(p.getName());
+            descriptionRefs[pos] = text().ref(p.getDescription());
+            return this;
+        }
+
+        public CompactCatalog build() {
+            Text t = text == null ? base.text : text.build();
+            // Запас в конце столбцов после put() не нужен: обрезаем только то, что копировали
+            if (rowsCopied && ids.length != size) {
+                ids = Arrays.copyOf(ids, size);
+                prices = Arrays.copyOf(prices, size);
+                expireDays = Arrays.copyOf(expireDays, size);
+                categories = Arrays.copyOf(categories, size);
+                nameRefs = Arrays.copyOf(nameRefs, size);
+                descriptionRefs = Arrays.copyOf(descriptionRefs, size);
+            }
+            return new CompactCatalog(base.version + 1, size, ids, prices, expireDays, categories,
+                    nameRefs, descriptionRefs, t, slots);
+        }
+
+        private int find(int productId) {
+            int mask = slots.length - 1;
+            for (int i = mix(productId) & mask; ; i = (i + 1) & mask) {
+                int slot = slots[i];
+                if (slot == 0) return -1;
+                if (ids[slot - 1] == productId) return slot - 1;
+            }
+        }
+
+        // Первое изменение строк копирует все столбцы; дальше растим с запасом, как ArrayList
+        private void copyRows(int needed) {
+            if (rowsCopied && needed <= ids.length) return;
+            int capacity = rowsCopied ? Math.max(needed, ids.length + (ids.length >> 1)) : Math.max(needed, size);
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            expireDays = Arrays.copyOf(expireDays, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            nameRefs = Arrays.copyOf(nameRefs, capacity);
+            descriptionRefs = Arrays.copyOf(descriptionRefs, capacity);
+            if (!rowsCopied) slots = slots.clone();
+            rowsCopied = true;
+            pricesCopied = true;
+        }
+
+        private void insertSlot(int pos) {
+            // Заполнение не больше 1/2: иначе таблица удваивается и перестраивается
+            if ((size << 1) > slots.length) {
+                slots = new int[Integer.highestOneBit(Math.max(2, size) << 2)];
+                for (int p = 0; p < size; p++) place(p);
+            } else {
+                place(pos);
+            }
+        }
+
+        private void place(int pos) {
+            int mask = slots.length - 1;
+            int i = mix(ids[pos]) & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = pos + 1;
+        }
+
+        private Text.Builder text() {
+            if (text == null) text = base.text.toBuilder();
+            return text;
+        }
+    }
+
+    /**
+     * Таблица различных строк: UTF-8 байты подряд и смещения; ссылка — номер строки.
+     */
+    private static final class Text {
+        static final Text EMPTY = new Text(new byte[0], new int[]{0});
+
+        final byte[] bytes;
+        final int[] offsets; // count() + 1
+
+        Text(byte[] bytes, int[] offsets) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+        }
+
+        int count() {
+            return offsets.length - 1;
+        }
+
+        String get(int ref) {
+            if (ref == NO_TEXT) return null;
+            return new String(bytes, offsets[ref], offsets[ref + 1] - offsets[ref], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Дополнение таблицы; существующие ссылки остаются верными. Индекс строк для
+         * дедупликации строится при первой правке — O(число строк) один раз на правку.
+         */
+        Builder toBuilder() {
+            return new Builder(this);
+        }
+
+        static final class Builder {
+            private final Text base;
+            private final Map<String, Integer> refs;
+            private byte[] bytes;
+            private int[] offsets;
+            private int count;
+            private int length;
+
+            Builder(Text base) {
+                this.base = base;
+                this.count = base.count();
+                this.length = base.bytes.length;
+                this.bytes = base.bytes;
+                this.offsets = base.offsets;
+                this.refs = new HashMap<>(Math.max(16, count * 2));
+                for (int i = 0; i < count; i++) refs.put(base.get(i), i);
+            }
+
+            int ref(String s) {
+                if (s == null) return NO_TEXT;
+                Integer existing = refs.get(s);
+                if (existing != null) return existing;
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                if (bytes == base.bytes || length + utf8.length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(length + utf8.length, bytes.length + (bytes.length >> 1) + 16));
+                }
+                if (offsets == base.offsets || count + 2 > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, Math.max(count + 2, offsets.length + (offsets.length >> 1)));
+                }
+                System.arraycopy(utf8, 0, bytes, length, utf8.length);
+                length += utf8.length;
+                offsets[++count] = length;
+                refs.put(s, count - 1);
+                return count - 1;
+            }
+
+            Text build() {
+                if (bytes == base.bytes && offsets == base.offsets) return base;
+                return new Text(Arrays.copyOf(bytes, length), Arrays.copyOf(offsets, count + 1));
+            }
+        }
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,164 @@
+package proekt;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Потокобезопасная карта счётчиков int -> int для склада.
+ * Значения живут в страницах AtomicIntegerArray и никогда не переезжают, поэтому
+ * get/addAndGet/tryDecrement по существующему ключу — это чтение индекса и CAS без
+ * блокировок и без аллокаций. Блокировка берётся только при появлении нового ключа
+ * (новый товар на складе): тогда ключ дописывается в индекс, а при росте индекс
+ * перестраивается и публикуется целиком через volatile.
+ * Отсутствующий ключ читается как 0; ключи не удаляются.
+ */
+public class ConcurrentIntIntMap implements StockStore {
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * Открытая адресация key -> номер ячейки значения. Номер ячейки пишется раньше ключа,
+     * а ключ — volatile-записью, поэтому читатель, увидевший ключ, видит и ячейку.
+     */
+    private static final class Index {
+        final AtomicIntegerArray keys;
+        final int[] slots;
+        final int mask;
+
+        Index(int capacity) {
+            keys = new AtomicIntegerArray(capacity);
+            slots = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) keys.lazySet(i, IntIntMap.FREE);
+        }
+
+        int find(int key) {
+            int i = IntIntMap.mix(key) & mask;
+            while (true) {
+                int k = keys.get(i);
+                if (k == key) return slots[i];
+                if (k == IntIntMap.FREE) return -1;
+                i = (i + 1) & mask;
+            }
+        }
+
+        void insert(int key, int slot) {
+            int i = IntIntMap.mix(key) & mask;
+            while (keys.get(i) != IntIntMap.FREE) i = (i + 1) & mask;
+            slots[i] = slot;
+            keys.set(i, key);
+        }
+    }
+
+    private volatile Index index;
+    private volatile AtomicIntegerArray[] pages;
+    private volatile int size;
+    private final Object insertLock = new Object();
+    private volatile ContentionStats contention = ContentionStats.NONE;
+
+    public ConcurrentIntIntMap() {
+        this(16);
+    }
+
+    public ConcurrentIntIntMap(int expectedSize) {
+        index = new Index(IntIntMap.tableSizeFor(expectedSize));
+        pages = new AtomicIntegerArray[]{new AtomicIntegerArray(PAGE_SIZE)};
+    }
+
+    /**
+     * Количество ключей (в том числе с нулевым значением).
+     */
+    @Override
+    public void setContentionStats(ContentionStats stats) {
+        this.contention = stats == null ? ContentionStats.NONE : stats;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(int key) {
+        return index.find(checkKey(key)) >= 0;
+    }
+
+    @Override
+    public int get(int key) {
+        int slot = index.find(checkKey(key));
+        return slot < 0 ? 0 : page(slot).get(slot & PAGE_MASK);
+    }
+
+    @Override
+    public int addAndGet(int key, int delta) {
+        int slot = index.find(checkKey(key));
+        if (slot < 0) slot = insert(key);
+        return page(slot).addAndGet(slot & PAGE_MASK, delta);
+    }
+
+    /**
+     * Уменьшает значение на delta, только если оно не станет отрицательным.
+     */
+    @Override
+    public boolean tryDecrement(int key, int delta) {
+        int slot = index.find(checkKey(key));
+        if (slot < 0) return false;
+        AtomicIntegerArray page = page(slot);
+        int i = slot & PAGE_MASK;
+        while (true) {
+            int curr = page.get(i);
+            if (delta > curr) return false;
+            if (page.compareAndSet(i, curr, curr - delta)) return true;
+            contention.casRetry();
+        }
+    }
+
+    @Override
+    public void forEach(IntIntConsumer action) {
+        Index idx = index;
+        for (int i = 0; i <= idx.mask; i++) {
+            int k = idx.keys.get(i);
+            if (k == IntIntMap.FREE) continue;
+            int slot = idx.slots[i];
+            action.accept(k, page(slot).get(slot & PAGE_MASK));
+        }
+    }
+
+    private AtomicIntegerArray page(int slot) {
+        return pages[slot >>> PAGE_SHIFT];
+    }
+
+    private int insert(int key) {
+        synchronized (insertLock) {
+            Index idx = index;
+            int slot = idx.find(key);
+            if (slot >= 0) return slot;
+
+            slot = size;
+            AtomicIntegerArray[] p = pages;
+            if ((slot >>> PAGE_SHIFT) == p.length) {
+                p = Arrays.copyOf(p, p.length + 1);
+                p[p.length - 1] = new AtomicIntegerArray(PAGE_SIZE);
+                pages = p;
+            }
+            if ((slot + 1) > (idx.mask + 1) >> 1) {
+                Index grown = new Index((idx.mask + 1) << 1);
+                for (int i = 0; i <= idx.mask; i++) {
+                    int k = idx.keys.get(i);
+                    if (k != IntIntMap.FREE) grown.insert(k, idx.slots[i]);
+                }
+                idx = grown;
+            }
+            idx.insert(key, slot);
+            index = idx;
+            size = slot + 1;
+            return slot;
+        }
+    }
+
+    private static int checkKey(int key) {
+        if (key == IntIntMap.FREE) throw new IllegalArgumentException("Reserved key: " + key);
+        return key;
+    }
+}
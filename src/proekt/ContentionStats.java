@@ -0,0 +1,159 @@
+package proekt;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Счётчики конкуренции по потокам: неудачные CAS на остатках склада, ожидания спин-блокировки
+ * полосы кассы и ожидания блокировок полос удержаний. Пишутся только на медленном пути
+ * (когда конкуренция уже случилась), поэтому неконкурентный путь ничего не платит.
+ * Набор счётчиков свой у каждого магазина (StoreMetrics.getContention()); структуры пишут в тот,
+ * что им передали через setContentionStats, по умолчанию — в NONE, который ничего не считает.
+ * Каждый платформенный поток пишет в свой объект счётчиков; виртуальные потоки живут по одному
+ * покупателю, поэтому пишут в общий объект «virtual». Счётчики завершившихся потоков
+ * (пулы симуляций, пересозданные потоки планировщиков) складываются в один «finished threads»,
+ * так что список не растёт с каждым новым потоком.
+ */
+public final class ContentionStats {
+
+    /**
+     * Ничего не считает; блокировки берёт как обычно.
+     */
+    public static final ContentionStats NONE = new ContentionStats(false);
+
+    private final boolean recording;
+    private final ConcurrentLinkedQueue<Counters> threads = new ConcurrentLinkedQueue<>();
+    private final Counters virtual = new Counters("virtual", null);
+    private final Counters finished = new Counters("finished threads", null);
+    private final ThreadLocal<Counters> mine = ThreadLocal.withInitial(this::register);
+
+    public ContentionStats() {
+        this(true);
+    }
+
+    private ContentionStats(boolean recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Счётчики одного потока (или всех виртуальных).
+     */
+    public static final class Counters {
+        private final String thread;
+        private final WeakReference<Thread> owner; // null — общий объект, а не поток
+        private final AtomicLong casRetries = new AtomicLong();
+        private final AtomicLong spins = new AtomicLong();
+        private final AtomicLong lockWaits = new AtomicLong();
+        private final AtomicLong lockWaitNanos = new AtomicLong();
+
+        private Counters(String thread, Thread owner) {
+            this.thread = thread;
+            this.owner = owner == null ? null : new WeakReference<>(owner);
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getCasRetries() {
+            return casRetries.get();
+        }
+
+        public long getSpins() {
+            return spins.get();
+        }
+
+        public long getLockWaits() {
+            return lockWaits.get();
+        }
+
+        public long getLockWaitNanos() {
+            return lockWaitNanos.get();
+        }
+
+        private long total() {
+            return casRetries.get() + spins.get() + lockWaits.get();
+        }
+
+        private boolean isFinished() {
+            if (owner == null) return false;
+            Thread t = owner.get();
+            return t == null || !t.isAlive();
+        }
+
+        private void addTo(Counters sum) {
+            sum.casRetries.addAndGet(casRetries.get());
+            sum.spins.addAndGet(spins.get());
+            sum.lockWaits.addAndGet(lockWaits.get());
+            sum.lockWaitNanos.addAndGet(lockWaitNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: cas-retries=%d spins=%d lock-waits=%d (%.1f ms)",
+                    thread, casRetries.get(), spins.get(), lockWaits.get(), lockWaitNanos.get() / 1e6);
+        }
+    }
+
+    void casRetry() {
+        if (recording) mine().casRetries.incrementAndGet();
+    }
+
+    void spin() {
+        if (recording) mine().spins.incrementAndGet();
+    }
+
+    /**
+     * lock() с учётом ожидания: если блокировка занята, время ожидания записывается потоку.
+     */
+    void lock(ReentrantLock lock) {
+        if (lock.tryLock()) return;
+        long start = System.nanoTime();
+        lock.lock();
+        if (!recording) return;
+        Counters c = mine();
+        c.lockWaits.incrementAndGet();
+        c.lockWaitNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Потоки, у которых была хоть какая-то конкуренция, от самых «страдающих».
+     */
+    public List<Counters> snapshot() {
+        retireFinished();
+        List<Counters> result = new ArrayList<>();
+        for (Counters c : threads) {
+            if (c.total() > 0) result.add(c);
+        }
+        if (virtual.total() > 0) result.add(virtual);
+        if (finished.total() > 0) result.add(finished);
+        result.sort((a, b) -> Long.compare(b.total(), a.total()));
+        return result;
+    }
+
+    private Counters mine() {
+        return Thread.currentThread().isVirtual() ? virtual : mine.get();
+    }
+
+    private Counters register() {
+        // Новый поток в списке — повод убрать из него завершившиеся, даже если snapshot() не зовут
+        retireFinished();
+        Counters c = new Counters(Thread.currentThread().getName(), Thread.currentThread());
+        threads.add(c);
+        return c;
+    }
+
+    /**
+     * Завершившийся поток больше не пишет: его счётчики переносятся в finished один раз —
+     * тем, чей remove() прошёл.
+     */
+    private void retireFinished() {
+        for (Counters c : threads) {
+            if (c.isFinished() && threads.remove(c)) c.addTo(finished);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package proekt;
+
+import java.util.*;
+
+/**
+ * Генерация случайных покупателей и корзин (вынесено из MainGame,
+ * чтобы использовать и в консольном, и в headless-режиме).
+ *
+ * Форму нагрузки задаёт WorkloadProfile, случайность — свой SplittableRandom: с одним и тем же
+ * seed последовательность покупателей и корзин повторяется в точности. Экземпляр не потокобезопасен —
+ * каждому потоку свой, полученный через split(): потоки не делят состояние генератора,
+ * а их последовательности детерминированы, если split() вызывается в одном и том же порядке.
+ */
+public class CustomerGenerator {
+
+    private static final String[] NAMES = {"Ivan", "Olga", "Alex", "Maria", "Petr", "Anna", "Sergey", "Dmitry", "Elena"};
+    // Скидки по картам лояльности: у большинства карты нет, у остальных — один из немногих уровней
+    private static final double[] SALES = {0, 0, 0, 0, 0, 0, 0.03, 0.03, 0.05, 0.10};
+
+    private final ProductCatalog productCatalog;
+    private final WorkloadProfile profile;
+    private final long seed;
+    private final SplittableRandom rnd;
+    private ZipfSampler zipf; // под текущий размер каталога, пересоздаётся при его изменении
+
+    public CustomerGenerator(ProductCatalog productCatalog) {
+        this(productCatalog, WorkloadProfile.standard(), new SplittableRandom().nextLong());
+    }
+
+    public CustomerGenerator(ProductCatalog productCatalog, WorkloadProfile profile, long seed) {
+        this(productCatalog, profile, seed, new SplittableRandom(seed));
+    }
+
+    private CustomerGenerator(ProductCatalog productCatalog, WorkloadProfile profile, long seed, SplittableRandom rnd) {
+        this.productCatalog = productCatalog;
+        this.profile = profile;
+        this.seed = seed;
+        this.rnd = rnd;
+    }
+
+    /**
+     * Независимый генератор для другого потока: тот же профиль, отдельная последовательность.
+     */
+    public CustomerGenerator split() {
+        return new CustomerGenerator(productCatalog, profile, seed, rnd.split());
+    }
+
+    public WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Seed исходного генератора (у полученных через split() — тот же, от которого они отделены).
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public AuthUser randomCustomer() {
+        int userId = 1000 + rnd.nextInt(9000);
+        String name = randomName();
+        int age = 18 + rnd.nextInt(50);
+        Gender gender = profile.pickGender(rnd.nextDouble());
+        PsychoType type = profile.pickType(rnd.nextDouble());
+
+        WorkloadProfile.Shape shape = profile.getShape(type);
+        double cash = shape.getCashSigma() > 0
+                ? shape.getCashMedian() * Math.exp(shape.getCashSigma() * rnd.nextGaussian())
+                : rnd.nextDouble() * 2 * shape.getCashMedian();
+        cash *= profile.getCashScale(gender);
+
+        double sale = SALES[rnd.nextInt(SALES.length)];
+        return new AuthUser(userId, name, age, gender, type, Money.toBigDecimal(Math.round(cash * 100)), sale);
+    }
+
+    private String randomName() {
+        return NAMES[rnd.nextInt(NAMES.length)];
+    }
+
+    /**
+     * Корзина «среднего» покупателя: психотип выбирается по весам профиля.
+     */
+    public List<ProductQuantity> randomCart() {
+        return randomCart(profile.pickType(rnd.nextDouble()));
+    }
+
+    /**
+     * Корзина этого покупателя: размер зависит от его психотипа.
+     */
+    public List<ProductQuantity> randomCart(AuthUser customer) {
+        return randomCart(customer.getType() == null ? profile.pickType(rnd.nextDouble()) : customer.getType());
+    }
+
+    private List<ProductQuantity> randomCart(PsychoType type) {
+        WorkloadProfile.Shape shape = profile.getShape(type);
+        int size = productCatalog.size();
+        int lines = shape.getMinLines() + rnd.nextInt(shape.getMaxLines() - shape.getMinLines() + 1);
+        int itemsCount = Math.min(lines, size);
+        List<ProductQuantity> list = new ArrayList<>(itemsCount);
+        // Выбираем позиции без перемешивания всего каталога; при сильном перекосе популярности
+        // повторные попадания в те же горячие товары ограничены числом попыток
+        for (int attempts = 0; list.size() < itemsCount && attempts < itemsCount * 16; attempts++) {
+            Product p = productCatalog.getAt(randomPosition(size));
+            if (contains(list, p.getProductId())) continue;
+            int qty = 1 + rnd.nextInt(shape.getMaxQuantity());
+            list.add(new ProductQuantity(p.getProductId(), qty));
+        }
+        return list;
+    }
+
+    private int randomPosition(int size) {
+        if (profile.getZipf() == 0) return rnd.nextInt(size);
+        ZipfSampler z = zipf;
+        if (z == null || z.size() != size) zipf = z = new ZipfSampler(size, profile.getZipf());
+        return z.sample(rnd) - 1;
+    }
+
+    private static boolean contains(List<ProductQuantity> list, int productId) {
+        for (ProductQuantity pq : list) {
+            if (pq.getProductId() == productId) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,286 @@
+package proekt;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный вывод событий магазина. Кассы (любое число потоков) кладут события
+ * в заранее выделенный кольцевой буфер и сразу идут дальше; один фоновый поток забирает
+ * их пачками, рендерит в общий StringBuilder и печатает одной записью на пачку.
+ * При переполнении буфера: DROP — событие отбрасывается и считается в getDropped(),
+ * BLOCK — касса ждёт, пока писатель освободит место.
+ */
+public final class EventPipeline implements CheckoutListener, AutoCloseable {
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final StoreEvent[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final EventRenderer renderer;
+    private final PrintStream out;
+    private final int batchSize;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+
+    public EventPipeline(int capacity, OverflowPolicy policy, EventRenderer renderer,
+                         PrintStream out, int batchSize) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new StoreEvent[cap];
+        this.published = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) {
+            slots[i] = new StoreEvent();
+            published.set(i, -1L);
+        }
+        this.mask = cap - 1;
+        this.policy = policy;
+        this.renderer = renderer;
+        this.out = out;
+        this.batchSize = Math.max(1, batchSize);
+        this.writer = new Thread(this::writeLoop, "event-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public EventPipeline start() {
+        writer.start();
+        return this;
+    }
+
+    public long getPublished() {
+        return claimed.get();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Ждёт, пока всё опубликованное к этому моменту будет напечатано
+     * (например, перед вопросом в консоль).
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (consumed < target && writer.isAlive()) {
+            wakeWriter();
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        wakeWriter();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- CheckoutListener: каждое событие — один слот буфера
+
+    @Override
+    public void onArrival(AuthUser customer, List<ProductQuantity> desired) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, StoreEvent.Type.ARRIVAL);
+        e.customer = customer;
+        e.desired = desired;
+        // Наличные фиксируем сейчас: к моменту рендера покупатель мог уже расплатиться
+        e.amountMinor = customer.getCashMinor();
+        publish(seq);
+    }
+
+    @Override
+    public void onReserved(Product product, int quantity) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, StoreEvent.Type.RESERVED);
+        e.productId = product.getProductId();
+        e.quantity = quantity;
+        publish(seq);
+    }
+
+    @Override
+    public void onReserveFailed(Product product, boolean afterRestock) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, StoreEvent.Type.RESERVE_FAILED);
+        e.productId = product.getProductId();
+        e.afterRestock = afterRestock;
+        publish(seq);
+    }
+
+    @Override
+    public void onOutOfStock(Product product, int have, int want) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, StoreEvent.Type.OUT_OF_STOCK);
+        e.productId = product.getProductId();
+        e.have = have;
+        e.quantity = want;
+        publish(seq);
+    }
+
+    @Override
+    public void onRestocked(Product product, int amount) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, StoreEvent.Type.RESTOCKED);
+        e.productId = product.getProductId();
+        e.quantity = amount;
+        publish(seq);
+    }
+
+    @Override
+    public void onSkipped(Product product) {
+        long seq = claim();
+        if (seq < 0) return;
+        slot(seq, StoreEvent.Type.SKIPPED).productId = product.getProductId();
+        publish(seq);
+    }
+
+    @Override
+    public void onEmptyBasket() {
+        long seq = claim();
+        if (seq < 0) return;
+        slot(seq, StoreEvent.Type.EMPTY_BASKET);
+        publish(seq);
+    }
+
+    @Override
+    public void onTotal(Basket basket) {
+        basketEvent(StoreEvent.Type.TOTAL, basket);
+    }
+
+    @Override
+    public void onDeclined(Basket basket) {
+        basketEvent(StoreEvent.Type.DECLINED, basket);
+    }
+
+    @Override
+    public void onPaid(Basket basket, Payment register) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, StoreEvent.Type.PAID);
+        e.basketId = basket.getBasketId();
+        e.amountMinor = basket.getTotalMinor();
+        // Итог на момент оплаты, а не вывода; без блокировки полос кассы
+        e.registerMinor = register.peekTotalMinor();
+        publish(seq);
+    }
+
+    @Override
+    public void onInsufficientFunds(Basket basket) {
+        basketEvent(StoreEvent.Type.ROLLED_BACK, basket);
+    }
+
+    @Override
+    public void onHoldExpired(Basket basket) {
+        basketEvent(StoreEvent.Type.HOLD_EXPIRED, basket);
+    }
+
+    private void basketEvent(StoreEvent.Type type, Basket basket) {
+        long seq = claim();
+        if (seq < 0) return;
+        StoreEvent e = slot(seq, type);
+        e.basketId = basket.getBasketId();
+        e.amountMinor = basket.getTotalMinor();
+        publish(seq);
+    }
+
+    // --- кольцевой буфер (много писателей, один читатель)
+
+    /**
+     * Занимает следующий слот; -1, если событие отброшено по переполнению. BLOCK ждёт писателя,
+     * только пока тот жив: после его падения место уже не освободится.
+     */
+    private long claim() {
+        while (true) {
+            long seq = claimed.get();
+            if (seq - consumed >= slots.length) {
+                if (policy == OverflowPolicy.DROP || closed || writer.getState() == Thread.State.TERMINATED) {
+                    dropped.increment();
+                    return -1L;
+                }
+                wakeWriter();
+                LockSupport.parkNanos(10_000L);
+                continue;
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) return seq;
+        }
+    }
+
+    private StoreEvent slot(long seq, StoreEvent.Type type) {
+        StoreEvent e = slots[(int) seq & mask];
+        e.clear();
+        e.type = type;
+        e.timeNanos = System.nanoTime();
+        return e;
+    }
+
+    private void publish(long seq) {
+        published.set((int) seq & mask, seq);
+        if (writerParked) wakeWriter();
+    }
+
+    private void wakeWriter() {
+        LockSupport.unpark(writer);
+    }
+
+    private void writeLoop() {
+        try {
+            drainLoop();
+        } catch (RuntimeException | Error e) {
+            // Дальше события отбрасываются и считаются в getDropped(), а не ждут освобождения буфера
+            closed = true;
+            System.err.println(writer.getName() + " failed: " + e);
+            throw e;
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        long next = 0;
+        while (true) {
+            int n = 0;
+            while (n < batchSize && published.get((int) next & mask) == next) {
+                StoreEvent e = slots[(int) next & mask];
+                if (renderer != null) renderer.render(e, sb);
+                next++;
+                n++;
+            }
+            if (n > 0) {
+                consumed = next;
+                if (sb.length() > 0) {
+                    out.print(sb);
+                    out.flush();
+                    sb.setLength(0);
+                }
+                continue;
+            }
+            if (closed && next == claimed.get()) return;
+            writerParked = true;
+            if (published.get((int) next & mask) != next && !closed) LockSupport.park(this);
+            writerParked = false;
+        }
+    }
+}
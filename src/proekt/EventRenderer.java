@@ -0,0 +1,5 @@
+package proekt;
+
+public interface EventRenderer {
+    void render(StoreEvent event, StringBuilder out);
+}
@@ -0,0 +1,210 @@
+package proekt;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Партии скоропортящихся товаров для Warehouse: по каждому товару — партии (день истечения, количество),
+ * упорядоченные от самой ранней, и колесо таймеров по дням истечения.
+ * Учитываются только датированные единицы; сумма партий товара не больше его наличия на складе,
+ * остальное — бессрочный товар, который при FEFO уходит последним.
+ */
+final class ExpiryLots {
+
+    private static final int WHEEL_DAYS = 64;
+
+    private final ConcurrentIntIntMap slotById = new ConcurrentIntIntMap(); // id -> слот + 1
+    private volatile Lots[] slots = new Lots[16];
+    private volatile int count;
+
+    private final TimerWheel wheel;
+    private final IntIntMap retry = new IntIntMap(); // товары, чьи просроченные единицы были в резерве
+
+    /**
+     * @param lastExpiredDay последний день, товары которого уже считаются просроченными (вчера)
+     */
+    ExpiryLots(int lastExpiredDay) {
+        wheel = new TimerWheel(WHEEL_DAYS, lastExpiredDay);
+    }
+
+    /**
+     * Партии одного товара. Все методы — под монитором объекта.
+     */
+    static final class Lots {
+        private int[] days = new int[4];
+        private int[] quantities = new int[4];
+        private int count;
+        private volatile int earliest = Integer.MAX_VALUE;
+
+        /**
+         * Самый ранний день истечения (Integer.MAX_VALUE — партий нет); читается без блокировки.
+         */
+        int earliestDay() {
+            return earliest;
+        }
+
+        /**
+         * true — появилась новая партия (а не добавка к партии с тем же днём).
+         */
+        synchronized boolean add(int day, int quantity) {
+            int i = count;
+            while (i > 0 && days[i - 1] > day) i--;
+            if (i > 0 && days[i - 1] == day) {
+                quantities[i - 1] += quantity;
+                return false;
+            }
+            if (count == days.length) {
+                days = Arrays.copyOf(days, count * 2);
+                quantities = Arrays.copyOf(quantities, count * 2);
+            }
+            System.arraycopy(days, i, days, i + 1, count - i);
+            System.arraycopy(quantities, i, quantities, i + 1, count - i);
+            days[i] = day;
+            quantities[i] = quantity;
+            count++;
+            earliest = days[0];
+            return true;
+        }
+
+        /**
+         * FEFO: снимает до quantity единиц, начиная с самых ранних партий; возвращает снятое.
+         */
+        synchronized int consume(int quantity) {
+            return removeFront(Integer.MAX_VALUE, quantity);
+        }
+
+        synchronized int quantityBefore(int day) {
+            int sum = 0;
+            for (int i = 0; i < count && days[i] < day; i++) sum += quantities[i];
+            return sum;
+        }
+
+        /**
+         * Снимает до quantity единиц из партий с днём < day.
+         */
+        synchronized int removeBefore(int day, int quantity) {
+            return removeFront(day, quantity);
+        }
+
+        synchronized void collect(int productId, int fromDay, int toDay, List<StockLot> result) {
+            for (int i = 0; i < count && days[i] <= toDay; i++) {
+                if (days[i] >= fromDay) {
+                    result.add(new StockLot(productId, LocalDate.ofEpochDay(days[i]), quantities[i]));
+                }
+            }
+        }
+
+        private int removeFront(int beforeDay, int quantity) {
+            int removed = 0;
+            int drop = 0;
+            while (drop < count && removed < quantity && days[drop] < beforeDay) {
+                int take = Math.min(quantities[drop], quantity - removed);
+                removed += take;
+                quantities[drop] -= take;
+                if (quantities[drop] > 0) break;
+                drop++;
+            }
+            if (drop > 0) {
+                System.arraycopy(days, drop, days, 0, count - drop);
+                System.arraycopy(quantities, drop, quantities, 0, count - drop);
+                count -= drop;
+                earliest = count == 0 ? Integer.MAX_VALUE : days[0];
+            }
+            return removed;
+        }
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Партии товара или null, если датированного товара с таким id никогда не было.
+     */
+    Lots get(int productId) {
+        int slot = slotById.get(productId);
+        return slot == 0 ? null : slots[slot - 1];
+    }
+
+    void add(int productId, int quantity, int day) {
+        Lots lots = get(productId);
+        if (lots == null) lots = create(productId);
+        if (lots.add(day, quantity)) {
+            synchronized (wheel) {
+                if (day <= wheel.getCursor()) {
+                    retry.put(productId, 1);
+                } else {
+                    wheel.schedule(day, productId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Просроченные единицы товара сейчас в резерве — проверить его снова при следующем проходе.
+     */
+    void retry(int productId) {
+        synchronized (wheel) {
+            retry.put(productId, 1);
+        }
+    }
+
+    /**
+     * Продвигает колесо до lastExpiredDay и передаёт (по одному разу) товары, у которых
+     * могли появиться просроченные партии. Работа пропорциональна сработавшим записям.
+     */
+    void advance(int lastExpiredDay, IntConsumer productIds) {
+        IntIntMap due;
+        synchronized (wheel) {
+            if (lastExpiredDay <= wheel.getCursor() && retry.isEmpty()) return;
+            due = new IntIntMap(retry.size() + 8);
+            IntIntMap target = due;
+            wheel.advance(lastExpiredDay, id -> target.put((int) id, 1));
+            retry.forEach(target::put);
+            retry.clear();
+        }
+        due.forEach((id, ignored) -> productIds.accept(id));
+    }
+
+    /**
+     * Партии с днём истечения в [fromDay, toDay]; просматриваются только корзины колеса этих дней.
+     */
+    List<StockLot> expiringBetween(int fromDay, int toDay) {
+        IntIntMap ids = new IntIntMap();
+        synchronized (wheel) {
+            wheel.forEachBetween(fromDay, toDay, id -> ids.put((int) id, 1));
+        }
+        List<StockLot> result = new ArrayList<>();
+        ids.forEach((id, ignored) -> {
+            Lots lots = get(id);
+            if (lots != null) lots.collect(id, fromDay, toDay, result);
+        });
+        result.sort((a, b) -> a.getExpireDate().compareTo(b.getExpireDate()));
+        return result;
+    }
+
+    List<StockLot> lotsOf(int productId) {
+        List<StockLot> result = new ArrayList<>();
+        Lots lots = get(productId);
+        if (lots != null) lots.collect(productId, Integer.MIN_VALUE, Integer.MAX_VALUE, result);
+        return result;
+    }
+
+    private synchronized Lots create(int productId) {
+        int slot = slotById.get(productId);
+        if (slot != 0) return slots[slot - 1];
+        Lots[] arr = slots;
+        if (count == arr.length) {
+            arr = Arrays.copyOf(arr, count * 2);
+        }
+        Lots lots = new Lots();
+        arr[count] = lots;
+        slots = arr;
+        count++;
+        slotById.addAndGet(productId, count);
+        return lots;
+    }
+}
@@ -1,3 +1,5 @@
+package proekt;
+
 public enum Gender {
     MALE, FEMALE, OTHER
 }
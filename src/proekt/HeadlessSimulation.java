@@ -0,0 +1,206 @@
+package proekt;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Неинтерактивный нагрузочный режим: N рабочих потоков прогоняют заданное число
+ * покупателей через Store.serve с автоматической политикой вместо вопросов в консоль.
+ * В конце печатает пропускную способность и p50/p99 задержки обслуживания
+ * (LatencyHistogram: память не зависит от числа покупателей).
+ */
+public class HeadlessSimulation {
+
+    private static final long HOLD_EXPIRY_PERIOD_MILLIS = 100;
+    private static final long REPLENISH_PERIOD_MILLIS = 100;
+
+    private final Store store;
+    private final CustomerGenerator generator;
+    private final CheckoutPolicy policy;
+    private final int threads;
+    private final long customers;
+    private final double arrivalRatePerSec; // 0 = без ограничения
+    private final CheckoutListener listener;
+
+    private final AtomicLong nextTicket = new AtomicLong();
+    private final LongAdder[] results = new LongAdder[CheckoutResult.values().length];
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public HeadlessSimulation(Store store, CheckoutPolicy policy, int threads,
+                              long customers, double arrivalRatePerSec) {
+        this(store, policy, threads, customers, arrivalRatePerSec, CheckoutListener.NONE);
+    }
+
+    public HeadlessSimulation(Store store, CheckoutPolicy policy, int threads,
+                              long customers, double arrivalRatePerSec, CheckoutListener listener) {
+        this.store = store;
+        this.listener = listener;
+        this.generator = MainGame.customerGenerator(store.getProductCatalog());
+        this.policy = policy;
+        this.threads = Math.max(1, threads);
+        this.customers = Math.max(0, customers);
+        this.arrivalRatePerSec = Math.max(0, arrivalRatePerSec);
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    public void run() throws InterruptedException {
+        long periodNanos = arrivalRatePerSec > 0 ? (long) (1_000_000_000L / arrivalRatePerSec) : 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService holdExpiry = store.getHolds().start(HOLD_EXPIRY_PERIOD_MILLIS);
+
+        long start = System.nanoTime();
+        // Свой генератор на поток, выданный по порядку: поток каждого рабочего воспроизводим по seed
+        CustomerGenerator[] generators = new CustomerGenerator[threads];
+        for (int t = 0; t < threads; t++) generators[t] = generator.split();
+        for (int t = 0; t < threads; t++) {
+            CustomerGenerator g = generators[t];
+            pool.execute(() -> workerLoop(g, start, periodNanos));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long elapsed = System.nanoTime() - start;
+        holdExpiry.shutdownNow();
+        if (listener instanceof EventPipeline events) events.close();
+
+        printReport(elapsed);
+    }
+
+    private void workerLoop(CustomerGenerator generator, long start, long periodNanos) {
+        long ticket;
+        while ((ticket = nextTicket.getAndIncrement()) < customers) {
+            AuthUser customer = generator.randomCustomer();
+            List<ProductQuantity> desired = generator.randomCart(customer);
+
+            long arrival = System.nanoTime();
+            if (periodNanos > 0) {
+                // Задержку считаем от запланированного прихода, а не от фактического старта,
+                // иначе отставание генератора прячет очередь (coordinated omission).
+                arrival = start + ticket * periodNanos;
+                long wait;
+                while ((wait = arrival - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+            }
+
+            CheckoutResult result = store.serve(customer, desired, policy, listener);
+            latency.record(System.nanoTime() - arrival);
+            results[result.ordinal()].increment();
+        }
+    }
+
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        LatencyHistogram.Snapshot checkouts = latency.snapshot();
+        System.out.println("========================================");
+        System.out.println("= HEADLESS SIMULATION");
+        System.out.println("========================================");
+        System.out.printf("Threads: %d, customers: %d, arrival rate: %s%n", threads, checkouts.getCount(),
+                arrivalRatePerSec > 0 ? arrivalRatePerSec + "/s" : "unlimited");
+        WorkloadProfile profile = generator.getProfile();
+        System.out.println("Workload: " + profile.getName() + ", zipf=" + profile.getZipf()
+                + ", seed=" + generator.getSeed());
+        System.out.printf("Elapsed: %.3f s, throughput: %.0f customers/s%n", seconds, checkouts.getCount() / seconds);
+        System.out.printf("Checkout latency: p50=%.1f us, p99=%.1f us, max=%.1f us%n",
+                checkouts.getValueAtPercentile(50) / 1e3, checkouts.getValueAtPercentile(99) / 1e3,
+                checkouts.getMax() / 1e3);
+        for (CheckoutResult r : CheckoutResult.values()) {
+            System.out.println("  " + r + ": " + results[r.ordinal()].sum());
+        }
+        Warehouse warehouse = store.getWarehouse();
+        System.out.println("Warehouse: on-hand=" + warehouse.getSize() + " reserved=" + warehouse.getReserved()
+                + " available=" + warehouse.getAvailable() + " free=" + warehouse.getFreeSpace()
+                + " expired=" + warehouse.getExpired());
+        System.out.println("Holds: active=" + store.getHolds().getActive() + " expired=" + store.getHolds().getExpired()
+                + " (ttl " + store.getHolds().getTtlMillis() + " ms)");
+        Payment.Snapshot register = store.getPaymentBox().snapshot();
+        System.out.println("Cash in register: " + register.getTotalCash()
+                + " (" + register.getTransactions() + " payments over " + store.getPaymentBox().getLanes() + " lanes)");
+        if (listener instanceof EventPipeline events) {
+            System.out.println("Events: published=" + events.getPublished() + " dropped=" + events.getDropped());
+        }
+    }
+
+    /**
+     * Аргументы: [customers] [threads] [ratePerSec] [restockBatch] [capacity] [quiet|console|file:path]
+     * -Dproekt.replenishment=true — докупку на кассе заменяет фоновый ReplenishmentService.
+     * -Dproekt.metrics.file=<path> — отчёт StoreMetrics в файл по ходу прогона и в конце.
+     * -Dproekt.analytics=true — оплаты идут в SalesAnalytics, в конце печатается top товаров за минуту.
+     * -Dproekt.stock.file=<path> — остатки в файле за кэшем горячих товаров (см. MainGame.warehouse).
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        long customers = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        int restockBatch = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int capacity = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+        String output = args.length > 5 ? args[5] : "quiet";
+
+        TransactionJournal journal = MainGame.openJournal();
+        Store store = new Store(MainGame.warehouse(capacity), MainGame.holdTtlMillis());
+        long loadStart = System.nanoTime();
+        MainGame.initAssortment(store, journal);
+        store.getWarehouse().evictExpired();
+        System.out.printf("Assortment: %d products loaded in %d ms%n",
+                store.getProductCatalog().size(), (System.nanoTime() - loadStart) / 1_000_000);
+        CheckoutPolicy policy = new AutoCheckoutPolicy(true, restockBatch, true);
+        ReplenishmentService replenishment = null;
+        ScheduledExecutorService restocker = null;
+        if (Boolean.getBoolean("proekt.replenishment")) {
+            replenishment = MainGame.replenishmentService(store);
+            policy = replenishment.policy(policy);
+            restocker = replenishment.start(REPLENISH_PERIOD_MILLIS);
+        }
+        ScheduledExecutorService metricsDump = MainGame.startMetricsDump(store);
+        ScheduledExecutorService writeBehind = MainGame.startWriteBehind(store);
+        SalesAnalytics analytics = null;
+        if (Boolean.getBoolean("proekt.analytics")) {
+            analytics = new SalesAnalytics(store.getProductCatalog(), MainGame.SALES_QUEUE * 16).start();
+            store.setAnalytics(analytics);
+        }
+        new HeadlessSimulation(store, policy, threads, customers, rate, eventOutput(store, output)).run();
+        if (analytics != null) {
+            analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.SLIDING, 10)
+                    .print(System.out, store.getProductCatalog());
+            System.out.println("  dropped on overflow: " + analytics.getDropped());
+            analytics.close();
+        }
+        if (metricsDump != null) {
+            metricsDump.shutdownNow();
+            store.getMetrics().dump(store, Path.of(System.getProperty("proekt.metrics.file")));
+        }
+        if (replenishment != null) {
+            restocker.shutdownNow();
+            System.out.println("Replenishment: " + MainGame.replenishmentSummary(replenishment, store.getWarehouse()));
+        }
+        if (journal != null) {
+            journal.close();
+            System.out.println("Journal: last seq=" + journal.getLastSeq() + " durable=" + journal.getDurableSeq());
+        }
+        if (writeBehind != null) {
+            writeBehind.shutdownNow();
+            MainGame.closeStockStore(store);
+            System.out.println("Stock store: " + store.getWarehouse().getStockStore());
+        }
+    }
+
+    /**
+     * quiet — события не формируются вовсе; console/file — асинхронный вывод,
+     * лишнее при переполнении отбрасывается, чтобы вывод не тормозил кассы.
+     */
+    private static CheckoutListener eventOutput(Store store, String output) throws FileNotFoundException {
+        if ("quiet".equalsIgnoreCase(output)) return CheckoutListener.NONE;
+        boolean toFile = output.startsWith("file:");
+        PrintStream out = toFile
+                ? new PrintStream(new BufferedOutputStream(new FileOutputStream(output.substring(5))), false)
+                : System.out;
+        EventRenderer renderer = new TextEventRenderer(store.getProductCatalog(), !toFile);
+        return new EventPipeline(64 * 1024, EventPipeline.OverflowPolicy.DROP, renderer, out, 1024).start();
+    }
+}
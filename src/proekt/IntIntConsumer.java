@@ -0,0 +1,6 @@
+package proekt;
+
+@FunctionalInterface
+public interface IntIntConsumer {
+    void accept(int key, int value);
+}
@@ -0,0 +1,225 @@
+package proekt;
+
+import java.util.*;
+
+/**
+ * Хеш-таблица int -> int с открытой адресацией (линейное пробирование) без упаковки
+ * в Integer и без объектов-узлов. Не потокобезопасна — для корзины одного покупателя.
+ * Ключ Integer.MIN_VALUE зарезервирован под пустую ячейку.
+ */
+public class IntIntMap {
+
+    static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private Map<Integer, Integer> view;
+
+    public IntIntMap() {
+        this(8);
+    }
+
+    public IntIntMap(int expectedSize) {
+        int cap = tableSizeFor(expectedSize);
+        keys = new int[cap];
+        values = new int[cap];
+        Arrays.fill(keys, FREE);
+        mask = cap - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return keys[indexOf(key)] != FREE;
+    }
+
+    public int get(int key, int defaultValue) {
+        int i = indexOf(key);
+        return keys[i] == FREE ? defaultValue : values[i];
+    }
+
+    public void put(int key, int value) {
+        int i = indexOf(key);
+        if (keys[i] == FREE) {
+            keys[i] = key;
+            if (++size > (mask + 1) >> 1) {
+                values[i] = value;
+                rehash(keys.length << 1);
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Прибавляет delta к значению (отсутствующий ключ считается 0) и возвращает новое значение.
+     */
+    public int addTo(int key, int delta) {
+        int i = indexOf(key);
+        if (keys[i] == FREE) {
+            put(key, delta);
+            return delta;
+        }
+        return values[i] += delta;
+    }
+
+    /**
+     * Удаляет ключ; возвращает прежнее значение или defaultValue.
+     */
+    public int remove(int key, int defaultValue) {
+        int i = indexOf(key);
+        if (keys[i] == FREE) return defaultValue;
+        int old = values[i];
+        shiftBack(i);
+        size--;
+        return old;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    public void forEach(IntIntConsumer action) {
+        int[] k = keys;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != FREE) action.accept(k[i], values[i]);
+        }
+    }
+
+    /**
+     * Копирует пары в массивы (не короче size()) в порядке обхода forEach; возвращает их число.
+     */
+    public int copyTo(int[] keysOut, int[] valuesOut) {
+        int[] k = keys;
+        int n = 0;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] == FREE) continue;
+            keysOut[n] = k[i];
+            valuesOut[n++] = values[i];
+        }
+        return n;
+    }
+
+    /**
+     * Представление только для чтения для старого кода, работающего с Map.
+     */
+    public Map<Integer, Integer> asMap() {
+        if (view == null) view = new ReadOnlyView();
+        return view;
+    }
+
+    private int indexOf(int key) {
+        if (key == FREE) throw new IllegalArgumentException("Reserved key: " + key);
+        int i = mix(key) & mask;
+        while (keys[i] != FREE && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    // Удаление без "надгробий": сдвигаем хвост кластера на освободившееся место
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == FREE) break;
+            int home = mix(k) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = FREE;
+    }
+
+    private void rehash(int newCap) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[newCap];
+        values = new int[newCap];
+        Arrays.fill(keys, FREE);
+        mask = newCap - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k == FREE) continue;
+            int j = mix(k) & mask;
+            while (keys[j] != FREE) j = (j + 1) & mask;
+            keys[j] = k;
+            values[j] = oldValues[i];
+        }
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int cap = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        return Math.max(8, cap);
+    }
+
+    private class ReadOnlyView extends AbstractMap<Integer, Integer> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer k && k != FREE && IntIntMap.this.containsKey(k);
+        }
+
+        @Override
+        public Integer get(Object key) {
+            if (!containsKey(key)) return null;
+            return IntIntMap.this.get((Integer) key, 0);
+        }
+
+        @Override
+        public Set<Entry<Integer, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < keys.length && keys[from] == FREE) from++;
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        public Entry<Integer, Integer> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            Entry<Integer, Integer> e = new SimpleImmutableEntry<>(keys[next], values[next]);
+                            next = advance(next + 1);
+                            return e;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package proekt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек в наносекундах в духе HdrHistogram: логарифмические диапазоны,
+ * каждый разбит на 128 равных корзин, поэтому любое значение хранится с погрешностью < 1%
+ * при фиксированной памяти. Значения до 256 нс — точно, сверху — до ~68 с (больше — в последнюю корзину).
+ * Запись — один атомарный инкремент в полосе своего потока (полосы как в Payment), без блокировок
+ * и аллокаций; snapshot() складывает полосы.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;     // корзин на диапазон
+    private static final int LINEAR = SUB_COUNT * 2;        // 0..255 — по одной корзине на значение
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    // count, sum, max + выравнивание, затем корзины
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MAX = 2;
+    private static final int HEADER = 16;
+
+    private final AtomicLongArray[] lanes;
+
+    public LatencyHistogram() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        lanes = new AtomicLongArray[Integer.highestOneBit(Math.max(1, cpus * 2 - 1)) << 1];
+        for (int i = 0; i < lanes.length; i++) lanes[i] = new AtomicLongArray(HEADER + BUCKETS);
+    }
+
+    public void record(long nanos) {
+        long v = Math.min(Math.max(0, nanos), MAX_VALUE);
+        AtomicLongArray lane = lanes[laneOf(Thread.currentThread())];
+        lane.getAndIncrement(HEADER + index(v));
+        lane.getAndIncrement(COUNT);
+        lane.getAndAdd(SUM, v);
+        long max;
+        while (v > (max = lane.get(MAX)) && !lane.compareAndSet(MAX, max, v)) {
+            // другой поток полосы успел записать своё значение — проверяем снова
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray lane : lanes) {
+            for (int i = 0; i < BUCKETS; i++) counts[i] += lane.get(HEADER + i);
+            count += lane.get(COUNT);
+            sum += lane.get(SUM);
+            max = Math.max(max, lane.get(MAX));
+        }
+        return new Snapshot(counts, count, sum, max);
+    }
+
+    /**
+     * Неизменяемый срез гистограммы. Полосы читаются без блокировки, поэтому при идущей записи
+     * count может немного расходиться с суммой корзин; перцентили считаются по корзинам.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long total;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            long t = 0;
+            for (long c : counts) t += c;
+            this.total = t;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Наибольшее значение, эквивалентное percentile-му (0..100) по точности гистограммы.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestEquivalent(i), max);
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                    count, getMean() / 1e3, getValueAtPercentile(50) / 1e3, getValueAtPercentile(90) / 1e3,
+                    getValueAtPercentile(99) / 1e3, getValueAtPercentile(99.9) / 1e3, max / 1e3);
+        }
+    }
+
+    static int index(long v) {
+        if (v < LINEAR) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB_COUNT + (int) (v >>> shift) - SUB_COUNT;
+    }
+
+    static long highestEquivalent(int index) {
+        if (index < LINEAR) return index;
+        int shift = (index - LINEAR) / SUB_COUNT + 1;
+        long mantissa = (index - LINEAR) % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    private int laneOf(Thread thread) {
+        long id = thread.threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 40) & (lanes.length - 1);
+    }
+}
@@ -0,0 +1,582 @@
+package proekt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Обновлённый MainGame:
+ * - System.in читает один поток; команды, меняющие магазин, и ответы продавца идут в очередь
+ *   потока симуляции, который ждёт на ней между покупателями (без опроса со sleep);
+ *   команды только для чтения отвечают сразу по снимкам без блокировок.
+ * - по умолчанию игра стала быстрее (интервал 5s). Запуск с "slow" аргументом вернёт 60s.
+ * - аргумент "headless" запускает нагрузочный режим без консоли (см. HeadlessSimulation),
+ *   "cluster" — то же для нескольких магазинов на своих партициях (см. StoreCluster, ClusterSimulation).
+ *   "shoppers" — много покупателей в зале сразу, по виртуальному потоку на каждого (см. ShopperSimulation).
+ * - -Dproekt.assortment=<file.csv|file.bin> загружает каталог и остатки из файла
+ *   (-Dproekt.capacity=<n> — вместимость склада для больших ассортиментов).
+ * - -Dproekt.holdTtlMillis=<ms> — срок резерва корзины без оплаты, потом товар возвращается на склад.
+ * - нехватку товара пополняет фоновый ReplenishmentService, вопросов «Restock now?» больше нет;
+ *   оплату по умолчанию подтверждает касса сама (-Dproekt.askConfirm=true — спрашивать продавца).
+ * - команда metrics — задержки, исходы, выручка по категориям и конкуренция потоков;
+ *   -Dproekt.metrics.file=<path> дописывает тот же отчёт в файл раз в -Dproekt.metrics.periodMillis
+ *   (по умолчанию 10 с), -Dproekt.metrics=false отключает сбор.
+ * - -Dproekt.workload=standard|uniform, -Dproekt.workload.zipf=<s>, -Dproekt.workload.seed=<n> —
+ *   форма потока покупателей (см. WorkloadProfile); с одним seed поток повторяется в точности.
+ * - команда sales — выручка и штуки по категориям и психотипам и top товаров за последнюю
+ *   минуту/час/сутки или с их начала (см. SalesAnalytics).
+ * - цены считает PricingEngine (скидка покупателя, акции на категории, скидки за количество);
+ *   команды price и promo меняют цены и акции на ходу.
+ * - -Dproekt.journal=<dir> сохраняет склад и кассу в журнал и восстанавливает их при запуске
+ *   (-Dproekt.journal.sync=true — подтверждать оплату только после записи на диск).
+ */
+public class MainGame {
+
+    private static final Scanner SCANNER = new Scanner(System.in);
+    private static final int CATALOG_PREVIEW = 20;
+    private static final long REPLENISH_PERIOD_MILLIS = 1_000L;
+    static final int SALES_QUEUE = 4096;
+
+    private final Store store;
+    private final Warehouse warehouse;
+    private final Payment paymentBox;
+    private final CustomerGenerator generator;
+    // Вывод покупателей идёт через асинхронный конвейер; перед вопросом в консоль он сбрасывается
+    private final EventPipeline events;
+    private final TransactionJournal journal;
+    private final ReplenishmentService replenishment;
+    private final SalesAnalytics analytics;
+    private volatile boolean running = true;
+    private final long intervalMillis;
+
+    // Команды, меняющие магазин, и ответы на вопросы выполняет поток симуляции между покупателями
+    private final LinkedBlockingQueue<Runnable> commands = new LinkedBlockingQueue<>();
+    // Вопрос продавцу, на который ждёт ответа поток симуляции (null — вопроса нет)
+    private final AtomicReference<Prompt> pendingPrompt = new AtomicReference<>();
+
+    private final boolean askConfirm = Boolean.getBoolean("proekt.askConfirm");
+
+    // Консольный режим: нехватку отдаём фоновому пополнению, покупатель продавца не ждёт
+    private final CheckoutPolicy consolePolicy = new CheckoutPolicy() {
+        @Override
+        public boolean shouldRestock(Product product, int have, int want) {
+            replenishment.signal(product.getProductId(), want);
+            return false;
+        }
+
+        @Override
+        public int restockAmount(Product product, int have, int want) {
+            return 0;
+        }
+
+        @Override
+        public boolean confirmPayment(Basket basket) {
+            return !askConfirm || askYesNo("Confirm payment at register? (y/n): ");
+        }
+    };
+
+    public MainGame(long intervalMillis) throws IOException {
+        this.intervalMillis = intervalMillis;
+        this.journal = openJournal();
+        this.store = new Store(warehouse(Integer.getInteger("proekt.capacity", 200)), holdTtlMillis()); // стартовая вместимость
+        this.warehouse = store.getWarehouse();
+        this.paymentBox = store.getPaymentBox();
+        this.generator = customerGenerator(store.getProductCatalog());
+        this.events = new EventPipeline(1024, EventPipeline.OverflowPolicy.BLOCK,
+                new TextEventRenderer(store.getProductCatalog(), true), System.out, 256).start();
+        this.replenishment = replenishmentService(store);
+        this.analytics = new SalesAnalytics(store.getProductCatalog(), SALES_QUEUE).start();
+        store.setAnalytics(analytics);
+        initCatalogAndStock();
+    }
+
+    private void initCatalogAndStock() throws IOException {
+        initAssortment(store, journal);
+
+        printlnBanner("STORE INITIALIZED", Ansi.CYAN);
+        System.out.println("Catalog:");
+        ProductCatalog catalog = store.getProductCatalog();
+        for (int i = 0; i < Math.min(CATALOG_PREVIEW, catalog.size()); i++) {
+            Product p = catalog.getAt(i);
+            System.out.println("  " + p.getProductId() + ": " + p.getName() + " - " + p.getPrice());
+        }
+        if (catalog.size() > CATALOG_PREVIEW) System.out.println("  ... and " + (catalog.size() - CATALOG_PREVIEW) + " more");
+        System.out.println();
+        System.out.println("Warehouse: " + warehouse);
+        System.out.println("Interval between customers: " + (intervalMillis/1000) + "s (default fast)");
+        System.out.println("Type 'help' and press Enter for commands.");
+        System.out.println();
+    }
+
+    /**
+     * Поток симуляции: между покупателями ждёт на очереди команд до прихода следующего,
+     * поэтому команда выполняется сразу, а в простое поток спит, ничего не опрашивая.
+     */
+    public void run() {
+        Thread inputThread = new Thread(this::consoleCommandLoop, "console-loop");
+        inputThread.setDaemon(true);
+        inputThread.start();
+        ScheduledExecutorService holdExpiry = store.getHolds().start(1_000L);
+        ScheduledExecutorService restocker = replenishment.start(REPLENISH_PERIOD_MILLIS);
+        ScheduledExecutorService metricsDump = startMetricsDump(store);
+        ScheduledExecutorService writeBehind = startWriteBehind(store);
+
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        long nextArrival = System.nanoTime();
+        try {
+            while (running) {
+                long wait = nextArrival - System.nanoTime();
+                if (wait <= 0) {
+                    simulateCustomerArrival();
+                    nextArrival = System.nanoTime() + intervalNanos;
+                    continue;
+                }
+                Runnable command = commands.poll(wait, TimeUnit.NANOSECONDS);
+                if (command != null) command.run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        holdExpiry.shutdownNow();
+        restocker.shutdownNow();
+        if (metricsDump != null) metricsDump.shutdownNow();
+        if (writeBehind != null) writeBehind.shutdownNow();
+        events.close();
+        analytics.close();
+        if (journal != null) journal.close();
+        try {
+            closeStockStore(store);
+        } catch (IOException e) {
+            System.err.println("Stock file close failed: " + e.getMessage());
+        }
+        printlnBanner("GAME ENDED", Ansi.RED);
+        System.out.println("Final warehouse: " + warehouse);
+        System.out.println("Cash in register: " + paymentBox.getTotalCash());
+    }
+
+    /**
+     * Единственный читатель System.in. Пока открыт вопрос продавцу, y/n — ответ на него,
+     * остальное — команды. Команды только для чтения выполняются сразу в этом потоке по
+     * снимкам без блокировок; меняющие магазин уходят в очередь потока симуляции.
+     */
+    private void consoleCommandLoop() {
+        while (running) {
+            if (pendingPrompt.get() == null) System.out.print(Ansi.BLUE + "> " + Ansi.RESET);
+            String line;
+            try {
+                if (!SCANNER.hasNextLine()) break;
+                line = SCANNER.nextLine().trim();
+            } catch (NoSuchElementException e) { break; }
+            Prompt prompt = pendingPrompt.get();
+            if (prompt != null) {
+                String answer = line.toLowerCase();
+                if (answer.equals("y") || answer.equals("yes") || answer.equals("n") || answer.equals("no")) {
+                    if (pendingPrompt.compareAndSet(prompt, null)) {
+                        boolean yes = answer.startsWith("y");
+                        commands.add(() -> prompt.answer.complete(yes));
+                    }
+                    continue;
+                }
+            }
+            if (!line.isEmpty()) dispatch(line);
+            if (prompt != null) {
+                System.out.print(Ansi.BLUE + (line.isEmpty() ? "Please input y or n. " : "") + prompt.text + Ansi.RESET);
+            }
+        }
+        // Ввод закрыт: на открытый вопрос ответить уже некому
+        Prompt prompt = pendingPrompt.getAndSet(null);
+        if (prompt != null) commands.add(() -> prompt.answer.complete(false));
+    }
+
+    private void dispatch(String line) {
+        switch (line.split("\\s+")[0].toLowerCase()) {
+            case "restock":
+            case "price":
+            case "promo":
+            case "exit":
+                commands.add(() -> handleCommand(line));
+                break;
+            default:
+                handleCommand(line);
+        }
+    }
+
+    private void handleCommand(String line) {
+        String[] parts = line.split("\\s+");
+        String cmd = parts[0].toLowerCase();
+
+        switch (cmd) {
+            case "help":
+                printHelp();
+                break;
+            case "status":
+                System.out.println(Ansi.YELLOW + "Warehouse: " + Ansi.RESET + warehouse);
+                System.out.println(Ansi.YELLOW + "Stock: " + Ansi.RESET + "on-hand=" + warehouse.getSize()
+                        + " reserved=" + warehouse.getReserved() + " available=" + warehouse.getAvailable()
+                        + " (holds active=" + store.getHolds().getActive() + ", expired=" + store.getHolds().getExpired() + ")");
+                System.out.println(Ansi.YELLOW + "Replenishment: " + Ansi.RESET + replenishmentSummary(replenishment, warehouse));
+                System.out.println(Ansi.YELLOW + "Register: " + Ansi.RESET + paymentBox.peek().getTotalCash());
+                break;
+            case "metrics":
+                events.flush();
+                store.getMetrics().print(System.out, store);
+                System.out.println("Replenishment: " + replenishmentSummary(replenishment, warehouse));
+                break;
+            case "products":
+                store.getProductCatalog().forEach(p -> System.out.println("  " + p));
+                break;
+            case "restock":
+                if (parts.length < 3) {
+                    System.out.println("Usage: restock <productId> <amount>");
+                } else {
+                    try {
+                        int pid = Integer.parseInt(parts[1]);
+                        int amount = Integer.parseInt(parts[2]);
+                        if (amount <= 0) {
+                            System.out.println("Amount must be > 0");
+                            break;
+                        }
+                        Product product = store.findProduct(pid);
+                        if (product == null) {
+                            System.out.println("Product id=" + pid + " not found");
+                            break;
+                        }
+                        if (!warehouse.addLot(pid, amount, product.getExpireDate())) {
+                            System.out.println("Not enough space or expired lot, restock rejected");
+                            break;
+                        }
+                        System.out.println("Restocked productId=" + pid + " by " + amount);
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Number format error");
+                    }
+                }
+                break;
+            case "price":
+                if (parts.length < 3) {
+                    System.out.println("Usage: price <productId> <amount>");
+                    break;
+                }
+                try {
+                    Product product = store.findProduct(Integer.parseInt(parts[1]));
+                    if (product == null) {
+                        System.out.println("Product id=" + parts[1] + " not found");
+                        break;
+                    }
+                    BigDecimal price = new BigDecimal(parts[2]);
+                    if (price.signum() < 0) {
+                        System.out.println("Price must be >= 0");
+                        break;
+                    }
+                    product = store.getProductCatalog().setPrice(product.getProductId(), Money.toMinor(price));
+                    System.out.println(product.getName() + " now costs " + product.getPrice());
+                } catch (NumberFormatException ex) {
+                    System.out.println("Number format error");
+                }
+                break;
+            case "sales":
+                handleSales(parts);
+                break;
+            case "promo":
+                handlePromo(parts);
+                break;
+            case "expiring":
+                try {
+                    int days = parts.length > 1 ? Integer.parseInt(parts[1]) : 3;
+                    List<StockLot> lots = warehouse.expiringWithin(days);
+                    if (lots.isEmpty()) System.out.println("Nothing expires within " + days + " day(s)");
+                    for (StockLot lot : lots) {
+                        Product p = store.findProduct(lot.getProductId());
+                        System.out.println("  " + lot.getExpireDate() + "  " + lot.getQuantity() + " x "
+                                + (p == null ? "#" + lot.getProductId() : p.getName()));
+                    }
+                } catch (NumberFormatException ex) {
+                    System.out.println("Number format error");
+                }
+                break;
+            case "exit":
+                running = false;
+                break;
+            default:
+                System.out.println("Unknown command. Type 'help'.");
+        }
+    }
+
+    /**
+     * sales [minute|hour|day] [sliding|tumbling] [top]; по умолчанию — последний час, top-10.
+     */
+    private void handleSales(String[] parts) {
+        SalesAnalytics.Window window = SalesAnalytics.Window.HOUR;
+        SalesAnalytics.Mode mode = SalesAnalytics.Mode.SLIDING;
+        int top = 10;
+        try {
+            for (int i = 1; i < parts.length; i++) {
+                String arg = parts[i].toUpperCase();
+                if (arg.chars().allMatch(Character::isDigit)) {
+                    top = Integer.parseInt(arg);
+                } else if (arg.equals("SLIDING") || arg.equals("TUMBLING")) {
+                    mode = SalesAnalytics.Mode.valueOf(arg);
+                } else {
+                    window = SalesAnalytics.Window.valueOf(arg);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.out.println("Usage: sales [minute|hour|day] [sliding|tumbling] [top]");
+            return;
+        }
+        events.flush();
+        try {
+            long start = System.nanoTime();
+            SalesAnalytics.Report report = analytics.query(window, mode, top);
+            long micros = (System.nanoTime() - start) / 1_000;
+            report.print(System.out, store.getProductCatalog());
+            System.out.println("  (" + micros + " us" + (analytics.getDropped() > 0
+                    ? ", " + analytics.getDropped() + " sales dropped on overflow" : "") + ")");
+        } catch (IllegalStateException e) {
+            System.out.println("Sales report unavailable: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handlePromo(String[] parts) {
+        PricingEngine pricing = store.getPricing();
+        try {
+            if (parts.length == 2 && parts[1].equalsIgnoreCase("clear")) {
+                pricing.clearPromotions();
+            } else if (parts.length == 4 && parts[1].equalsIgnoreCase("qty")) {
+                pricing.setQuantityBreak(Integer.parseInt(parts[2]), Double.parseDouble(parts[3]) / 100);
+            } else if (parts.length == 3) {
+                pricing.setCategoryPromotion(Category.valueOf(parts[1].toUpperCase()), Double.parseDouble(parts[2]) / 100);
+            } else if (parts.length != 1) {
+                System.out.println("Usage: promo <category> <percent> | promo qty <min> <percent> | promo clear");
+                return;
+            }
+            System.out.println(pricing);
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException тоже сюда: неверное число, категория или процент
+            System.out.println("Invalid promo: " + ex.getMessage());
+        }
+    }
+
+    private void printHelp() {
+        printlnBanner("HELP", Ansi.GREEN);
+        System.out.println(" help              - show this help");
+        System.out.println(" status            - show warehouse, replenishment + register");
+        System.out.println(" metrics           - latency, outcomes, revenue, contention");
+        System.out.println(" products          - list products");
+        System.out.println(" restock id amt    - restock product by amount");
+        System.out.println(" sales [window]    - sales by category/type + top SKUs: sales [minute|hour|day] [sliding|tumbling] [top]");
+        System.out.println(" price id amount   - change product price");
+        System.out.println(" promo ...         - promo <category> <percent> | promo qty <min> <percent> | promo clear");
+        System.out.println(" expiring [days]   - lots expiring soon (markdown candidates)");
+        System.out.println(" exit              - exit game");
+        System.out.println();
+    }
+
+    private void simulateCustomerArrival() {
+        int expired = warehouse.evictExpired();
+        if (expired > 0) {
+            events.flush();
+            System.out.println(Ansi.RED + "Written off " + expired + " expired item(s)" + Ansi.RESET);
+        }
+        AuthUser customer = generator.randomCustomer();
+        store.serve(customer, generator.randomCart(customer), consolePolicy, events);
+    }
+
+    /**
+     * Вопрос продавцу 'y/n' из потока симуляции. Ответ приходит через очередь команд, поэтому,
+     * пока продавец думает, поток продолжает выполнять остальные команды.
+     */
+    private boolean askYesNo(String text) {
+        events.flush();
+        Prompt prompt = new Prompt(text);
+        pendingPrompt.set(prompt);
+        System.out.print(Ansi.BLUE + text + Ansi.RESET);
+        try {
+            while (running && !prompt.answer.isDone()) commands.take().run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pendingPrompt.compareAndSet(prompt, null);
+        }
+        return prompt.answer.getNow(false);
+    }
+
+    private static final class Prompt {
+        final String text;
+        final CompletableFuture<Boolean> answer = new CompletableFuture<>();
+
+        Prompt(String text) {
+            this.text = text;
+        }
+    }
+
+    private static void printlnBanner(String title, String color) {
+        String bar = "========================================";
+        System.out.println(color + bar);
+        System.out.printf("= %s%n", title);
+        System.out.println(bar + Ansi.RESET);
+    }
+
+    static TransactionJournal openJournal() throws IOException {
+        String dir = System.getProperty("proekt.journal");
+        if (dir == null || dir.isBlank()) return null;
+        return new TransactionJournal(Path.of(dir), 256 * 1024, 4, 2,
+                Boolean.getBoolean("proekt.journal.sync"));
+    }
+
+    /**
+     * Сколько корзина держит резерв без оплаты: -Dproekt.holdTtlMillis (по умолчанию 2 минуты).
+     */
+    static long holdTtlMillis() {
+        return Long.getLong("proekt.holdTtlMillis", Store.DEFAULT_HOLD_TTL_MILLIS);
+    }
+
+    /**
+     * Генератор покупателей по -Dproekt.workload* (по умолчанию профиль standard и случайный seed).
+     */
+    static CustomerGenerator customerGenerator(ProductCatalog catalog) {
+        WorkloadProfile profile = WorkloadProfile.named(System.getProperty("proekt.workload", "standard"));
+        String zipf = System.getProperty("proekt.workload.zipf");
+        if (zipf != null) profile = profile.withZipf(Double.parseDouble(zipf));
+        Long seed = Long.getLong("proekt.workload.seed");
+        return new CustomerGenerator(catalog, profile, seed != null ? seed : new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Фоновое пополнение: поставка через -Dproekt.replenishment.leadMillis (по умолчанию 2 с),
+     * партия на 30 с спроса, страховой запас 3, не меньше 5 шт.
+     */
+    static ReplenishmentService replenishmentService(Store store) {
+        return new ReplenishmentService(store.getWarehouse(), store.getProductCatalog(),
+                Long.getLong("proekt.replenishment.leadMillis", 2_000L), 30_000L, 3, 5);
+    }
+
+    static String replenishmentSummary(ReplenishmentService replenishment, Warehouse warehouse) {
+        return String.format("orders=%d ordered=%d delivered=%d (%.1f/s) rejected=%d on-order=%d stockout rate=%.2f%% (%d of %d lines)",
+                replenishment.getOrders(), replenishment.getOrderedUnits(), replenishment.getDeliveredUnits(),
+                replenishment.getRestockThroughput(), replenishment.getRejectedUnits(), replenishment.getOnOrder(),
+                replenishment.getStockoutRate() * 100, warehouse.getStockouts(), warehouse.getReserveRequests());
+    }
+
+    /**
+     * Периодическая запись метрик в -Dproekt.metrics.file, если он задан (иначе null).
+     */
+    static ScheduledExecutorService startMetricsDump(Store store) {
+        String file = System.getProperty("proekt.metrics.file");
+        if (file == null || file.isBlank()) return null;
+        return store.getMetrics().startDump(store, Path.of(file), Long.getLong("proekt.metrics.periodMillis", 10_000L));
+    }
+
+    /**
+     * Склад: с -Dproekt.stock.file остатки лежат в этом файле на -Dproekt.stock.products товаров
+     * (по умолчанию миллион) за кэшем горячих на -Dproekt.stock.cache (по умолчанию 64K), резервы —
+     * в файле .reserved за таким же кэшем, расход — прямо в файле .consumed; иначе всё в памяти.
+     * Файлы создаются заново при каждом запуске: остатки восстанавливает журнал.
+     */
+    static Warehouse warehouse(int capacity) throws IOException {
+        String file = System.getProperty("proekt.stock.file");
+        if (file == null || file.isBlank()) return new Warehouse(capacity);
+        Path path = Path.of(file);
+        long products = Long.getLong("proekt.stock.products", 1_000_000L);
+        int cache = Integer.getInteger("proekt.stock.cache", 64 * 1024);
+        List<Closeable> opened = new ArrayList<>(3);
+        try {
+            CachedStockStore stock = new CachedStockStore(open(opened, path, products), cache);
+            CachedStockStore reserved = new CachedStockStore(open(opened, Path.of(file + ".reserved"), products), cache);
+            StockFile consumed = open(opened, Path.of(file + ".consumed"), products);
+            return new Warehouse(capacity, Clock.systemDefaultZone(), stock, reserved, consumed);
+        } catch (IOException | RuntimeException e) {
+            for (Closeable c : opened) {
+                try {
+                    c.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static StockFile open(List<Closeable> opened, Path path, long products) throws IOException {
+        StockFile file = StockFile.create(path, products);
+        opened.add(file);
+        return file;
+    }
+
+    /**
+     * Одна отложенная запись для всех кэшей склада (null, если склад в памяти).
+     */
+    static ScheduledExecutorService startWriteBehind(Store store) {
+        List<CachedStockStore> caches = new ArrayList<>(2);
+        for (StockStore s : stockStores(store.getWarehouse())) {
+            if (s instanceof CachedStockStore cached) caches.add(cached);
+        }
+        if (caches.isEmpty()) return null;
+        return CachedStockStore.start(Long.getLong("proekt.stock.writeBehindMillis", 100L), caches);
+    }
+
+    static void closeStockStore(Store store) throws IOException {
+        for (StockStore s : stockStores(store.getWarehouse())) {
+            if (s instanceof Closeable c) c.close();
+        }
+    }
+
+    private static List<StockStore> stockStores(Warehouse warehouse) {
+        return List.of(warehouse.getStockStore(), warehouse.getReservedStore(), warehouse.getConsumedStore());
+    }
+
+    /**
+     * Ассортимент из -Dproekt.assortment, если задан, иначе встроенный набор товаров.
+     */
+    static void initAssortment(Store store, TransactionJournal journal) throws IOException {
+        String file = System.getProperty("proekt.assortment");
+        if (file == null || file.isBlank()) {
+            store.initDefaultAssortment(journal);
+        } else {
+            store.loadAssortment(Path.of(file), journal, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long intervalMs = 5_000L; // faster by default (5 sec)
+        if (args.length > 0 && "slow".equalsIgnoreCase(args[0])) {
+            intervalMs = 60_000L; // slow mode
+        }
+        if (args.length > 0 && "headless".equalsIgnoreCase(args[0])) {
+            try {
+                HeadlessSimulation.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        if (args.length > 0 && "cluster".equalsIgnoreCase(args[0])) {
+            try {
+                ClusterSimulation.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        if (args.length > 0 && "shoppers".equalsIgnoreCase(args[0])) {
+            try {
+                ShopperSimulation.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        MainGame game = new MainGame(intervalMs);
+        game.run();
+    }
+}
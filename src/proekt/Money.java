@@ -0,0 +1,40 @@
+package proekt;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежные суммы внутри магазина хранятся как long в копейках/центах (SCALE знаков после запятой).
+ * BigDecimal остаётся только на границе API: при входе значение округляется по ROUNDING
+ * до SCALE знаков, при выходе строится BigDecimal с тем же масштабом.
+ * Переполнение long — ошибка (ArithmeticException), а не тихое заворачивание.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+    private Money() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) return 0L;
+        return amount.setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long multiply(long unitMinor, int quantity) {
+        return Math.multiplyExact(unitMinor, (long) quantity);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+}
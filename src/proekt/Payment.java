@@ -0,0 +1,278 @@
+package proekt;
+
+import java.math.BigDecimal;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Касса, разбитая на полосы (в духе LongAdder): каждый поток пишет в свою полосу,
+ * поэтому параллельные кассы не дерутся за одно поле. В полосе хранятся сумма
+ * в минимальных единицах (см. Money) и число оплат.
+ * Каждая полоса защищена своей спин-блокировкой на счётчике версии; snapshot() захватывает
+ * все полосы разом, поэтому видит согласованное состояние, а не сумму, «размазанную» по времени.
+ * Попутно полоса ведёт выручку по категориям товаров (для метрик): пишется под той же блокировкой,
+ * поэтому почти ничего не стоит; в журнал не попадает и после перезапуска начинается с нуля.
+ */
+public class Payment {
+
+    // version, amount, count, выручка по категориям + выравнивание до 128 байт против false sharing
+    private static final int STRIDE = 16;
+    private static final int VERSION = 0;
+    private static final int AMOUNT = 1;
+    private static final int COUNT = 2;
+    private static final int CATEGORY = 3;
+    private static final int CATEGORIES = Category.values().length;
+
+    private final int lanes;
+    private final AtomicLongArray cells;
+    private volatile Snapshot lastSnapshot;
+    private volatile StoreJournal journal = StoreJournal.NONE;
+    private volatile ContentionStats contention = ContentionStats.NONE;
+
+    public Payment() {
+        this(0L);
+    }
+
+    public Payment(BigDecimal totalCash) {
+        this(Money.toMinor(totalCash));
+    }
+
+    private Payment(long initialMinor) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.lanes = Integer.highestOneBit(Math.max(1, cpus * 2 - 1)) << 1;
+        this.cells = new AtomicLongArray(lanes * STRIDE);
+        cells.set(AMOUNT, initialMinor);
+        this.lastSnapshot = new Snapshot(initialMinor, new long[lanes], new long[CATEGORIES]);
+    }
+
+    public static final class Snapshot {
+        private final long totalMinor;
+        private final long[] laneTransactions;
+        private final long transactions;
+        private final long[] revenueByCategory;
+
+        private Snapshot(long totalMinor, long[] laneTransactions, long[] revenueByCategory) {
+            this.totalMinor = totalMinor;
+            this.laneTransactions = laneTransactions;
+            this.revenueByCategory = revenueByCategory;
+            long sum = 0;
+            for (long c : laneTransactions) sum += c;
+            this.transactions = sum;
+        }
+
+        public long getTotalMinor() {
+            return totalMinor;
+        }
+
+        public BigDecimal getTotalCash() {
+            return Money.toBigDecimal(totalMinor);
+        }
+
+        public long getTransactions() {
+            return transactions;
+        }
+
+        public long[] getLaneTransactions() {
+            return laneTransactions.clone();
+        }
+
+        /**
+         * Выручка категории с запуска (только оплаты, переданные с разбивкой по категориям).
+         */
+        public long getRevenueMinor(Category category) {
+            return revenueByCategory[category.ordinal()];
+        }
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setJournal(StoreJournal journal) {
+        this.journal = journal == null ? StoreJournal.NONE : journal;
+    }
+
+    public void setContentionStats(ContentionStats stats) {
+        this.contention = stats == null ? ContentionStats.NONE : stats;
+    }
+
+    public BigDecimal getTotalCash() {
+        return snapshot().getTotalCash();
+    }
+
+    public long getTotalMinor() {
+        return snapshot().getTotalMinor();
+    }
+
+    public void setTotalCash(BigDecimal totalCash) {
+        long value = Money.toMinor(totalCash);
+        restoreTotalMinor(value);
+        journal.cashSet(value);
+    }
+
+    /**
+     * Восстановление итога при запуске (из журнала) — без записи в журнал.
+     */
+    void restoreTotalMinor(long value) {
+        lockAll();
+        try {
+            for (int lane = 0; lane < lanes; lane++) cells.set(lane * STRIDE + AMOUNT, 0L);
+            cells.set(AMOUNT, value);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public void addAmount(BigDecimal amount) {
+        if (amount != null) addMinor(Money.toMinor(amount));
+    }
+
+    public void addMinor(long amountMinor) {
+        addMinor(amountMinor, null);
+    }
+
+    /**
+     * Оплата с разбивкой суммы по категориям (индекс — Category.ordinal()); byCategory может быть null.
+     */
+    public void addMinor(long amountMinor, long[] byCategory) {
+        int base = laneOf(Thread.currentThread()) * STRIDE;
+        lock(base);
+        try {
+            cells.set(base + AMOUNT, Money.add(cells.get(base + AMOUNT), amountMinor));
+            cells.set(base + COUNT, cells.get(base + COUNT) + 1);
+            if (byCategory != null) {
+                for (int c = 0; c < CATEGORIES; c++) {
+                    if (byCategory[c] != 0) cells.set(base + CATEGORY + c, cells.get(base + CATEGORY + c) + byCategory[c]);
+                }
+            }
+        } finally {
+            unlock(base);
+        }
+        journal.paid(amountMinor);
+    }
+
+    /**
+     * Точный и согласованный итог: все полосы блокируются на время чтения.
+     */
+    public Snapshot snapshot() {
+        long total = 0;
+        long[] counts = new long[lanes];
+        long[] revenue = new long[CATEGORIES];
+        lockAll();
+        try {
+            for (int lane = 0; lane < lanes; lane++) {
+                total = Money.add(total, cells.get(lane * STRIDE + AMOUNT));
+                counts[lane] = cells.get(lane * STRIDE + COUNT);
+                for (int c = 0; c < CATEGORIES; c++) revenue[c] += cells.get(lane * STRIDE + CATEGORY + c);
+            }
+        } finally {
+            unlockAll();
+        }
+        Snapshot s = new Snapshot(total, counts, revenue);
+        lastSnapshot = s;
+        return s;
+    }
+
+    /**
+     * Итог без блокировок: каждая полоса читается оптимистично (версия до и после чтения одна
+     * и та же и чётная), так что ни одна оплата не видна наполовину; между полосами срез
+     * не атомарен. Для консоли и мониторинга — кассы этим чтением не останавливаются.
+     */
+    public Snapshot peek() {
+        long total = 0;
+        long[] counts = new long[lanes];
+        long[] revenue = new long[CATEGORIES];
+        long[] laneRevenue = new long[CATEGORIES];
+        for (int lane = 0; lane < lanes; lane++) {
+            int base = lane * STRIDE;
+            long amount;
+            long count;
+            while (true) {
+                long v = cells.get(base + VERSION);
+                if ((v & 1) == 0) {
+                    amount = cells.get(base + AMOUNT);
+                    count = cells.get(base + COUNT);
+                    for (int c = 0; c < CATEGORIES; c++) laneRevenue[c] = cells.get(base + CATEGORY + c);
+                    if (cells.get(base + VERSION) == v) break;
+                }
+                Thread.onSpinWait();
+            }
+            total = Money.add(total, amount);
+            counts[lane] = count;
+            for (int c = 0; c < CATEGORIES; c++) revenue[c] += laneRevenue[c];
+        }
+        return new Snapshot(total, counts, revenue);
+    }
+
+    /**
+     * Только итог кассы, так же оптимистично, как peek(), и без аллокаций — для частых чтений
+     * (например, в событие каждой оплаты).
+     */
+    public long peekTotalMinor() {
+        long total = 0;
+        for (int lane = 0; lane < lanes; lane++) {
+            int base = lane * STRIDE;
+            while (true) {
+                long v = cells.get(base + VERSION);
+                if ((v & 1) == 0) {
+                    long amount = cells.get(base + AMOUNT);
+                    if (cells.get(base + VERSION) == v) {
+                        total = Money.add(total, amount);
+                        break;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Последний агрегированный итог — чтение без блокировок, может отставать на период агрегации.
+     */
+    public Snapshot lastSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * Периодически пересчитывает lastSnapshot() в фоновом daemon-потоке.
+     */
+    public ScheduledExecutorService startAggregation(long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "payment-aggregator");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::snapshot, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    private int laneOf(Thread thread) {
+        long id = thread.threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 40) & (lanes - 1);
+    }
+
+    // Чётная версия — полоса свободна, нечётная — занята писателем или снимком
+    private void lock(int base) {
+        while (true) {
+            long v = cells.get(base + VERSION);
+            if ((v & 1) == 0 && cells.compareAndSet(base + VERSION, v, v + 1)) return;
+            contention.spin();
+            Thread.onSpinWait();
+        }
+    }
+
+    private void unlock(int base) {
+        cells.incrementAndGet(base + VERSION);
+    }
+
+    private void lockAll() {
+        for (int lane = 0; lane < lanes; lane++) lock(lane * STRIDE);
+    }
+
+    private void unlockAll() {
+        for (int lane = 0; lane < lanes; lane++) unlock(lane * STRIDE);
+    }
+}
@@ -0,0 +1,281 @@
+package proekt;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Итоговая цена строки корзины: базовая цена товара (Product.getPriceMinor()), скидка покупателя
+ * (AuthUser.sale), акция на категорию и скидка за количество. Скидки применяются по очереди,
+ * каждая к уже сниженной цене, с округлением до копейки (HALF_UP, как в Money).
+ *
+ * Правила на каждую строку не вычисляются: для каждого уровня покупателя (tier — его скидка
+ * в базисных пунктах, 1/100 процента) при первом обращении строится таблица цен по позициям
+ * каталога и порогам количества, и чекаут делает в ней один поиск на строку.
+ * Смена цены или замена товара (ProductCatalog.setPrice, add) пересчитывает в каждой таблице
+ * только строки этого товара. Смена акций перестраивает таблицы в потоке, который их меняет,
+ * и подменяет готовые: чекауты тем временем считают по прежним и каталог целиком не обходят.
+ * Памяти на таблицу — 8 байт на товар и порог, поэтому рассчитано на немного разных уровней
+ * скидок, а не на произвольную у каждого.
+ */
+public final class PricingEngine {
+
+    static final int BASIS = 10_000; // базисных пунктов в 100%
+    private static final int CATEGORIES = Category.values().length;
+
+    private final ProductCatalog catalog;
+    // Индекс — скидка уровня в базисных пунктах (0..BASIS): поиск без упаковки ключа в Integer
+    private final AtomicReferenceArray<PriceTable> tables = new AtomicReferenceArray<>(BASIS + 1);
+    private volatile PriceTable[] built = new PriceTable[0]; // те же таблицы списком; меняется под монитором
+    private volatile Rules rules = new Rules(new int[CATEGORIES], new int[0], new int[0]);
+
+    public PricingEngine(ProductCatalog catalog) {
+        this.catalog = catalog;
+        catalog.addChangeListener(this::productChanged);
+    }
+
+    /**
+     * Акции магазина; неизменяемы — каждое изменение заменяет объект целиком.
+     */
+    private static final class Rules {
+        final int[] categoryBasis;   // по Category.ordinal()
+        final int[] breakMinQuantity; // по возрастанию
+        final int[] breakBasis;
+
+        Rules(int[] categoryBasis, int[] breakMinQuantity, int[] breakBasis) {
+            this.categoryBasis = categoryBasis;
+            this.breakMinQuantity = breakMinQuantity;
+            this.breakBasis = breakBasis;
+        }
+    }
+
+    /**
+     * Цены для одного уровня покупателя. Берётся один раз на корзину (tableFor) и дальше
+     * только читается, в том числе из многих потоков; правила акций в ней те, что были
+     * при построении, а цены товаров подправляются на месте при их изменении.
+     */
+    public final class PriceTable {
+        private final int tierBasis;
+        private final Rules rules;
+        private final int levels;
+        private final int positions; // товаров каталога на момент построения
+        private final AtomicLongArray prices; // [позиция в каталоге * levels + уровень скидки за количество]
+
+        private PriceTable(int tierBasis, Rules rules) {
+            this.tierBasis = tierBasis;
+            this.rules = rules;
+            this.levels = rules.breakMinQuantity.length + 1;
+            this.positions = catalog.size();
+            this.prices = new AtomicLongArray(Math.multiplyExact(positions, levels));
+            // lazySet: таблицу публикует запись в tables, до неё читателей нет
+            for (int pos = 0; pos < positions; pos++) reprice(pos, false);
+        }
+
+        /**
+         * Цена за штуку товара при покупке quantity штук.
+         *
+         * @throws IllegalArgumentException если товара нет в каталоге
+         */
+        public long unitPriceMinor(int productId, int quantity) {
+            int pos = catalog.indexOf(productId);
+            if (pos < 0) throw new IllegalArgumentException("Product id=" + productId + " is not priced");
+            int level = 0;
+            int[] thresholds = rules.breakMinQuantity;
+            while (level < thresholds.length && quantity >= thresholds[level]) level++;
+            // Товар добавлен после построения таблицы: считаем по её правилам на месте
+            if (pos >= positions) return priceOf(catalog.getAt(pos), level);
+            return prices.get(pos * levels + level);
+        }
+
+        public int getTierBasis() {
+            return tierBasis;
+        }
+
+        private void reprice(int pos, boolean published) {
+            Product p = catalog.getAt(pos);
+            int base = pos * levels;
+            for (int level = 0; level < levels; level++) {
+                long price = priceOf(p, level);
+                if (published) prices.set(base + level, price);
+                else prices.lazySet(base + level, price);
+            }
+        }
+
+        private long priceOf(Product p, int level) {
+            long price = discount(discount(p.getPriceMinor(), tierBasis), rules.categoryBasis[categoryOf(p).ordinal()]);
+            return level == 0 ? price : discount(price, rules.breakBasis[level - 1]);
+        }
+    }
+
+    /**
+     * Таблица цен для уровня этого покупателя.
+     */
+    public PriceTable tableFor(AuthUser customer) {
+        return tableFor(tierOf(customer.getSale()));
+    }
+
+    PriceTable tableFor(int tierBasis) {
+        PriceTable table = tables.get(tierBasis);
+        if (table != null) return table;
+        synchronized (this) {
+            table = tables.get(tierBasis);
+            if (table == null) {
+                // Первое обращение уровня; дальше его таблицу только правят и подменяют
+                table = new PriceTable(tierBasis, rules);
+                tables.set(tierBasis, table);
+                PriceTable[] next = Arrays.copyOf(built, built.length + 1);
+                next[built.length] = table;
+                built = next;
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Цена за штуку для покупателя; для одной строки — в чекауте берите tableFor() на всю корзину.
+     */
+    public long unitPriceMinor(AuthUser customer, Product product, int quantity) {
+        return tableFor(customer).unitPriceMinor(product.getProductId(), quantity);
+    }
+
+    /**
+     * Акция на категорию: share — доля скидки (0.1 = 10%), 0 отменяет акцию.
+     */
+    public synchronized void setCategoryPromotion(Category category, double share) {
+        Rules r = rules;
+        int[] categoryBasis = r.categoryBasis.clone();
+        categoryBasis[category.ordinal()] = toBasis(share);
+        replaceRules(new Rules(categoryBasis, r.breakMinQuantity, r.breakBasis));
+    }
+
+    public double getCategoryPromotion(Category category) {
+        return (double) rules.categoryBasis[category.ordinal()] / BASIS;
+    }
+
+    /**
+     * Скидка share на строку от minQuantity штук (к цене после скидок покупателя и категории).
+     * Порог с тем же minQuantity заменяется, share = 0 его удаляет; действует наибольший достигнутый порог.
+     */
+    public synchronized void setQuantityBreak(int minQuantity, double share) {
+        if (minQuantity < 2) throw new IllegalArgumentException("Quantity break starts from 2 items: " + minQuantity);
+        Rules r = rules;
+        int basis = toBasis(share);
+        int i = Arrays.binarySearch(r.breakMinQuantity, minQuantity);
+        int[] min;
+        int[] off;
+        if (i >= 0 && basis == 0) {
+            min = remove(r.breakMinQuantity, i);
+            off = remove(r.breakBasis, i);
+        } else if (i >= 0) {
+            min = r.breakMinQuantity;
+            off = r.breakBasis.clone();
+            off[i] = basis;
+        } else if (basis == 0) {
+            return;
+        } else {
+            int at = -i - 1;
+            min = insert(r.breakMinQuantity, at, minQuantity);
+            off = insert(r.breakBasis, at, basis);
+        }
+        replaceRules(new Rules(r.categoryBasis, min, off));
+    }
+
+    /**
+     * Отменяет все акции на категории и скидки за количество.
+     */
+    public synchronized void clearPromotions() {
+        replaceRules(new Rules(new int[CATEGORIES], new int[0], new int[0]));
+    }
+
+    /**
+     * Уровень покупателя: его скидка в базисных пунктах, ограниченная 0..100%.
+     */
+    static int tierOf(double sale) {
+        if (!(sale > 0)) return 0;
+        return (int) Math.min(BASIS, Math.round(sale * BASIS));
+    }
+
+    /**
+     * Цена со скидкой basis базисных пунктов; скидка округляется до копейки HALF_UP.
+     */
+    static long discount(long priceMinor, int basis) {
+        if (basis == 0) return priceMinor;
+        return priceMinor - (Math.multiplyExact(priceMinor, (long) basis) + BASIS / 2) / BASIS;
+    }
+
+    @Override
+    public String toString() {
+        Rules r = rules;
+        StringBuilder sb = new StringBuilder("PricingEngine{categories=[");
+        boolean any = false;
+        for (Category c : Category.values()) {
+            int basis = r.categoryBasis[c.ordinal()];
+            if (basis == 0) continue;
+            if (any) sb.append(", ");
+            sb.append(c).append(" -").append(percent(basis));
+            any = true;
+        }
+        sb.append("], quantity=[");
+        for (int i = 0; i < r.breakMinQuantity.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(r.breakMinQuantity[i]).append("+ -").append(percent(r.breakBasis[i]));
+        }
+        return sb.append("], tiers cached=").append(built.length).append('}').toString();
+    }
+
+    /**
+     * Вызывается под монитором движка. Новые таблицы строятся здесь, а не в чекауте;
+     * каждая подменяет прежнюю одной записью, так что корзина видит либо старые правила, либо новые.
+     */
+    private void replaceRules(Rules next) {
+        rules = next;
+        PriceTable[] rebuilt = new PriceTable[built.length];
+        for (int i = 0; i < rebuilt.length; i++) {
+            rebuilt[i] = new PriceTable(built[i].tierBasis, next);
+            tables.set(rebuilt[i].tierBasis, rebuilt[i]);
+        }
+        built = rebuilt;
+    }
+
+    /**
+     * Товар на позиции pos добавлен, заменён или переоценён (ProductCatalog.addChangeListener):
+     * пересчитываются только его строки. Цена берётся из каталога заново, поэтому порядок
+     * уведомлений о двух быстрых правках одного товара неважен.
+     */
+    private void productChanged(int pos) {
+        if (built.length == 0) return; // загрузка каталога до первого чекаута
+        synchronized (this) {
+            for (PriceTable table : built) {
+                if (pos < table.positions) table.reprice(pos, true);
+            }
+        }
+    }
+
+    private static int toBasis(double share) {
+        if (!(share >= 0 && share <= 1)) throw new IllegalArgumentException("Discount must be 0..1: " + share);
+        return (int) Math.round(share * BASIS);
+    }
+
+    private static String percent(int basis) {
+        return basis % 100 == 0 ? basis / 100 + "%" : basis / 100.0 + "%";
+    }
+
+    private static int[] insert(int[] a, int at, int value) {
+        int[] r = new int[a.length + 1];
+        System.arraycopy(a, 0, r, 0, at);
+        r[at] = value;
+        System.arraycopy(a, at, r, at + 1, a.length - at);
+        return r;
+    }
+
+    private static int[] remove(int[] a, int at) {
+        int[] r = new int[a.length - 1];
+        System.arraycopy(a, 0, r, 0, at);
+        System.arraycopy(a, at + 1, r, at, a.length - at - 1);
+        return r;
+    }
+
+    private static Category categoryOf(Product p) {
+        return p.getCategory() == null ? Category.OTHER : p.getCategory();
+    }
+}
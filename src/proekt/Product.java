@@ -0,0 +1,74 @@
+package proekt;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Товар каталога. Неизменяем, поэтому его можно читать из любых потоков без синхронизации;
+ * правка — новый объект (withPrice) на месте старого в каталоге (ProductCatalog.setPrice, add).
+ */
+public final class Product {
+
+    private final int productId;
+    private final String name;
+    private final Category category;
+    private final long priceMinor;
+    private final LocalDate expireDate;
+    private final String description;
+
+    public Product(int productId, String name, Category category,
+                   BigDecimal price, LocalDate expireDate, String description) {
+        this(productId, name, category, Money.toMinor(price), expireDate, description);
+    }
+
+    /**
+     * Цена сразу в минимальных единицах — для массовой загрузки каталога (см. CatalogLoader).
+     */
+    public Product(int productId, String name, Category category,
+                   long priceMinor, LocalDate expireDate, String description) {
+        this.productId = productId;
+        this.name = name;
+        this.category = category;
+        this.priceMinor = priceMinor;
+        this.expireDate = expireDate;
+        this.description = description;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public BigDecimal getPrice() {
+        return Money.toBigDecimal(priceMinor);
+    }
+
+    /**
+     * Цена в минимальных единицах валюты (см. Money) — для расчётов без BigDecimal.
+     */
+    public long getPriceMinor() {
+        return priceMinor;
+    }
+
+    /**
+     * Тот же товар с другой ценой.
+     */
+    public Product withPriceMinor(long priceMinor) {
+        return new Product(productId, name, category, priceMinor, expireDate, description);
+    }
+
+    public LocalDate getExpireDate() {
+        return expireDate;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
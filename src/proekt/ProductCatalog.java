@@ -0,0 +1,227 @@
+package proekt;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Каталог товаров с индексами:
+ * - по id — IntIntMap id -> позиция в массиве, O(1);
+ * - по категории — EnumMap списков;
+ * - по сроку годности — TreeMap, диапазонные запросы за O(log n + k);
+ * - по началу названия (без учёта регистра) — TreeMap, O(log n + k).
+ * Индексы по категории, сроку и названию строятся лениво, при первом запросе к ним:
+ * массовая загрузка миллионов товаров платит только за массив и индекс по id.
+ * Заполняется до начала торговли; одновременные add() и чтения не поддерживаются.
+ * Чтобы изменить название, категорию или срок товара, добавьте новый объект Product с тем же id.
+ * Цену можно менять и во время торговли (setPrice): Product неизменяем, и правка подменяет
+ * объект целиком, так что читатель видит либо старый товар, либо новый.
+ */
+public class ProductCatalog {
+
+    private Product[] products;
+    private int size;
+    private final IntIntMap positionById;
+    private final EnumMap<Category, List<Product>> byCategory = new EnumMap<>(Category.class);
+    private final TreeMap<LocalDate, List<Product>> byExpireDate = new TreeMap<>();
+    private final TreeMap<String, List<Product>> byName = new TreeMap<>();
+    private volatile boolean indexed;
+    private volatile long version;
+    private final List<IntConsumer> changeListeners = new CopyOnWriteArrayList<>();
+
+    public ProductCatalog() {
+        this(16);
+    }
+
+    public ProductCatalog(int expectedSize) {
+        products = new Product[Math.max(1, expectedSize)];
+        positionById = new IntIntMap(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Добавляет товар; товар с тем же id заменяется.
+     */
+    public void add(Product product) {
+        int pos = positionById.get(product.getProductId(), -1);
+        if (pos >= 0) {
+            if (indexed) unindex(products[pos]);
+        } else {
+            if (size == products.length) products = Arrays.copyOf(products, size * 2);
+            pos = size++;
+            positionById.put(product.getProductId(), pos);
+        }
+        products[pos] = product;
+        if (indexed) index(product);
+        version++; // пишет только загрузчик каталога, см. описание класса
+        changed(pos);
+    }
+
+    /**
+     * Новая цена товара во время торговли; возвращает обновлённый товар или null, если его нет.
+     * Индексы не перестраиваются: ключи (название, категория, срок) у товара те же.
+     */
+    public Product setPrice(int productId, long priceMinor) {
+        int pos;
+        Product updated;
+        synchronized (this) {
+            pos = positionById.get(productId, -1);
+            if (pos < 0) return null;
+            Product old = products[pos];
+            updated = old.withPriceMinor(priceMinor);
+            products[pos] = updated;
+            if (indexed) {
+                replaceIn(byCategory.get(categoryOf(old)), old, updated);
+                if (old.getExpireDate() != null) replaceIn(byExpireDate.get(old.getExpireDate()), old, updated);
+                if (old.getName() != null) replaceIn(byName.get(old.getName().toLowerCase(Locale.ROOT)), old, updated);
+            }
+            version++; // volatile: кто увидел новую версию, увидит и новый товар
+        }
+        // Вне монитора каталога: слушатель берёт свои блокировки и читает товар через getAt
+        changed(pos);
+        return updated;
+    }
+
+    public void addAll(Collection<Product> batch) {
+        if (size + batch.size() > products.length) {
+            products = Arrays.copyOf(products, Math.max(size + batch.size(), size * 2));
+        }
+        for (Product p : batch) add(p);
+    }
+
+    /**
+     * Растёт при каждом add() и setPrice().
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Слушатель получает позицию (см. getAt) каждого добавленного, заменённого или переоценённого
+     * товара — так кэши по каталогу (PricingEngine) обновляют один товар, а не перестраиваются целиком.
+     * Вызывается в потоке, который менял каталог, после изменения.
+     */
+    public void addChangeListener(IntConsumer listener) {
+        changeListeners.add(listener);
+    }
+
+    public Product get(int productId) {
+        int pos = positionById.get(productId, -1);
+        return pos < 0 ? null : products[pos];
+    }
+
+    /**
+     * Порядковый номер товара (см. getAt) или -1; номер не меняется при замене товара.
+     */
+    public int indexOf(int productId) {
+        return positionById.get(productId, -1);
+    }
+
+    /**
+     * Товар по порядковому номеру 0..size-1 (например, для случайной выборки).
+     */
+    public Product getAt(int position) {
+        Objects.checkIndex(position, size);
+        return products[position];
+    }
+
+    public List<Product> getAll() {
+        return Collections.unmodifiableList(Arrays.asList(products).subList(0, size));
+    }
+
+    public void forEach(Consumer<Product> action) {
+        for (int i = 0; i < size; i++) action.accept(products[i]);
+    }
+
+    public List<Product> byCategory(Category category) {
+        ensureIndexed();
+        List<Product> list = byCategory.get(category);
+        return list == null ? List.of() : Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Товары со сроком годности в диапазоне [from, to] включительно.
+     */
+    public List<Product> expiringBetween(LocalDate from, LocalDate to) {
+        ensureIndexed();
+        List<Product> result = new ArrayList<>();
+        byExpireDate.subMap(from, true, to, true).values().forEach(result::addAll);
+        return result;
+    }
+
+    public List<Product> expiringBefore(LocalDate date) {
+        ensureIndexed();
+        List<Product> result = new ArrayList<>();
+        byExpireDate.headMap(date, false).values().forEach(result::addAll);
+        return result;
+    }
+
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        List<Product> result = new ArrayList<>();
+        if (prefix == null || limit <= 0) return result;
+        ensureIndexed();
+        String from = prefix.toLowerCase(Locale.ROOT);
+        for (List<Product> list : byName.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            for (Product p : list) {
+                result.add(p);
+                if (result.size() == limit) return result;
+            }
+        }
+        return result;
+    }
+
+    private void changed(int pos) {
+        for (IntConsumer listener : changeListeners) listener.accept(pos);
+    }
+
+    private void ensureIndexed() {
+        if (indexed) return;
+        synchronized (this) {
+            if (indexed) return;
+            for (int i = 0; i < size; i++) index(products[i]);
+            indexed = true;
+        }
+    }
+
+    private void index(Product p) {
+        byCategory.computeIfAbsent(categoryOf(p), c -> new ArrayList<>()).add(p);
+        if (p.getExpireDate() != null) {
+            byExpireDate.computeIfAbsent(p.getExpireDate(), d -> new ArrayList<>(1)).add(p);
+        }
+        if (p.getName() != null) {
+            byName.computeIfAbsent(p.getName().toLowerCase(Locale.ROOT), n -> new ArrayList<>(1)).add(p);
+        }
+    }
+
+    private void unindex(Product p) {
+        removeFrom(byCategory, categoryOf(p), p);
+        if (p.getExpireDate() != null) removeFrom(byExpireDate, p.getExpireDate(), p);
+        if (p.getName() != null) removeFrom(byName, p.getName().toLowerCase(Locale.ROOT), p);
+    }
+
+    private static <K> void removeFrom(Map<K, List<Product>> index, K key, Product p) {
+        List<Product> list = index.get(key);
+        if (list == null) return;
+        list.remove(p);
+        if (list.isEmpty()) index.remove(key);
+    }
+
+    // set() не структурное изменение: идущий по списку читатель не получит ConcurrentModificationException
+    private static void replaceIn(List<Product> list, Product old, Product updated) {
+        int i = list == null ? -1 : list.indexOf(old);
+        if (i >= 0) list.set(i, updated);
+    }
+
+    private static Category categoryOf(Product p) {
+        return p.getCategory() == null ? Category.OTHER : p.getCategory();
+    }
+}
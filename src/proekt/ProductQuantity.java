@@ -1,3 +1,5 @@
+package proekt;
+
 public class ProductQuantity {
 
     private int productId;
@@ -1,3 +1,5 @@
+package proekt;
+
 public enum PsychoType {
     CALM, AGGRESSIVE, ANXIOUS, NEUTRAL
 }
\ No newline at end of file
@@ -0,0 +1,306 @@
+package proekt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновое пополнение склада вместо вопросов «Restock now?» в пути покупателя.
+ *
+ * Раз в период tick():
+ * - принимает заказы, у которых прошёл срок поставки (leadTime);
+ * - оценивает спрос на товар: проданное (Warehouse.getConsumed) плюс недополученное покупателями
+ *   при нехватке (signal), с экспоненциальным сглаживанием — иначе при пустой полке спрос «пропадает»;
+ * - если доступное + уже заказанное опустилось до точки заказа (reorder point =
+ *   расход за время поставки + страховой запас), заказывает партию на coverMillis вперёд
+ *   (не меньше minOrder); для товара можно задать точку заказа и партию вручную;
+ * - все заказы тика вместе не превышают свободного места (getFreeSpace минус уже заказанное);
+ *   если места мало, первыми получают товары, которые закончатся раньше.
+ * Просматриваются товары, о нехватке которых сообщили кассы (signal), и очередной срез каталога,
+ * поэтому тик стоит O(срез), а не O(каталог).
+ */
+public class ReplenishmentService {
+
+    private static final int SCAN_PER_TICK = 65_536;
+    private static final double RATE_HALF_LIFE_NANOS = 10e9;
+
+    private final Warehouse warehouse;
+    private final ProductCatalog catalog;
+    private final long leadTimeNanos;
+    private final long coverNanos;
+    private final int safetyStock;
+    private final int minOrder;
+
+    // Состояние по позиции в каталоге; меняется только в tick() (под монитором)
+    private double[] rate = new double[0];          // единиц в наносекунду
+    private int[] lastConsumed = new int[0];
+    private int[] lastLost = new int[0];
+    private long[] lastVisit = new long[0];
+    private int[] onOrder = new int[0];
+    private long onOrderTotal;
+    private int scanCursor;
+    private final IntIntMap fixedReorderPoint = new IntIntMap();
+    private final IntIntMap fixedOrderQuantity = new IntIntMap();
+    private final ArrayDeque<Order> pending = new ArrayDeque<>();
+
+    // Сигналы нехватки от касс: позиция попадает в очередь один раз до ближайшего тика.
+    // Флаги растут вместе с каталогом на стороне касс; рост и сброс флага тиком — под signalLock,
+    // иначе флаг, сброшенный в старом массиве после копирования, навсегда остался бы поднятым
+    private volatile AtomicIntegerArray signaled;
+    private final Object signalLock = new Object();
+    private final ConcurrentLinkedQueue<Integer> signals = new ConcurrentLinkedQueue<>();
+    private final ConcurrentIntIntMap lostById = new ConcurrentIntIntMap(); // накопительно, с переполнением
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong orderedUnits = new AtomicLong();
+    private final AtomicLong deliveredUnits = new AtomicLong();
+    private final AtomicLong rejectedUnits = new AtomicLong();
+
+    private static final class Order {
+        final long dueNanos;
+        final int position;
+        final int quantity;
+
+        Order(long dueNanos, int position, int quantity) {
+            this.dueNanos = dueNanos;
+            this.position = position;
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * @param leadTimeMillis через сколько приходит заказ
+     * @param coverMillis    на сколько времени расхода рассчитана партия
+     * @param safetyStock    страховой запас сверх расхода за время поставки
+     * @param minOrder       минимальная партия
+     */
+    public ReplenishmentService(Warehouse warehouse, ProductCatalog catalog, long leadTimeMillis,
+                                long coverMillis, int safetyStock, int minOrder) {
+        this.warehouse = warehouse;
+        this.catalog = catalog;
+        this.leadTimeNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, leadTimeMillis));
+        this.coverNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, coverMillis));
+        this.safetyStock = Math.max(0, safetyStock);
+        this.minOrder = Math.max(1, minOrder);
+        this.signaled = new AtomicIntegerArray(catalog.size());
+    }
+
+    /**
+     * Политика для Store.serve: нехватка не докупается на месте, а передаётся сервису;
+     * подтверждение оплаты решает confirm.
+     */
+    public CheckoutPolicy policy(CheckoutPolicy confirm) {
+        return new CheckoutPolicy() {
+            @Override
+            public boolean shouldRestock(Product product, int have, int want) {
+                signal(product.getProductId(), want);
+                return false;
+            }
+
+            @Override
+            public int restockAmount(Product product, int have, int want) {
+                return 0;
+            }
+
+            @Override
+            public boolean confirmPayment(Basket basket) {
+                return confirm.confirmPayment(basket);
+            }
+        };
+    }
+
+    /**
+     * Касса сообщает о нехватке: покупателю не досталось quantity единиц; товар будет
+     * рассмотрен в ближайшем тике. Не блокирует.
+     */
+    public void signal(int productId, int quantity) {
+        if (quantity > 0) lostById.addAndGet(productId, quantity);
+        int pos = catalog.indexOf(productId);
+        if (pos < 0) return;
+        AtomicIntegerArray flags = signaled;
+        if (pos >= flags.length()) flags = growSignaled(pos + 1);
+        if (flags.compareAndSet(pos, 0, 1)) signals.add(pos);
+    }
+
+    private AtomicIntegerArray growSignaled(int size) {
+        synchronized (signalLock) {
+            AtomicIntegerArray flags = signaled;
+            if (flags.length() >= size) return flags;
+            AtomicIntegerArray grown = new AtomicIntegerArray(Math.max(Math.max(size, catalog.size()), flags.length() * 2));
+            // Флаг, поднятый в старом массиве во время копирования, потеряется — позиция лишь встанет в очередь дважды
+            for (int i = 0; i < flags.length(); i++) grown.set(i, flags.get(i));
+            signaled = grown;
+            return grown;
+        }
+    }
+
+    /**
+     * Фиксированные точка заказа и партия для товара вместо расчёта по темпу расхода.
+     */
+    public synchronized void setReorderPolicy(int productId, int reorderPoint, int orderQuantity) {
+        fixedReorderPoint.put(productId, Math.max(0, reorderPoint));
+        fixedOrderQuantity.put(productId, Math.max(1, orderQuantity));
+    }
+
+    public long getOrders() {
+        return orders.get();
+    }
+
+    public long getOrderedUnits() {
+        return orderedUnits.get();
+    }
+
+    public long getDeliveredUnits() {
+        return deliveredUnits.get();
+    }
+
+    /**
+     * Привезено, но не принято (нет места или у партии уже истёк срок).
+     */
+    public long getRejectedUnits() {
+        return rejectedUnits.get();
+    }
+
+    public synchronized long getOnOrder() {
+        return onOrderTotal;
+    }
+
+    /**
+     * Принято на склад единиц в секунду с момента создания сервиса.
+     */
+    public double getRestockThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : deliveredUnits.get() / seconds;
+    }
+
+    /**
+     * Доля строк резерва, которым не хватило товара (по счётчикам Warehouse).
+     */
+    public double getStockoutRate() {
+        long requests = warehouse.getReserveRequests();
+        return requests == 0 ? 0 : (double) warehouse.getStockouts() / requests;
+    }
+
+    public ScheduledExecutorService start(long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replenishment");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    public synchronized void tick() {
+        long now = System.nanoTime();
+        deliverDue(now);
+        int n = catalog.size();
+        if (n > rate.length) grow(n);
+        if (n == 0) return;
+
+        List<long[]> wanted = new ArrayList<>(); // {позиция, количество, «наносекунд до нуля»}
+        IntIntMap visited = new IntIntMap();
+        Integer pos;
+        while ((pos = signals.poll()) != null) {
+            synchronized (signalLock) {
+                signaled.set(pos, 0);
+            }
+            if (pos < n && !visited.containsKey(pos)) {
+                visited.put(pos, 1);
+                evaluate(pos, now, true, wanted);
+            }
+        }
+        int scan = Math.min(n, SCAN_PER_TICK);
+        for (int i = 0; i < scan; i++) {
+            int p = scanCursor;
+            scanCursor = scanCursor + 1 == n ? 0 : scanCursor + 1;
+            if (!visited.containsKey(p)) evaluate(p, now, false, wanted);
+        }
+        placeOrders(wanted, now);
+    }
+
+    private void evaluate(int pos, long now, boolean stockout, List<long[]> wanted) {
+        Product product = catalog.getAt(pos);
+        int id = product.getProductId();
+        int consumed = warehouse.getConsumed(id);
+        int lost = lostById.get(id);
+        if (lastVisit[pos] != 0) {
+            long elapsed = now - lastVisit[pos];
+            if (elapsed > 0) {
+                double instant = ((consumed - lastConsumed[pos]) + (lost - lastLost[pos])) / (double) elapsed;
+                double alpha = 1 - Math.pow(0.5, elapsed / RATE_HALF_LIFE_NANOS);
+                rate[pos] += alpha * (instant - rate[pos]);
+            }
+        }
+        lastConsumed[pos] = consumed;
+        lastLost[pos] = lost;
+        lastVisit[pos] = now;
+
+        boolean fixed = fixedReorderPoint.containsKey(id);
+        // Товар без спроса не заказываем, пока о нём не попросили
+        if (!fixed && !stockout && rate[pos] == 0) return;
+        int reorderPoint = fixed ? fixedReorderPoint.get(id, 0)
+                : (int) Math.min(Integer.MAX_VALUE, Math.ceil(rate[pos] * leadTimeNanos) + safetyStock);
+        int batch = fixed ? fixedOrderQuantity.get(id, minOrder)
+                : (int) Math.min(Integer.MAX_VALUE, Math.max(minOrder, Math.ceil(rate[pos] * coverNanos)));
+        long position = (long) warehouse.getAvailable(id) + onOrder[pos];
+        if (position > reorderPoint) return;
+        long quantity = Math.max(batch, reorderPoint - position + 1);
+        long untilEmpty = rate[pos] > 0 ? (long) (warehouse.getAvailable(id) / rate[pos]) : 0;
+        wanted.add(new long[]{pos, Math.min(Integer.MAX_VALUE, quantity), untilEmpty});
+    }
+
+    private void placeOrders(List<long[]> wanted, long now) {
+        if (wanted.isEmpty()) return;
+        long room = warehouse.getFreeSpace() - onOrderTotal;
+        long total = 0;
+        for (long[] w : wanted) total += w[1];
+        if (total > room) wanted.sort((a, b) -> Long.compare(a[2], b[2]));
+        for (long[] w : wanted) {
+            if (room <= 0) break;
+            int quantity = (int) Math.min(w[1], room);
+            int pos = (int) w[0];
+            room -= quantity;
+            onOrder[pos] += quantity;
+            onOrderTotal += quantity;
+            pending.add(new Order(now + leadTimeNanos, pos, quantity));
+            orders.incrementAndGet();
+            orderedUnits.addAndGet(quantity);
+        }
+        if (leadTimeNanos == 0) deliverDue(now);
+    }
+
+    private void deliverDue(long now) {
+        // срок поставки у всех одинаковый — очередь упорядочена по времени прихода
+        while (!pending.isEmpty() && pending.peek().dueNanos <= now) {
+            Order order = pending.poll();
+            onOrder[order.position] -= order.quantity;
+            onOrderTotal -= order.quantity;
+            Product product = catalog.getAt(order.position);
+            int accepted = Math.min(order.quantity, Math.max(0, warehouse.getFreeSpace()));
+            if (accepted > 0 && warehouse.addLot(product.getProductId(), accepted, product.getExpireDate())) {
+                deliveredUnits.addAndGet(accepted);
+                rejectedUnits.addAndGet(order.quantity - accepted);
+            } else {
+                rejectedUnits.addAndGet(order.quantity);
+            }
+        }
+    }
+
+    private void grow(int n) {
+        int cap = Math.max(n, rate.length * 2);
+        rate = Arrays.copyOf(rate, cap);
+        lastConsumed = Arrays.copyOf(lastConsumed, cap);
+        lastLost = Arrays.copyOf(lastLost, cap);
+        lastVisit = Arrays.copyOf(lastVisit, cap);
+        onOrder = Arrays.copyOf(onOrder, cap);
+    }
+}
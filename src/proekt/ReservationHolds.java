@@ -0,0 +1,323 @@
+package proekt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Резервы корзин как явные удержания (hold) со сроком жизни (TTL). Пока hold активен, товар
+ * зарезервирован на складе; если за TTL покупка не подтверждена и не отменена (продавец или
+ * покупатель «ушёл»), expireDue() возвращает товар в продажу.
+ *
+ * Сроки ведут колёса таймеров (TimerWheel), разбитые на полосы по потокам, как в Payment:
+ * open() — O(1) под блокировкой своей полосы, истечение — O(1) на hold. Корзин колеса
+ * хватает на весь TTL, поэтому каждая запись просматривается ровно один раз.
+ * Купленный или отменённый hold сразу снимается с полосы, а его таблица строк
+ * остаётся полосе для следующего open() — обычный чекаут таблиц не выделяет.
+ */
+public class ReservationHolds {
+
+    private static final int ACTIVE = 0;
+    private static final int COMMITTED = 1;
+    private static final int RELEASED = 2;
+    private static final int EXPIRED = 3;
+    private static final int MAX_BUCKETS = 1 << 16;
+    private static final int SPARE_LINES = 16;
+    private static final int SPARE_MAX_LINES = 64;
+
+    private final Warehouse warehouse;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final Lane[] lanes;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong expired = new AtomicLong();
+    private final IntIntConsumer commitLine;
+    private final IntIntConsumer releaseLine;
+    private volatile ContentionStats contention = ContentionStats.NONE;
+
+    public ReservationHolds(Warehouse warehouse, long ttlMillis) {
+        this.warehouse = warehouse;
+        this.commitLine = warehouse::commitReserved;
+        this.releaseLine = warehouse::release;
+        this.ttlMillis = Math.max(1, ttlMillis);
+        this.tickMillis = Math.max(1, (this.ttlMillis + MAX_BUCKETS - 1) / MAX_BUCKETS);
+        int buckets = (int) Math.min(MAX_BUCKETS, this.ttlMillis / tickMillis + 2);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        this.lanes = new Lane[Integer.highestOneBit(Math.max(1, cpus * 2 - 1)) << 1];
+        for (int i = 0; i < lanes.length; i++) lanes[i] = new Lane(buckets);
+    }
+
+    /**
+     * Удержание одной корзины: что и сколько зарезервировано и до какого момента.
+     */
+    public static final class Hold {
+        private final long id;
+        private final long deadlineTick;
+        private final Lane lane;
+        private long ref;
+        private IntIntMap lines;
+        private int state = ACTIVE;
+
+        private Hold(long id, long deadlineTick, Lane lane, IntIntMap lines) {
+            this.id = id;
+            this.deadlineTick = deadlineTick;
+            this.lane = lane;
+            this.lines = lines;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public synchronized boolean isActive() {
+            return state == ACTIVE;
+        }
+
+        private synchronized boolean add(int productId, int quantity) {
+            if (state != ACTIVE) return false;
+            lines.addTo(productId, quantity);
+            return true;
+        }
+
+        private synchronized boolean addAll(List<ProductQuantity> items, Warehouse.ReserveResult result) {
+            if (state != ACTIVE) return false;
+            for (int i = 0; i < items.size(); i++) {
+                if (result.isReserved(i)) lines.addTo(items.get(i).getProductId(), items.get(i).getQuantity());
+            }
+            return true;
+        }
+
+        /**
+         * Переводит активный hold в новое состояние и отдаёт его строки (или null, если он уже закрыт).
+         */
+        private synchronized IntIntMap close(int newState) {
+            if (state != ACTIVE) return null;
+            state = newState;
+            IntIntMap result = lines;
+            lines = null;
+            return result;
+        }
+    }
+
+    // Полоса: колесо и таблица hold'ов, на которые ссылаются его записи (слот + поколение)
+    private static final class Lane {
+        final ReentrantLock lock = new ReentrantLock();
+        final TimerWheel wheel;
+        Hold[] slots = new Hold[64];
+        int[] generations = new int[64];
+        int[] free = new int[64];
+        int freeCount;
+        int used;
+        final IntIntMap[] spares = new IntIntMap[SPARE_LINES];
+        int spareCount;
+
+        Lane(int buckets) {
+            wheel = new TimerWheel(buckets, 0);
+        }
+
+        long put(Hold hold) {
+            int slot;
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                if (used == slots.length) {
+                    slots = Arrays.copyOf(slots, used * 2);
+                    generations = Arrays.copyOf(generations, used * 2);
+                }
+                slot = used++;
+            }
+            slots[slot] = hold;
+            return ((long) generations[slot] << 32) | slot;
+        }
+
+        Hold take(long ref) {
+            int slot = (int) ref;
+            if (generations[slot] != (int) (ref >>> 32)) return null;
+            Hold hold = slots[slot];
+            slots[slot] = null;
+            generations[slot]++;
+            if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+            free[freeCount++] = slot;
+            return hold;
+        }
+
+        IntIntMap spare() {
+            return spareCount > 0 ? spares[--spareCount] : new IntIntMap();
+        }
+
+        void recycle(IntIntMap lines) {
+            // Большую корзину не храним: clear() и обход шли бы по её разросшейся таблице
+            if (spareCount == spares.length || lines.size() > SPARE_MAX_LINES) return;
+            lines.clear();
+            spares[spareCount++] = lines;
+        }
+    }
+
+    public void setContentionStats(ContentionStats stats) {
+        this.contention = stats == null ? ContentionStats.NONE : stats;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Сейчас активных (незакрытых и неистёкших) удержаний.
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Сколько удержаний истекло и было возвращено на склад.
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public Hold open() {
+        long deadlineTick = nowTick() + (ttlMillis + tickMillis - 1) / tickMillis;
+        Lane lane = lanes[laneOf(Thread.currentThread())];
+        Hold hold;
+        contention.lock(lane.lock);
+        try {
+            hold = new Hold(nextId.getAndIncrement(), deadlineTick, lane, lane.spare());
+            hold.ref = lane.put(hold);
+            lane.wheel.schedule(deadlineTick, hold.ref);
+        } finally {
+            lane.lock.unlock();
+        }
+        active.incrementAndGet();
+        return hold;
+    }
+
+    /**
+     * Резервирует товар под hold. false — товара не хватило или hold уже истёк
+     * (тогда только что взятый резерв сразу возвращается).
+     */
+    public boolean reserve(Hold hold, int productId, int quantity) {
+        if (!warehouse.tryReserve(productId, quantity)) return false;
+        if (hold.add(productId, quantity)) return true;
+        warehouse.release(productId, quantity);
+        return false;
+    }
+
+    /**
+     * Резервирует всю корзину за один проход (см. Warehouse.reserveAll) и записывает
+     * взятые строки в hold одной операцией. Если hold уже истёк, резерв сразу возвращается
+     * и ни одна строка не считается зарезервированной.
+     */
+    public Warehouse.ReserveResult reserveAll(Hold hold, List<ProductQuantity> items, Warehouse.ReserveMode mode) {
+        Warehouse.ReserveResult result = warehouse.reserveAll(items, mode);
+        if (result.getReservedLines() == 0 || hold.addAll(items, result)) return result;
+        for (int i = 0; i < items.size(); i++) {
+            if (result.isReserved(i)) warehouse.release(items.get(i).getProductId(), items.get(i).getQuantity());
+        }
+        result.clear();
+        return result;
+    }
+
+    /**
+     * Покупка: резерв выкупается. false — hold успел истечь, товар уже вернулся на склад.
+     */
+    public boolean commit(Hold hold) {
+        IntIntMap lines = hold.close(COMMITTED);
+        if (lines == null) return false;
+        active.decrementAndGet();
+        lines.forEach(commitLine);
+        retire(hold, lines);
+        return true;
+    }
+
+    /**
+     * Отказ от покупки: резерв возвращается на склад (если hold ещё не истёк сам).
+     */
+    public void release(Hold hold) {
+        IntIntMap lines = hold.close(RELEASED);
+        if (lines == null) return;
+        active.decrementAndGet();
+        lines.forEach(releaseLine);
+        retire(hold, lines);
+    }
+
+    /**
+     * Снимает закрытый hold с полосы, не дожидаясь срока (запись колеса по устаревшему
+     * поколению слота пропустит), и оставляет таблицу строк полосе.
+     */
+    private void retire(Hold hold, IntIntMap lines) {
+        Lane lane = hold.lane;
+        contention.lock(lane.lock);
+        try {
+            lane.take(hold.ref);
+            lane.recycle(lines);
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает все удержания с истёкшим сроком и возвращает их товар; возвращает число истёкших.
+     */
+    public int expireDue() {
+        long now = nowTick();
+        int count = 0;
+        List<Hold> due = new ArrayList<>();
+        for (Lane lane : lanes) {
+            contention.lock(lane.lock);
+            try {
+                lane.wheel.advance(now, ref -> {
+                    Hold hold = lane.take(ref);
+                    if (hold != null) due.add(hold);
+                });
+            } finally {
+                lane.lock.unlock();
+            }
+            for (Hold hold : due) {
+                IntIntMap lines = hold.close(EXPIRED);
+                if (lines == null) continue; // уже куплен или отменён
+                active.decrementAndGet();
+                lines.forEach(releaseLine);
+                count++;
+                contention.lock(lane.lock);
+                try {
+                    lane.recycle(lines);
+                } finally {
+                    lane.lock.unlock();
+                }
+            }
+            due.clear();
+        }
+        expired.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Периодически вызывает expireDue() в фоновом daemon-потоке.
+     */
+    public ScheduledExecutorService start(long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hold-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::expireDue, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    private long nowTick() {
+        return (System.nanoTime() - startNanos) / 1_000_000L / tickMillis;
+    }
+
+    private int laneOf(Thread thread) {
+        long id = thread.threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 40) & (lanes.length - 1);
+    }
+}
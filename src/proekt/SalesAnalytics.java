@@ -0,0 +1,503 @@
+package proekt;
+
+import java.io.PrintStream;
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потоковая аналитика продаж: выручка и штуки по товарам, категориям и психотипам покупателей
+ * за последнюю минуту, час и сутки (скользящее окно) или с начала текущей минуты, часа, суток
+ * (фиксированное окно).
+ *
+ * Каждое окно — кольцо заранее агрегированных ячеек (минута — 60 по секунде, час — 60 по минуте,
+ * сутки — 24 по часу) и текущая сумма по всему кольцу: продажа прибавляется к своей ячейке
+ * и к сумме, а ячейка, выпадающая из окна, вычитается из суммы. Поэтому запрос по скользящему
+ * окну (например, top-10 товаров за час) читает готовую сумму и не пересчитывает историю;
+ * граница окна точна до ширины ячейки.
+ *
+ * Кассы только кладут продажу в очередь (record) и идут дальше; агрегаты ведёт один фоновый
+ * поток, и запросы выполняются в нём же, поэтому блокировок на агрегатах нет. Если очередь
+ * переполнена, продажа не ждёт, а отбрасывается и считается в getDropped().
+ */
+public class SalesAnalytics implements AutoCloseable {
+
+    public enum Window {
+        MINUTE(1_000L, 60), HOUR(60_000L, 60), DAY(3_600_000L, 24);
+
+        final long bucketMillis;
+        final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    public enum Mode {
+        /** последние минута/час/сутки */
+        SLIDING,
+        /** с начала текущей минуты/часа/суток (UTC) */
+        TUMBLING
+    }
+
+    private static final int CATEGORIES = Category.values().length;
+    private static final int TYPES = PsychoType.values().length;
+    private static final long QUERY_TIMEOUT_MILLIS = 5_000L;
+    private static final Object STOP = new Object(); // close(): всё, что в очереди до него, учитывается
+
+    private final ProductCatalog catalog;
+    private final Clock clock;
+    private final ArrayBlockingQueue<Object> inbox;
+    private final Series[] series = new Series[Window.values().length];
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    public SalesAnalytics(ProductCatalog catalog, int queueCapacity) {
+        this(catalog, queueCapacity, Clock.systemUTC());
+    }
+
+    public SalesAnalytics(ProductCatalog catalog, int queueCapacity, Clock clock) {
+        this.catalog = catalog;
+        this.clock = clock;
+        this.inbox = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        for (Window w : Window.values()) series[w.ordinal()] = new Series(w);
+        this.worker = new Thread(this::run, "sales-analytics");
+        this.worker.setDaemon(true);
+    }
+
+    public SalesAnalytics start() {
+        worker.start();
+        return this;
+    }
+
+    /**
+     * Одна оплаченная корзина; вызывается кассой после оплаты. Выручка строки — сколько за неё
+     * начислено в корзине, а не пересчёт по цене за итоговое количество.
+     */
+    public void record(AuthUser customer, Basket basket) {
+        // Снимок снят в buy() и уже не меняется: продажа ссылается на его массивы без копии
+        Basket.Snapshot lines = basket.snapshot();
+        Sale sale = new Sale(clock.millis(), customer.getType(), lines.productIds(), lines.quantities(), lines.amounts());
+        if (closed || !inbox.offer(sale)) dropped.increment();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Срез окна с top товарами по выручке; выполняется в потоке аналитики после уже
+     * поставленных в очередь продаж. После close() — итоговый срез по всем учтённым продажам.
+     *
+     * @throws IllegalStateException аналитика не запущена, либо не ответила за QUERY_TIMEOUT_MILLIS
+     */
+    public Report query(Window window, Mode mode, int top) throws InterruptedException {
+        if (closed) {
+            // Поток аналитики дописывает очередь и выходит; после него окна читает вызывающий
+            worker.join(QUERY_TIMEOUT_MILLIS);
+            if (worker.isAlive()) throw new IllegalStateException("Sales analytics is still closing");
+            synchronized (series) {
+                return report(window, mode, top);
+            }
+        }
+        if (!worker.isAlive()) throw new IllegalStateException("Sales analytics is not running");
+        CompletableFuture<Report> result = new CompletableFuture<>();
+        Runnable request = () -> {
+            try {
+                result.complete(report(window, mode, top));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        if (!inbox.offer(request, QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Sales analytics queue is full");
+        }
+        try {
+            return result.get(QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sales query failed", e.getCause());
+        } catch (TimeoutException e) {
+            // Закрыли во время запроса — поток аналитики до него уже не дойдёт
+            throw new IllegalStateException("Sales query timed out", e);
+        }
+    }
+
+    /**
+     * Ждёт, пока поток аналитики учтёт все продажи, поставленные до вызова; более поздние
+     * считаются в getDropped().
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (!worker.isAlive()) return; // не запускали
+        try {
+            inbox.put(STOP);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Object message;
+            try {
+                message = inbox.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (message == STOP) return;
+            if (message instanceof Sale sale) {
+                resolveCategories(sale);
+                for (Series s : series) s.add(sale);
+            } else if (message instanceof Runnable query) {
+                query.run();
+            }
+        }
+    }
+
+    // Категория — по каталогу, один раз на продажу, а не в каждой ячейке каждого окна
+    private void resolveCategories(Sale sale) {
+        for (int i = 0; i < sale.productIds.length; i++) {
+            Product p = catalog.get(sale.productIds[i]);
+            Category c = p == null || p.getCategory() == null ? Category.OTHER : p.getCategory();
+            sale.categories[i] = (byte) c.ordinal();
+        }
+    }
+
+    private Report report(Window window, Mode mode, int top) {
+        long now = clock.millis();
+        Series s = series[window.ordinal()];
+        s.advance(now / window.bucketMillis);
+        Bucket view = mode == Mode.SLIDING ? s.total : s.sinceAligned(now);
+        return new Report(window, mode, view, view.products.top(top));
+    }
+
+    /**
+     * Продажа, как её видит аналитика: время, психотип покупателя и строки корзины.
+     */
+    private static final class Sale {
+        final long millis;
+        final PsychoType type;
+        final int[] productIds;
+        final int[] units;
+        final long[] revenue;
+        final byte[] categories; // заполняет поток аналитики
+
+        Sale(long millis, PsychoType type, int[] productIds, int[] units, long[] revenue) {
+            this.millis = millis;
+            this.type = type;
+            this.productIds = productIds;
+            this.units = units;
+            this.revenue = revenue;
+            this.categories = new byte[productIds.length];
+        }
+    }
+
+    /**
+     * Кольцо ячеек одного окна и сумма по нему.
+     */
+    private static final class Series {
+        final Window window;
+        final Bucket[] ring;
+        final Bucket total = new Bucket();
+        long newest = Long.MIN_VALUE; // номер последней ячейки (время / ширина ячейки)
+
+        Series(Window window) {
+            this.window = window;
+            this.ring = new Bucket[window.buckets];
+            for (int i = 0; i < ring.length; i++) ring[i] = new Bucket();
+        }
+
+        void add(Sale sale) {
+            long index = sale.millis / window.bucketMillis;
+            advance(index);
+            if (index <= newest - ring.length) return; // опоздала дальше окна
+            Bucket bucket = ring[(int) Math.floorMod(index, (long) ring.length)];
+            bucket.add(sale);
+            total.add(sale);
+        }
+
+        /**
+         * Сдвигает окно до ячейки index: выпадающие ячейки вычитаются из суммы и очищаются.
+         */
+        void advance(long index) {
+            if (index <= newest) return;
+            if (newest == Long.MIN_VALUE || index - newest >= ring.length) {
+                for (Bucket b : ring) b.clear();
+                total.clear();
+            } else {
+                for (long i = newest + 1; i <= index; i++) {
+                    Bucket expired = ring[(int) Math.floorMod(i, (long) ring.length)];
+                    total.subtract(expired);
+                    expired.clear();
+                }
+            }
+            newest = index;
+        }
+
+        /**
+         * Сумма ячеек с начала текущего периода окна (минуты, часа, суток).
+         */
+        Bucket sinceAligned(long now) {
+            long periodMillis = window.bucketMillis * ring.length;
+            long first = Math.floorDiv(now, periodMillis) * periodMillis / window.bucketMillis;
+            Bucket sum = new Bucket();
+            for (long i = Math.max(first, newest - ring.length + 1); i <= newest; i++) {
+                sum.addAll(ring[(int) Math.floorMod(i, (long) ring.length)]);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Агрегаты ячейки времени (или суммы ячеек): заказы, по товарам, категориям и психотипам.
+     */
+    private static final class Bucket {
+        long orders;
+        final Rows products = new Rows();
+        final long[] categoryUnits = new long[CATEGORIES];
+        final long[] categoryRevenue = new long[CATEGORIES];
+        final long[] typeUnits = new long[TYPES];
+        final long[] typeRevenue = new long[TYPES];
+
+        void add(Sale sale) {
+            orders++;
+            int type = sale.type == null ? -1 : sale.type.ordinal();
+            for (int i = 0; i < sale.productIds.length; i++) {
+                int units = sale.units[i];
+                long revenue = sale.revenue[i];
+                products.add(sale.productIds[i], units, revenue);
+                int category = sale.categories[i];
+                categoryUnits[category] += units;
+                categoryRevenue[category] += revenue;
+                if (type >= 0) {
+                    typeUnits[type] += units;
+                    typeRevenue[type] += revenue;
+                }
+            }
+        }
+
+        void addAll(Bucket other) {
+            merge(other, 1);
+        }
+
+        void subtract(Bucket other) {
+            merge(other, -1);
+        }
+
+        private void merge(Bucket other, int sign) {
+            orders += sign * other.orders;
+            other.products.forEachRow((id, units, revenue) -> products.add(id, sign * units, sign * revenue));
+            for (int i = 0; i < CATEGORIES; i++) {
+                categoryUnits[i] += sign * other.categoryUnits[i];
+                categoryRevenue[i] += sign * other.categoryRevenue[i];
+            }
+            for (int i = 0; i < TYPES; i++) {
+                typeUnits[i] += sign * other.typeUnits[i];
+                typeRevenue[i] += sign * other.typeRevenue[i];
+            }
+        }
+
+        void clear() {
+            orders = 0;
+            products.clear();
+            Arrays.fill(categoryUnits, 0);
+            Arrays.fill(categoryRevenue, 0);
+            Arrays.fill(typeUnits, 0);
+            Arrays.fill(typeRevenue, 0);
+        }
+    }
+
+    private interface RowConsumer {
+        void accept(int productId, long units, long revenue);
+    }
+
+    /**
+     * Разреженные суммы по товарам: id -> строка в параллельных массивах. Строка, у которой штуки
+     * обнулились (ячейка выпала из окна), удаляется перестановкой последней на её место.
+     */
+    private static final class Rows {
+        private final IntIntMap rowById = new IntIntMap();
+        private int[] ids = new int[16];
+        private long[] units = new long[16];
+        private long[] revenue = new long[16];
+        private int size;
+
+        void add(int productId, long addUnits, long addRevenue) {
+            int row = rowById.get(productId, -1);
+            if (row < 0) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    units = Arrays.copyOf(units, size * 2);
+                    revenue = Arrays.copyOf(revenue, size * 2);
+                }
+                row = size++;
+                rowById.put(productId, row);
+                ids[row] = productId;
+                units[row] = 0;
+                revenue[row] = 0;
+            }
+            units[row] += addUnits;
+            revenue[row] += addRevenue;
+            if (units[row] == 0 && revenue[row] == 0) removeRow(row);
+        }
+
+        void forEachRow(RowConsumer action) {
+            for (int i = 0; i < size; i++) action.accept(ids[i], units[i], revenue[i]);
+        }
+
+        void clear() {
+            rowById.clear();
+            size = 0;
+        }
+
+        /**
+         * n строк с наибольшей выручкой, по убыванию: один проход с кучей на n элементов.
+         */
+        List<ProductSales> top(int n) {
+            if (n <= 0 || size == 0) return List.of();
+            PriorityQueue<Integer> heap = new PriorityQueue<>(n + 1, Comparator.comparingLong(r -> revenue[r]));
+            for (int i = 0; i < size; i++) {
+                if (heap.size() < n) {
+                    heap.add(i);
+                } else if (revenue[i] > revenue[heap.peek()]) {
+                    heap.poll();
+                    heap.add(i);
+                }
+            }
+            ProductSales[] result = new ProductSales[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                int row = heap.poll();
+                result[i] = new ProductSales(ids[row], units[row], revenue[row]);
+            }
+            return List.of(result);
+        }
+
+        private void removeRow(int row) {
+            rowById.remove(ids[row], -1);
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                units[row] = units[last];
+                revenue[row] = revenue[last];
+                rowById.put(ids[row], row);
+            }
+        }
+    }
+
+    /**
+     * Продажи одного товара в окне.
+     */
+    public static final class ProductSales {
+        private final int productId;
+        private final long units;
+        private final long revenueMinor;
+
+        ProductSales(int productId, long units, long revenueMinor) {
+            this.productId = productId;
+            this.units = units;
+            this.revenueMinor = revenueMinor;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public long getRevenueMinor() {
+            return revenueMinor;
+        }
+    }
+
+    /**
+     * Неизменяемый срез окна на момент запроса.
+     */
+    public static final class Report {
+        private final Window window;
+        private final Mode mode;
+        private final long orders;
+        private final long[] categoryUnits;
+        private final long[] categoryRevenue;
+        private final long[] typeUnits;
+        private final long[] typeRevenue;
+        private final List<ProductSales> top;
+
+        private Report(Window window, Mode mode, Bucket b, List<ProductSales> top) {
+            this.window = window;
+            this.mode = mode;
+            this.orders = b.orders;
+            this.categoryUnits = b.categoryUnits.clone();
+            this.categoryRevenue = b.categoryRevenue.clone();
+            this.typeUnits = b.typeUnits.clone();
+            this.typeRevenue = b.typeRevenue.clone();
+            this.top = top;
+        }
+
+        public long getOrders() {
+            return orders;
+        }
+
+        public long getUnits(Category category) {
+            return categoryUnits[category.ordinal()];
+        }
+
+        public long getRevenueMinor(Category category) {
+            return categoryRevenue[category.ordinal()];
+        }
+
+        public long getUnits(PsychoType type) {
+            return typeUnits[type.ordinal()];
+        }
+
+        public long getRevenueMinor(PsychoType type) {
+            return typeRevenue[type.ordinal()];
+        }
+
+        public long getRevenueMinor() {
+            long sum = 0;
+            for (long r : categoryRevenue) sum += r;
+            return sum;
+        }
+
+        public List<ProductSales> getTop() {
+            return top;
+        }
+
+        public void print(PrintStream out, ProductCatalog catalog) {
+            out.println("Sales, " + (mode == Mode.SLIDING ? "last " : "this ") + window.name().toLowerCase()
+                    + ": orders=" + orders + " revenue=" + Money.toBigDecimal(getRevenueMinor()));
+            StringBuilder line = new StringBuilder("  by category:");
+            for (Category c : Category.values()) {
+                if (categoryUnits[c.ordinal()] == 0) continue;
+                line.append(' ').append(c).append('=').append(categoryUnits[c.ordinal()])
+                        .append("/").append(Money.toBigDecimal(categoryRevenue[c.ordinal()]));
+            }
+            out.println(line);
+            line = new StringBuilder("  by type:");
+            for (PsychoType t : PsychoType.values()) {
+                if (typeUnits[t.ordinal()] == 0) continue;
+                line.append(' ').append(t).append('=').append(typeUnits[t.ordinal()])
+                        .append("/").append(Money.toBigDecimal(typeRevenue[t.ordinal()]));
+            }
+            out.println(line);
+            for (int i = 0; i < top.size(); i++) {
+                ProductSales s = top.get(i);
+                Product p = catalog.get(s.getProductId());
+                out.printf("  %2d. %-24s %6d pcs  %s%n", i + 1, p == null ? "#" + s.getProductId() : p.getName(),
+                        s.getUnits(), Money.toBigDecimal(s.getRevenueMinor()));
+            }
+        }
+    }
+}
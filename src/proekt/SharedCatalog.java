@@ -0,0 +1,33 @@
+package proekt;
+
+import java.util.function.Consumer;
+
+/**
+ * Текущая версия CompactCatalog для многих читателей и редких правок.
+ * Читатель берёт get() (одно volatile-чтение) и дальше работает с неизменяемым снимком сколько
+ * угодно долго; правки выполняются по очереди и публикуют новую версию целиком, так что
+ * читатель никогда не видит половину правки.
+ */
+public final class SharedCatalog {
+
+    private volatile CompactCatalog current;
+
+    public SharedCatalog(CompactCatalog initial) {
+        this.current = initial;
+    }
+
+    public CompactCatalog get() {
+        return current;
+    }
+
+    /**
+     * Применяет change к текущей версии и публикует результат.
+     */
+    public synchronized CompactCatalog update(Consumer<CompactCatalog.Editor> change) {
+        CompactCatalog.Editor editor = current.edit();
+        change.accept(editor);
+        CompactCatalog next = editor.build();
+        current = next;
+        return next;
+    }
+}
@@ -0,0 +1,164 @@
+package proekt;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Покупатели в зале одновременно: каждый — отдельная задача, которая перед каждой строкой корзины
+ * думает у полки (случайная пауза со средним thinkMicros) и потом идёт на кассу Store.serve.
+ * Склад, корзины и касса общие для всех.
+ *
+ * threads = 0 — поток на покупателя (Executors.newVirtualThreadPerTaskExecutor): пауза отпускает
+ * несущий поток, так что в зале хоть сотни тысяч покупателей на нескольких потоках ОС.
+ * threads = N — те же задачи на пуле из N платформенных потоков, для сравнения: в зале не больше N,
+ * остальные ждут у входа, и это ожидание входит в задержку визита.
+ * Все задачи живут внутри одного try-with-resources: execute() возвращается, когда ушёл последний.
+ */
+public class ShopperSimulation {
+
+    private static final long HOLD_EXPIRY_PERIOD_MILLIS = 100;
+
+    private final Store store;
+    private final CustomerGenerator generator;
+    private final CheckoutPolicy policy;
+    private final int threads;
+    private final long customers;
+    private final long thinkNanos;
+    private final double arrivalRatePerSec; // 0 = все приходят сразу
+
+    private final LatencyHistogram visits = new LatencyHistogram();
+    private final LongAdder[] results = new LongAdder[CheckoutResult.values().length];
+    private final AtomicInteger inStore = new AtomicInteger();
+    private final AtomicInteger peakInStore = new AtomicInteger();
+
+    public ShopperSimulation(Store store, CheckoutPolicy policy, int threads, long customers,
+                             long thinkMicros, double arrivalRatePerSec) {
+        this.store = store;
+        this.generator = MainGame.customerGenerator(store.getProductCatalog());
+        this.policy = policy;
+        this.threads = Math.max(0, threads);
+        this.customers = Math.max(0, customers);
+        this.thinkNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, thinkMicros));
+        this.arrivalRatePerSec = Math.max(0, arrivalRatePerSec);
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    public void run() throws InterruptedException {
+        ScheduledExecutorService holdExpiry = store.getHolds().start(HOLD_EXPIRY_PERIOD_MILLIS);
+        try {
+            printReport(execute());
+        } finally {
+            holdExpiry.shutdownNow();
+        }
+    }
+
+    /**
+     * Прогон без отчёта (для бенчмарка); сроки резервов истекать не будут.
+     *
+     * @return время от первого прихода до ухода последнего покупателя, нс
+     */
+    public long execute() throws InterruptedException {
+        long periodNanos = arrivalRatePerSec > 0 ? (long) (1_000_000_000L / arrivalRatePerSec) : 0;
+        long start = System.nanoTime();
+        try (ExecutorService shoppers = threads == 0
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads)) {
+            for (long ticket = 0; ticket < customers; ticket++) {
+                AuthUser customer = generator.randomCustomer();
+                List<ProductQuantity> cart = generator.randomCart(customer);
+                long arrival = System.nanoTime();
+                if (periodNanos > 0) {
+                    // Задержку считаем от запланированного прихода (см. HeadlessSimulation)
+                    arrival = start + ticket * periodNanos;
+                    long wait;
+                    while ((wait = arrival - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+                }
+                long scheduled = arrival;
+                shoppers.execute(() -> visit(customer, cart, scheduled));
+            }
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+        return System.nanoTime() - start;
+    }
+
+    private void visit(AuthUser customer, List<ProductQuantity> cart, long arrival) {
+        int now = inStore.incrementAndGet();
+        peakInStore.accumulateAndGet(now, Math::max);
+        try {
+            if (thinkNanos > 0) {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int line = 0; line < cart.size(); line++) {
+                    // Экспоненциальная пауза: большинство решают быстро, некоторые стоят долго
+                    Thread.sleep(Duration.ofNanos((long) (-Math.log(1 - rnd.nextDouble()) * thinkNanos)));
+                }
+            }
+            CheckoutResult result = store.serve(customer, cart, policy, CheckoutListener.NONE);
+            results[result.ordinal()].increment();
+            visits.record(System.nanoTime() - arrival);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inStore.decrementAndGet();
+        }
+    }
+
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        LatencyHistogram.Snapshot visit = visits.snapshot();
+        System.out.println("========================================");
+        System.out.println("= SHOPPER SIMULATION");
+        System.out.println("========================================");
+        System.out.printf("Threads: %s, customers: %d, think time: %d us/line, arrival rate: %s%n",
+                threads == 0 ? "virtual per customer" : threads + " platform", visit.getCount(),
+                TimeUnit.NANOSECONDS.toMicros(thinkNanos), arrivalRatePerSec > 0 ? arrivalRatePerSec + "/s" : "all at once");
+        WorkloadProfile profile = generator.getProfile();
+        System.out.println("Workload: " + profile.getName() + ", zipf=" + profile.getZipf()
+                + ", seed=" + generator.getSeed());
+        System.out.printf("Elapsed: %.3f s, throughput: %.0f customers/s%n", seconds, visit.getCount() / seconds);
+        System.out.println("Peak shoppers in store: " + peakInStore.get()
+                + ", peak JVM threads: " + ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        System.out.println("Visit latency: " + visit);
+        for (CheckoutResult r : CheckoutResult.values()) {
+            System.out.println("  " + r + ": " + results[r.ordinal()].sum());
+        }
+        Warehouse warehouse = store.getWarehouse();
+        System.out.println("Warehouse: on-hand=" + warehouse.getSize() + " reserved=" + warehouse.getReserved()
+                + " available=" + warehouse.getAvailable());
+        Payment.Snapshot register = store.getPaymentBox().snapshot();
+        System.out.println("Cash in register: " + register.getTotalCash()
+                + " (" + register.getTransactions() + " payments)");
+    }
+
+    /**
+     * Аргументы: [customers] [threads: 0 — виртуальный на покупателя] [thinkMicros] [ratePerSec]
+     * [restockBatch] [capacity]
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        long customers = args.length > 0 ? Long.parseLong(args[0]) : 100_000L;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long thinkMicros = args.length > 2 ? Long.parseLong(args[2]) : 100_000L;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        int restockBatch = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        int capacity = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+
+        TransactionJournal journal = MainGame.openJournal();
+        Store store = new Store(capacity, MainGame.holdTtlMillis());
+        MainGame.initAssortment(store, journal);
+        store.getWarehouse().evictExpired();
+        CheckoutPolicy policy = new AutoCheckoutPolicy(true, restockBatch, true);
+        ScheduledExecutorService metricsDump = MainGame.startMetricsDump(store);
+        new ShopperSimulation(store, policy, threads, customers, thinkMicros, rate).run();
+        if (metricsDump != null) {
+            metricsDump.shutdownNow();
+            store.getMetrics().dump(store, Path.of(System.getProperty("proekt.metrics.file")));
+        }
+        if (journal != null) journal.close();
+    }
+}
@@ -0,0 +1,193 @@
+package proekt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Остатки в файле, отображённом в память: хеш-таблица с открытой адресацией из записей
+ * (ключ int, значение int) по 8 байт. Атомарность — CAS прямо по отображённым байтам
+ * (VarHandle над MappedByteBuffer), поэтому файл потокобезопасен без блокировок, как ConcurrentIntIntMap,
+ * а в куче от него только массив буферов. Страницы с редкими товарами ОС держит на диске.
+ *
+ * Размер таблицы задаётся при создании (заполнение не больше 3/4) и не растёт; файл создаётся
+ * заново и на старте не читается — остатки переживают перезапуск через TransactionJournal, а не через него.
+ * Обычно стоит за кэшем CachedStockStore; сам по себе — медленный, но без ограничения кучей вариант.
+ */
+public final class StockFile implements StockStore, Closeable {
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final int RECORD = 8;
+    private static final int REGION_SHIFT = 27; // 2^27 записей = 1 ГиБ на отображение
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+    private static final int EMPTY = 0; // ключ хранится как key ^ FREE, поэтому нули нового файла — пустые записи
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final long mask;
+    private final int maxKeys;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile ContentionStats contention = ContentionStats.NONE;
+
+    private StockFile(Path path, FileChannel channel, long slots) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.mask = slots - 1;
+        this.maxKeys = (int) Math.min(Integer.MAX_VALUE, slots - (slots >> 2));
+        int regionSlots = (int) Math.min(slots, 1L << REGION_SHIFT);
+        this.regions = new MappedByteBuffer[(int) (slots / regionSlots)];
+        for (int r = 0; r < regions.length; r++) {
+            regions[r] = channel.map(FileChannel.MapMode.READ_WRITE, (long) r * regionSlots * RECORD, (long) regionSlots * RECORD);
+        }
+    }
+
+    /**
+     * Новый пустой файл на expectedProducts товаров (существующий перезаписывается).
+     */
+    public static StockFile create(Path path, long expectedProducts) throws IOException {
+        long slots = Long.highestOneBit(Math.max(16, expectedProducts + expectedProducts / 3) - 1) << 1;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            // Разреженный файл: место на диске занимают только тронутые страницы
+            channel.write(ByteBuffer.wrap(new byte[1]), slots * RECORD - 1);
+            return new StockFile(path, channel, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void setContentionStats(ContentionStats stats) {
+        this.contention = stats == null ? ContentionStats.NONE : stats;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Байт на диске под таблицу (файл разреженный — реально занято меньше).
+     */
+    public long getFileBytes() {
+        return (mask + 1) * RECORD;
+    }
+
+    @Override
+    public int get(int productId) {
+        long slot = find(productId, false);
+        return slot < 0 ? 0 : (int) INT.getVolatile(region(slot), valueOffset(slot));
+    }
+
+    /**
+     * Записывает остаток целиком (запись из кэша).
+     */
+    public void put(int productId, int quantity) {
+        long slot = find(productId, true);
+        INT.setVolatile(region(slot), valueOffset(slot), quantity);
+    }
+
+    /**
+     * Заводит товар с нулевым остатком, если его ещё нет; возвращает текущий остаток.
+     */
+    public int load(int productId) {
+        long slot = find(productId, true);
+        return (int) INT.getVolatile(region(slot), valueOffset(slot));
+    }
+
+    @Override
+    public int addAndGet(int productId, int delta) {
+        long slot = find(productId, true);
+        return (int) INT.getAndAdd(region(slot), valueOffset(slot), delta) + delta;
+    }
+
+    @Override
+    public boolean tryDecrement(int productId, int delta) {
+        long slot = find(productId, false);
+        if (slot < 0) return false;
+        MappedByteBuffer region = region(slot);
+        int offset = valueOffset(slot);
+        while (true) {
+            int curr = (int) INT.getVolatile(region, offset);
+            if (delta > curr) return false;
+            if (INT.compareAndSet(region, offset, curr, curr - delta)) return true;
+            contention.casRetry();
+        }
+    }
+
+    @Override
+    public void forEach(IntIntConsumer action) {
+        for (long slot = 0; slot <= mask; slot++) {
+            MappedByteBuffer region = region(slot);
+            int offset = (int) (slot & REGION_MASK) * RECORD;
+            int stored = (int) INT.getVolatile(region, offset);
+            if (stored != EMPTY) action.accept(stored ^ IntIntMap.FREE, (int) INT.getVolatile(region, offset + 4));
+        }
+    }
+
+    /**
+     * Сбросить изменённые страницы на диск.
+     */
+    public void force() {
+        for (MappedByteBuffer region : regions) region.force();
+    }
+
+    /**
+     * Отображения остаются валидны до сборки мусора; закрывается только канал.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "StockFile{" + path + ", products=" + size.get() + ", slots=" + (mask + 1) + "}";
+    }
+
+    /**
+     * Запись товара или -1; с insert — занимает свободную запись CAS по ключу.
+     */
+    private long find(int productId, boolean insert) {
+        if (productId == IntIntMap.FREE) throw new IllegalArgumentException("Reserved key: " + productId);
+        int stored = productId ^ IntIntMap.FREE;
+        for (long slot = IntIntMap.mix(productId) & mask; ; slot = (slot + 1) & mask) {
+            MappedByteBuffer region = region(slot);
+            int offset = (int) (slot & REGION_MASK) * RECORD;
+            int k = (int) INT.getVolatile(region, offset);
+            if (k == stored) return slot;
+            if (k != EMPTY) continue;
+            if (!insert) return -1;
+            if (size.get() >= maxKeys) throw new IllegalStateException("Stock file is full: " + maxKeys + " products");
+            if (INT.compareAndSet(region, offset, EMPTY, stored)) {
+                size.incrementAndGet();
+                return slot;
+            }
+            // Запись заняли одновременно — возможно, тем же товаром: проверяем её ещё раз
+            if ((int) INT.getVolatile(region, offset) == stored) return slot;
+        }
+    }
+
+    private MappedByteBuffer region(long slot) {
+        return regions[(int) (slot >>> REGION_SHIFT)];
+    }
+
+    private static int valueOffset(long slot) {
+        return (int) (slot & REGION_MASK) * RECORD + 4;
+    }
+}
@@ -0,0 +1,36 @@
+package proekt;
+
+import java.time.LocalDate;
+
+/**
+ * Партия товара на складе: сколько единиц и до какого дня (включительно) их можно продавать.
+ */
+public final class StockLot {
+
+    private final int productId;
+    private final LocalDate expireDate;
+    private final int quantity;
+
+    public StockLot(int productId, LocalDate expireDate, int quantity) {
+        this.productId = productId;
+        this.expireDate = expireDate;
+        this.quantity = quantity;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public LocalDate getExpireDate() {
+        return expireDate;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "StockLot{productId=" + productId + ", expireDate=" + expireDate + ", quantity=" + quantity + "}";
+    }
+}
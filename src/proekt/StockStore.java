@@ -0,0 +1,77 @@
+package proekt;
+
+import java.util.*;
+
+/**
+ * Где Warehouse держит доступный остаток каждого товара: атомарные счётчики int -> int.
+ * По умолчанию — ConcurrentIntIntMap в памяти; для ассортимента больше кучи — CachedStockStore
+ * (горячие товары в памяти, остальные в StockFile на диске).
+ * Отсутствующий товар читается как 0; товары не удаляются.
+ */
+public interface StockStore {
+
+    int get(int productId);
+
+    int addAndGet(int productId, int delta);
+
+    /**
+     * Уменьшает остаток на delta, только если он не станет отрицательным.
+     */
+    boolean tryDecrement(int productId, int delta);
+
+    void forEach(IntIntConsumer action);
+
+    /**
+     * Товаров, которые когда-либо были в хранилище (в том числе с нулевым остатком).
+     */
+    int size();
+
+    /**
+     * Куда записывать повторы CAS и ожидания блокировок (см. ContentionStats); по умолчанию — никуда.
+     */
+    default void setContentionStats(ContentionStats stats) {
+    }
+
+    /**
+     * Представление только для чтения: товары с положительным остатком.
+     * Значения читаются вживую, поэтому размер и содержимое могут меняться между вызовами.
+     */
+    default Map<Integer, Integer> asPositiveMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Integer get(Object key) {
+                if (!(key instanceof Integer k) || k == IntIntMap.FREE) return null;
+                int v = StockStore.this.get(k);
+                return v > 0 ? v : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Set<Entry<Integer, Integer>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public int size() {
+                        int[] n = new int[1];
+                        StockStore.this.forEach((k, v) -> {
+                            if (v > 0) n[0]++;
+                        });
+                        return n[0];
+                    }
+
+                    @Override
+                    public Iterator<Entry<Integer, Integer>> iterator() {
+                        List<Entry<Integer, Integer>> entries = new ArrayList<>();
+                        StockStore.this.forEach((k, v) -> {
+                            if (v > 0) entries.add(new SimpleImmutableEntry<>(k, v));
+                        });
+                        return Collections.unmodifiableList(entries).iterator();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,311 @@
+package proekt;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ядро магазина: склад, каталог, касса и обслуживание одного покупателя.
+ * Не знает ни про консоль, ни про потоки — решения принимает CheckoutPolicy,
+ * вывод делает CheckoutListener.
+ */
+public class Store {
+
+    public static final long DEFAULT_HOLD_TTL_MILLIS = 120_000L;
+    private static final int CATEGORIES = Category.values().length;
+
+    private final Warehouse warehouse;
+    private final ProductCatalog productCatalog;
+    private final Payment paymentBox = new Payment();
+    private final AtomicInteger nextBasketId = new AtomicInteger(1);
+    private final BasketPool baskets = new BasketPool();
+    private final ReservationHolds holds;
+    private final StoreMetrics metrics = new StoreMetrics(paymentBox);
+    private final PricingEngine pricing;
+    private StoreJournal journal = StoreJournal.NONE;
+    private volatile SalesAnalytics analytics;
+
+    public Store(int capacity) {
+        this(capacity, DEFAULT_HOLD_TTL_MILLIS);
+    }
+
+    /**
+     * @param holdTtlMillis сколько корзина может держать резерв без оплаты (см. ReservationHolds)
+     */
+    public Store(int capacity, long holdTtlMillis) {
+        this(capacity, holdTtlMillis, new ConcurrentIntIntMap());
+    }
+
+    /**
+     * @param stock хранилище остатков склада (см. StockStore)
+     */
+    public Store(int capacity, long holdTtlMillis, StockStore stock) {
+        this(new Warehouse(capacity, Clock.systemDefaultZone(), stock), holdTtlMillis);
+    }
+
+    /**
+     * @param warehouse пустой склад (например, со счётчиками в файлах, см. MainGame.warehouse)
+     */
+    public Store(Warehouse warehouse, long holdTtlMillis) {
+        this.warehouse = warehouse;
+        this.productCatalog = new ProductCatalog();
+        this.pricing = new PricingEngine(productCatalog);
+        this.holds = new ReservationHolds(warehouse, holdTtlMillis);
+        ContentionStats contention = metrics.getContention();
+        warehouse.setContentionStats(contention);
+        paymentBox.setContentionStats(contention);
+        holds.setContentionStats(contention);
+    }
+
+    public Warehouse getWarehouse() {
+        return warehouse;
+    }
+
+    public ProductCatalog getProductCatalog() {
+        return productCatalog;
+    }
+
+    public Payment getPaymentBox() {
+        return paymentBox;
+    }
+
+    public ReservationHolds getHolds() {
+        return holds;
+    }
+
+    public StoreMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PricingEngine getPricing() {
+        return pricing;
+    }
+
+    public SalesAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * Куда отправлять оплаченные корзины; null — никуда.
+     */
+    public void setAnalytics(SalesAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    public void initDefaultAssortment() {
+        initDefaultAssortment(null);
+    }
+
+    /**
+     * С журналом: склад и касса восстанавливаются из него, а стартовые остатки
+     * заводятся (и журналируются) только при первом запуске.
+     */
+    public void initDefaultAssortment(TransactionJournal journal) {
+        // Создаём набор товаров и начальное количество на складе.
+        Product apple = new Product(1, "Apple", Category.FOOD, new BigDecimal("0.50"),
+                LocalDate.now().plusDays(10), "Fresh red apple");
+        Product milk = new Product(2, "Milk 1L", Category.FOOD, new BigDecimal("1.20"),
+                LocalDate.now().plusDays(7), "Whole milk 1L");
+        Product usbCable = new Product(3, "USB Cable", Category.ELECTRONICS, new BigDecimal("5.00"),
+                null, "USB-A to USB-C cable");
+        Product bread = new Product(4, "Bread", Category.FOOD, new BigDecimal("0.80"),
+                LocalDate.now().plusDays(3), "Loaf of bread");
+        Product jeans = new Product(5, "Jeans", Category.CLOTHING, new BigDecimal("25.00"),
+                null, "Blue denim jeans");
+        Product pen = new Product(6, "Pen", Category.HOME, new BigDecimal("0.30"),
+                null, "Ballpoint pen");
+        Product mug = new Product(7, "Coffee Mug", Category.HOME, new BigDecimal("7.50"),
+                null, "Ceramic mug 350ml");
+
+        IntIntMap stock = new IntIntMap();
+        stock.put(apple.getProductId(), 10);
+        stock.put(milk.getProductId(), 8);
+        stock.put(usbCable.getProductId(), 3);
+        stock.put(bread.getProductId(), 12);
+        stock.put(jeans.getProductId(), 2);
+        stock.put(pen.getProductId(), 25);
+        stock.put(mug.getProductId(), 5);
+
+        install(List.of(apple, milk, usbCable, bread, jeans, pen, mug), stock, journal);
+    }
+
+    /**
+     * Ассортимент из файла (CSV или двоичный снимок, см. CatalogLoader) вместо встроенного.
+     * Журнал, как и в initDefaultAssortment, важнее начальных остатков из файла.
+     */
+    public void loadAssortment(Path source, TransactionJournal journal, int threads) throws IOException {
+        CatalogLoader.Assortment assortment = CatalogLoader.load(source, threads);
+        install(assortment.getProducts(), assortment.getStock(), journal);
+    }
+
+    private void install(List<Product> products, IntIntMap initialStock, TransactionJournal journal) {
+        productCatalog.addAll(products);
+
+        if (journal != null) {
+            journal.restoreInto(warehouse, paymentBox);
+            this.journal = journal;
+            if (!journal.isEmpty()) return;
+        }
+
+        // Начальные остатки
+        if (!initialStock.isEmpty() && !warehouse.addAll(initialStock)) {
+            throw new IllegalStateException("Initial stock does not fit warehouse capacity " + warehouse.getCapacity());
+        }
+        // Скоропортящийся товар — одной партией со сроком из каталога
+        for (Product p : products) {
+            warehouse.dateStock(p.getProductId(), initialStock.get(p.getProductId(), 0), p.getExpireDate());
+        }
+    }
+
+    public Product findProduct(int productId) {
+        return productCatalog.get(productId);
+    }
+
+    /**
+     * Один покупатель: резерв товаров, при нехватке — решение policy о докупке,
+     * затем подтверждение оплаты и расчёт (или возврат товара на склад).
+     * Резервы корзины держит hold с TTL: если оплаты нет слишком долго, товар вернётся на склад сам.
+     */
+    public CheckoutResult serve(AuthUser customer, List<ProductQuantity> desired,
+                                CheckoutPolicy policy, CheckoutListener listener) {
+        if (!StoreMetrics.ENABLED) return checkout(customer, desired, policy, listener, false);
+        if (!metrics.sampleLatency()) {
+            CheckoutResult result = checkout(customer, desired, policy, listener, false);
+            metrics.recordCheckout(result);
+            return result;
+        }
+        long start = System.nanoTime();
+        CheckoutResult result = checkout(customer, desired, policy, listener, true);
+        metrics.recordCheckoutLatency(System.nanoTime() - start);
+        metrics.recordCheckout(result);
+        return result;
+    }
+
+    /**
+     * @param timed замерять задержку резерва (чекаут попал в выборку StoreMetrics)
+     */
+    private CheckoutResult checkout(AuthUser customer, List<ProductQuantity> desired,
+                                    CheckoutPolicy policy, CheckoutListener listener, boolean timed) {
+        listener.onArrival(customer, desired);
+
+        // Корзина из пула: слушатели и политика видят её только во время своих вызовов
+        Basket basket = baskets.acquire(nextBasketId.getAndIncrement(), customer.getUserId());
+        try {
+            return checkout(customer, desired, policy, listener, timed, basket);
+        } finally {
+            baskets.release(basket);
+        }
+    }
+
+    private CheckoutResult checkout(AuthUser customer, List<ProductQuantity> desired, CheckoutPolicy policy,
+                                    CheckoutListener listener, boolean timed, Basket basket) {
+        ReservationHolds.Hold hold = holds.open();
+        // Сумма корзины по категориям для выручки в метриках; касса запишет её вместе с оплатой
+        long[] byCategory = StoreMetrics.ENABLED ? new long[CATEGORIES] : null;
+        // Цены со скидками покупателя и акциями — готовая таблица его уровня, правила на строку не считаются
+        PricingEngine.PriceTable prices = pricing.tableFor(customer);
+
+        // Вся корзина резервируется одним проходом; нехватку по строкам разбираем ниже
+        List<ProductQuantity> lines = knownLines(desired);
+        long reserveStart = timed ? System.nanoTime() : 0;
+        Warehouse.ReserveResult reservation = holds.reserveAll(hold, lines, Warehouse.ReserveMode.BEST_EFFORT);
+        if (timed) metrics.recordReservation(System.nanoTime() - reserveStart);
+        for (int line = 0; line < lines.size(); line++) {
+            ProductQuantity pq = lines.get(line);
+            Product pr = findProduct(pq.getProductId());
+            int want = pq.getQuantity();
+            if (reservation.isReserved(line)) {
+                addLine(basket, byCategory, prices, pr, want);
+                listener.onReserved(pr, want);
+                continue;
+            }
+            int have = warehouse.getQuantity(pr.getProductId());
+            if (StoreMetrics.ENABLED) metrics.recordStockout();
+            listener.onOutOfStock(pr, have, want);
+            if (policy.shouldRestock(pr, have, want)) {
+                int add = policy.restockAmount(pr, have, want);
+                if (add > 0) {
+                    // Партию могли не принять (нет места, истёк срок) — тогда и докупки не было
+                    if (!warehouse.addLot(pr.getProductId(), add, pr.getExpireDate())) {
+                        listener.onReserveFailed(pr, false);
+                        continue;
+                    }
+                    if (StoreMetrics.ENABLED) metrics.recordRestock(add);
+                    listener.onRestocked(pr, add);
+                    if (holds.reserve(hold, pr.getProductId(), want)) {
+                        addLine(basket, byCategory, prices, pr, want);
+                        listener.onReserved(pr, want);
+                    } else {
+                        listener.onReserveFailed(pr, true);
+                    }
+                } else {
+                    listener.onSkipped(pr);
+                }
+            } else {
+                listener.onSkipped(pr);
+            }
+        }
+
+        if (basket.isEmpty()) {
+            holds.release(hold);
+            listener.onEmptyBasket();
+            return CheckoutResult.EMPTY;
+        }
+
+        listener.onTotal(basket);
+        if (!policy.confirmPayment(basket)) {
+            holds.release(hold);
+            listener.onDeclined(basket);
+            return CheckoutResult.DECLINED;
+        }
+
+        long total = basket.getTotalMinor();
+        if (customer.getCashMinor() >= total) {
+            // Пока продавец думал, резерв мог истечь — тогда товар уже вернулся на склад
+            if (!holds.commit(hold)) {
+                listener.onHoldExpired(basket);
+                return CheckoutResult.HOLD_EXPIRED;
+            }
+            customer.setCashMinor(customer.getCashMinor() - total);
+            paymentBox.addMinor(total, byCategory);
+            basket.buy();
+            SalesAnalytics sales = analytics;
+            if (sales != null) sales.record(customer, basket);
+            journal.awaitDurable();
+            listener.onPaid(basket, paymentBox);
+            return CheckoutResult.PAID;
+        } else {
+            holds.release(hold);
+            listener.onInsufficientFunds(basket);
+            return CheckoutResult.INSUFFICIENT_FUNDS;
+        }
+    }
+
+    private static void addLine(Basket basket, long[] byCategory, PricingEngine.PriceTable prices,
+                                Product product, int quantity) {
+        long unitPrice = prices.unitPriceMinor(product.getProductId(), quantity);
+        basket.add(product.getProductId(), quantity, unitPrice);
+        if (byCategory == null) return;
+        Category category = product.getCategory() == null ? Category.OTHER : product.getCategory();
+        byCategory[category.ordinal()] += Money.multiply(unitPrice, quantity);
+    }
+
+    /**
+     * Строки с товарами из каталога (сам список, если неизвестных нет — обычный случай).
+     */
+    private List<ProductQuantity> knownLines(List<ProductQuantity> desired) {
+        for (int i = 0; i < desired.size(); i++) {
+            if (findProduct(desired.get(i).getProductId()) != null) continue;
+            List<ProductQuantity> known = new ArrayList<>(desired.size());
+            for (ProductQuantity pq : desired) {
+                if (findProduct(pq.getProductId()) != null) known.add(pq);
+            }
+            return known;
+        }
+        return desired;
+    }
+}
@@ -0,0 +1,434 @@
+package proekt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Несколько магазинов в одном JVM по схеме shared-nothing: каждый Store принадлежит своей
+ * партиции — одному потоку, который один в него пишет (чекауты, поставки, истечение резервов).
+ * Партиции общаются только сообщениями через свои очереди, общих блокировок между ними нет,
+ * поэтому пропускная способность растёт добавлением партиций (по одной на ядро).
+ *
+ * Магазины стоят на кольце; расстояние — число шагов по кольцу. Заказ покупателя маршрутизируется
+ * по строкам: каждая строка идёт в ближайший к его «домашнему» магазину, где товара сейчас хватает
+ * (остатки чужих складов только читаются и могут устареть — тогда магазин разберёт нехватку сам).
+ * Строки одного магазина — один чекаут там. Заказ из нескольких частей обходит магазины по очереди,
+ * переходя из очереди в очередь, поэтому кошелёк покупателя в каждый момент трогает один поток.
+ *
+ * Если товара на месте всё же не хватило, строка переадресуется (один раз) в ближайший магазин,
+ * где он есть, — новой частью заказа. Свой склад магазин пополняет переводом из ближайшего
+ * магазина с запасом: запрос уходит сообщением в партицию-источник, та снимает товар со своего
+ * склада и отправляет поставку обратно; покупатель перевода не ждёт. Если товара нет нигде,
+ * решает исходная политика (например, докупка у поставщика в AutoCheckoutPolicy).
+ *
+ * Исключение в сообщении партицию не останавливает: заказ, чья часть упала, завершается
+ * с этой ошибкой, перевод — с нулём единиц. close() ждёт, пока во всех очередях не останется
+ * сообщений, включая порождённые уже после вызова (следующие части заказов, ответы на переводы).
+ */
+public class StoreCluster implements AutoCloseable {
+
+    private static final long HOLD_EXPIRY_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int DRAIN_BATCH = 256;
+
+    private final Partition[] partitions;
+    private final CheckoutPolicy supplierPolicy;
+    private final CheckoutListener listener;
+    // Сообщений отправлено и ещё не выполнено — во всех партициях; ноль после close() — можно останавливаться
+    private final AtomicLong pending = new AtomicLong();
+    private volatile boolean closing;
+
+    /**
+     * @param init        заполняет каталог и склад каждого магазина (вызывается до старта потоков)
+     * @param policy      что делать с нехваткой, которую не закрыть переводом, и подтверждение оплаты
+     */
+    public StoreCluster(int stores, int capacityPerStore, long holdTtlMillis, Consumer<Store> init,
+                        CheckoutPolicy policy, CheckoutListener listener) {
+        if (stores < 1) throw new IllegalArgumentException("At least one store: " + stores);
+        this.supplierPolicy = policy;
+        this.listener = listener;
+        this.partitions = new Partition[stores];
+        for (int i = 0; i < stores; i++) {
+            Store store = new Store(capacityPerStore, holdTtlMillis);
+            init.accept(store);
+            partitions[i] = new Partition(i, store);
+        }
+    }
+
+    /**
+     * Заказ покупателя: части (leg) — чекауты в разных магазинах, по одному исходу на каждую
+     * (ни одной части — в заказе не было товаров из каталога). Пока заказ в работе, его читает
+     * и дополняет только партиция, у которой он сейчас; снаружи — после завершения future.
+     */
+    public static final class Order {
+        private final AuthUser customer;
+        private final int home;
+        private final List<Leg> legs;
+        private final CompletableFuture<Order> done = new CompletableFuture<>();
+
+        private Order(AuthUser customer, int home, List<Leg> legs) {
+            this.customer = customer;
+            this.home = home;
+            this.legs = legs;
+        }
+
+        public AuthUser getCustomer() {
+            return customer;
+        }
+
+        public int getHome() {
+            return home;
+        }
+
+        public int getLegs() {
+            return legs.size();
+        }
+
+        public int getStore(int leg) {
+            return legs.get(leg).store;
+        }
+
+        public CheckoutResult getResult(int leg) {
+            return legs.get(leg).result;
+        }
+
+        /**
+         * Строку, которой не хватило в магазине текущей части, — в магазин store: в уже
+         * запланированную туда часть или в новую, в конце маршрута.
+         */
+        private void reroute(int fromLeg, int store, ProductQuantity line) {
+            for (int i = fromLeg + 1; i < legs.size(); i++) {
+                Leg leg = legs.get(i);
+                if (leg.store == store) {
+                    leg.lines.add(line);
+                    return;
+                }
+            }
+            Leg leg = new Leg(store, true);
+            leg.lines.add(line);
+            legs.add(leg);
+        }
+    }
+
+    private static final class Leg {
+        final int store;
+        final List<ProductQuantity> lines = new ArrayList<>(4);
+        final boolean rerouted; // строки уже переадресованы сюда; дальше их не пересылаем
+        CheckoutResult result;
+
+        Leg(int store, boolean rerouted) {
+            this.store = store;
+            this.rerouted = rerouted;
+        }
+    }
+
+    public int size() {
+        return partitions.length;
+    }
+
+    public Store getStore(int index) {
+        return partitions[index].store;
+    }
+
+    public StoreCluster start() {
+        for (Partition p : partitions) p.thread.start();
+        return this;
+    }
+
+    /**
+     * Маршрутизирует корзину и отправляет заказ первому магазину. Можно вызывать из любых потоков.
+     *
+     * @param home ближайший к покупателю магазин (0..size()-1)
+     */
+    public CompletableFuture<Order> submit(AuthUser customer, List<ProductQuantity> desired, int home) {
+        // Сначала счётчик, потом флаг: партиции не остановятся, пока этот заказ не отправлен
+        pending.incrementAndGet();
+        try {
+            if (closing) throw new IllegalStateException("Cluster closed");
+            Order order = route(customer, desired, home);
+            if (order.getLegs() == 0) {
+                order.done.complete(order);
+            } else {
+                partitions[order.getStore(0)].post(() -> serve(order, 0));
+            }
+            return order.done;
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Магазин для покупателя по умолчанию: по его id, равномерно по кольцу.
+     */
+    public int homeOf(AuthUser customer) {
+        return Math.floorMod(customer.getUserId(), partitions.length);
+    }
+
+    /**
+     * Останавливает партиции, когда они разберут все сообщения, в том числе отправленные друг другу
+     * после вызова; новые заказы после этого отклоняются.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        try {
+            for (Partition p : partitions) p.thread.join();
+        } catch (InterruptedException e) {
+            // Партиции всё равно остановятся, когда очереди опустеют
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getTransfersRequested() {
+        long sum = 0;
+        for (Partition p : partitions) sum += p.transfersRequested;
+        return sum;
+    }
+
+    public long getTransferredUnits() {
+        long sum = 0;
+        for (Partition p : partitions) sum += p.transferredIn;
+        return sum;
+    }
+
+    /**
+     * Заказы, разошедшиеся по нескольким магазинам.
+     */
+    public long getSplitOrders() {
+        long sum = 0;
+        for (Partition p : partitions) sum += p.splitOrders;
+        return sum;
+    }
+
+    /**
+     * Строки, переадресованные из магазина, где их не хватило, в другой.
+     */
+    public long getReroutedLines() {
+        long sum = 0;
+        for (Partition p : partitions) sum += p.rerouted;
+        return sum;
+    }
+
+    public long getCheckouts(int store) {
+        return partitions[store].checkouts;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreCluster{stores=" + partitions.length + ", split orders=" + getSplitOrders()
+                + ", rerouted lines=" + getReroutedLines() + ", transfers=" + getTransfersRequested() + " (" + getTransferredUnits() + " units delivered)}";
+    }
+
+    private Order route(AuthUser customer, List<ProductQuantity> desired, int home) {
+        Leg[] byStore = null;
+        int legs = 0;
+        for (ProductQuantity pq : desired) {
+            if (partitions[home].store.findProduct(pq.getProductId()) == null) continue;
+            int target = nearestWithStock(home, pq.getProductId(), pq.getQuantity(), -1);
+            if (target < 0) target = home; // нигде нет — нехватку разберёт домашний магазин
+            if (byStore == null) byStore = new Leg[partitions.length];
+            if (byStore[target] == null) {
+                byStore[target] = new Leg(target, false);
+                legs++;
+            }
+            byStore[target].lines.add(pq);
+        }
+        List<Leg> route = new ArrayList<>(legs);
+        // Порядок обхода — от ближнего магазина к дальнему
+        for (int k = 0; route.size() < legs; k++) {
+            Leg leg = byStore[ringStep(home, k)];
+            if (leg != null) route.add(leg);
+        }
+        return new Order(customer, home, route);
+    }
+
+    /**
+     * Ближайший к from магазин (кроме except), где доступно не меньше quantity; -1 — такого нет.
+     */
+    private int nearestWithStock(int from, int productId, int quantity, int except) {
+        for (int k = 0; k < partitions.length; k++) {
+            int target = ringStep(from, k);
+            if (target == except) continue;
+            if (partitions[target].store.getWarehouse().getAvailable(productId) >= quantity) return target;
+        }
+        return -1;
+    }
+
+    /**
+     * k-й по удалённости от from магазин на кольце: from, from+1, from-1, from+2, ...
+     * При k = 0..size()-1 каждый магазин встречается ровно раз.
+     */
+    private int ringStep(int from, int k) {
+        int offset = (k & 1) == 1 ? (k + 1) / 2 : -k / 2;
+        return Math.floorMod(from + offset, partitions.length);
+    }
+
+    // Выполняется в партиции магазина части leg
+    private void serve(Order order, int leg) {
+        Leg current = order.legs.get(leg);
+        Partition p = partitions[current.store];
+        p.order = order;
+        p.leg = leg;
+        try {
+            current.result = p.store.serve(order.customer, current.lines, p.policy, listener);
+        } catch (RuntimeException e) {
+            order.done.completeExceptionally(e);
+            return;
+        } finally {
+            p.order = null;
+        }
+        p.checkouts++;
+        if (leg + 1 < order.legs.size()) {
+            if (leg == 0) p.splitOrders++;
+            partitions[order.legs.get(leg + 1).store].post(() -> serve(order, leg + 1));
+        } else {
+            order.done.complete(order);
+        }
+    }
+
+    /**
+     * Один магазин и его поток. Поля ниже пишет только этот поток; счётчики volatile,
+     * чтобы читать их снаружи на ходу.
+     */
+    private final class Partition implements Runnable {
+        final int index;
+        final Store store;
+        final Thread thread;
+        final LinkedBlockingQueue<Runnable> inbox = new LinkedBlockingQueue<>();
+        final IntIntMap inTransit = new IntIntMap(); // товар -> заказано переводом, ещё не пришло
+        final CheckoutPolicy policy;
+        Order order; // заказ, чья часть сейчас обслуживается
+        int leg;
+        volatile long checkouts;
+        volatile long rerouted;
+        volatile long splitOrders;
+        volatile long transfersRequested;
+        volatile long transferredIn;
+
+        Partition(int index, Store store) {
+            this.index = index;
+            this.store = store;
+            this.thread = new Thread(this, "partition-" + index);
+            this.policy = new CheckoutPolicy() {
+                @Override
+                public boolean shouldRestock(Product product, int have, int want) {
+                    requestTransfer(product, want - have, want);
+                    if (reroute(product.getProductId(), want)) return false;
+                    return supplierPolicy.shouldRestock(product, have, want);
+                }
+
+                @Override
+                public int restockAmount(Product product, int have, int want) {
+                    return supplierPolicy.restockAmount(product, have, want);
+                }
+
+                @Override
+                public boolean confirmPayment(Basket basket) {
+                    return supplierPolicy.confirmPayment(basket);
+                }
+            };
+        }
+
+        void post(Runnable message) {
+            pending.incrementAndGet();
+            inbox.add(message);
+        }
+
+        @Override
+        public void run() {
+            List<Runnable> batch = new ArrayList<>(DRAIN_BATCH);
+            long nextExpiry = System.nanoTime() + HOLD_EXPIRY_PERIOD_NANOS;
+            try {
+                // После close() партиция ещё ждёт (не дольше периода опроса), пока не опустеют все очереди
+                while (!closing || pending.get() > 0) {
+                    Runnable first = inbox.poll(HOLD_EXPIRY_PERIOD_NANOS, TimeUnit.NANOSECONDS);
+                    if (first != null) {
+                        deliver(first);
+                        inbox.drainTo(batch, DRAIN_BATCH);
+                        for (Runnable m : batch) deliver(m);
+                        batch.clear();
+                    }
+                    long now = System.nanoTime();
+                    if (now - nextExpiry >= 0) {
+                        try {
+                            store.getHolds().expireDue();
+                        } catch (RuntimeException e) {
+                            System.err.println(thread.getName() + ": hold expiry failed: " + e);
+                        }
+                        nextExpiry = now + HOLD_EXPIRY_PERIOD_NANOS;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Заказы ловят свои ошибки в serve(); сюда доходят ошибки остальных сообщений
+        private void deliver(Runnable message) {
+            try {
+                message.run();
+            } catch (RuntimeException e) {
+                System.err.println(thread.getName() + ": message failed: " + e);
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+
+        /**
+         * Строку, которой здесь не хватило, — в ближайший магазин, где товар есть (один раз на строку).
+         */
+        boolean reroute(int productId, int want) {
+            if (order == null || order.legs.get(leg).rerouted) return false;
+            int target = nearestWithStock(index, productId, want, index);
+            if (target < 0) return false;
+            order.reroute(leg, target, new ProductQuantity(productId, want));
+            rerouted++;
+            return true;
+        }
+
+        /**
+         * Просит ближайший магазин, у которого товара с запасом (shortage штук сверх keep —
+         * их, возможно, ждёт переадресованная туда строка), перевести shortage штук сюда.
+         * Пока предыдущий перевод того же товара в пути, новый не заказывается.
+         */
+        void requestTransfer(Product product, int shortage, int keep) {
+            int productId = product.getProductId();
+            if (shortage <= 0 || inTransit.get(productId, 0) > 0) return;
+            int source = nearestWithStock(index, productId, shortage + keep, index);
+            if (source < 0) return;
+            inTransit.put(productId, shortage);
+            transfersRequested++;
+            partitions[source].post(() -> partitions[source].shipTransfer(product, shortage, index));
+        }
+
+        // В партиции-источнике: снять со склада сколько есть (до quantity) и отправить получателю
+        // Ответ уходит и при ошибке (с нулём единиц), иначе получатель навсегда считал бы товар в пути
+        void shipTransfer(Product product, int quantity, int destination) {
+            int units = 0;
+            try {
+                Warehouse warehouse = store.getWarehouse();
+                units = Math.min(quantity, warehouse.getAvailable(product.getProductId()));
+                if (units <= 0 || !warehouse.removeProduct(product.getProductId(), units)) units = 0;
+            } finally {
+                int shipped = units;
+                partitions[destination].post(() -> partitions[destination].receiveTransfer(product, shipped, index));
+            }
+        }
+
+        // В партиции-получателе; не поместившееся на склад возвращается источнику
+        void receiveTransfer(Product product, int units, int source) {
+            inTransit.remove(product.getProductId(), 0);
+            if (units == 0) return;
+            if (store.getWarehouse().addLot(product.getProductId(), units, product.getExpireDate())) {
+                transferredIn += units;
+            } else {
+                partitions[source].post(() -> partitions[source].store.getWarehouse()
+                        .addLot(product.getProductId(), units, product.getExpireDate()));
+            }
+        }
+    }
+}
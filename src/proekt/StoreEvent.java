@@ -0,0 +1,83 @@
+package proekt;
+
+import java.util.List;
+
+/**
+ * Событие магазина в слоте кольцевого буфера EventPipeline. Объекты переиспользуются
+ * (поля перезаписываются), поэтому ссылку на событие нельзя хранить после render().
+ */
+public final class StoreEvent {
+
+    public enum Type {
+        ARRIVAL, RESERVED, RESERVE_FAILED, OUT_OF_STOCK, RESTOCKED, SKIPPED,
+        EMPTY_BASKET, TOTAL, DECLINED, PAID, ROLLED_BACK, HOLD_EXPIRED
+    }
+
+    Type type;
+    long timeNanos;
+    int basketId;
+    int productId;
+    int quantity;
+    int have;
+    long amountMinor;
+    long registerMinor; // PAID: итог кассы сразу после этой оплаты
+    boolean afterRestock;
+    AuthUser customer;
+    List<ProductQuantity> desired;
+
+    void clear() {
+        basketId = 0;
+        productId = 0;
+        quantity = 0;
+        have = 0;
+        amountMinor = 0L;
+        registerMinor = 0L;
+        afterRestock = false;
+        customer = null;
+        desired = null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    public int getBasketId() {
+        return basketId;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getHave() {
+        return have;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public long getRegisterMinor() {
+        return registerMinor;
+    }
+
+    public boolean isAfterRestock() {
+        return afterRestock;
+    }
+
+    public AuthUser getCustomer() {
+        return customer;
+    }
+
+    public List<ProductQuantity> getDesired() {
+        return desired;
+    }
+}
@@ -0,0 +1,23 @@
+package proekt;
+
+/**
+ * Куда Warehouse и Payment сообщают о каждом изменении долговременного состояния.
+ * По умолчанию {@link #NONE} — ничего не пишется.
+ */
+public interface StoreJournal {
+
+    StoreJournal NONE = new StoreJournal() {};
+
+    default void stockAdded(int productId, int quantity) {}
+
+    default void stockRemoved(int productId, int quantity) {}
+
+    default void paid(long amountMinor) {}
+
+    default void cashSet(long totalMinor) {}
+
+    /**
+     * Ждёт, пока всё, что записал текущий поток, окажется на диске (для режима group commit).
+     */
+    default void awaitDurable() {}
+}
@@ -0,0 +1,199 @@
+package proekt;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики обслуживания покупателей: гистограммы задержек всего чекаута и резерва корзины,
+ * счётчики исходов, нехватки, докупок и выручка по категориям.
+ * Счётчики точные. Успешную оплату и выручку по категориям и так считает касса (Payment) под
+ * блокировкой своей полосы — они читаются оттуда, а отдельные атомарные счётчики (LongAdder)
+ * есть только у более редких исходов: пустой корзины, отказа, нехватки денег. Задержки меряются
+ * у случайной выборки в среднем из каждого LATENCY_SAMPLE-го чекаута: System.nanoTime() стоит
+ * десятки наносекунд, и замер каждого покупателя один занял бы заметную долю чекаута,
+ * а на перцентили равномерная выборка не влияет.
+ * -Dproekt.metrics=false отключает запись совсем (проверка static final, JIT её убирает).
+ */
+public class StoreMetrics {
+
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("proekt.metrics"));
+    static final int LATENCY_SAMPLE = 32;
+    // Первые чекауты меряются все, чтобы при редких покупателях (консоль) гистограммы не пустовали
+    private static final int TIME_ALL_FIRST = 256;
+
+    private final LatencyHistogram checkoutLatency = new LatencyHistogram();
+    private final LatencyHistogram reservationLatency = new LatencyHistogram();
+    private final LongAdder[] results = new LongAdder[CheckoutResult.values().length];
+    private final LongAdder stockouts = new LongAdder();
+    private final LongAdder restocks = new LongAdder();
+    private final LongAdder restockedUnits = new LongAdder();
+    private final Payment register;
+    private final ContentionStats contention = new ContentionStats();
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger timedFirst = new AtomicInteger();
+    private volatile boolean timeAll = true;
+
+    public StoreMetrics(Payment register) {
+        this.register = register;
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    /**
+     * Счётчики конкуренции этого магазина; Store передаёт их складу, кассе и удержаниям.
+     */
+    public ContentionStats getContention() {
+        return contention;
+    }
+
+    /**
+     * Замерять ли задержки этого чекаута (случайная выборка без общего состояния между потоками).
+     */
+    boolean sampleLatency() {
+        return timeAll || (ThreadLocalRandom.current().nextInt() & (LATENCY_SAMPLE - 1)) == 0;
+    }
+
+    /**
+     * Исход чекаута; PAID не считается — это число оплат кассы.
+     */
+    void recordCheckout(CheckoutResult result) {
+        if (result != CheckoutResult.PAID) results[result.ordinal()].increment();
+    }
+
+    void recordCheckoutLatency(long nanos) {
+        checkoutLatency.record(nanos);
+        if (timeAll && timedFirst.incrementAndGet() >= TIME_ALL_FIRST) timeAll = false;
+    }
+
+    void recordReservation(long nanos) {
+        reservationLatency.record(nanos);
+    }
+
+    void recordStockout() {
+        stockouts.increment();
+    }
+
+    void recordRestock(int units) {
+        restocks.increment();
+        restockedUnits.add(units);
+    }
+
+    public LatencyHistogram.Snapshot getCheckoutLatency() {
+        return checkoutLatency.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot getReservationLatency() {
+        return reservationLatency.snapshot();
+    }
+
+    /**
+     * PAID читается из кассы без блокировок (Payment.peek()): метрики не останавливают кассиров.
+     */
+    public long getCount(CheckoutResult result) {
+        return result == CheckoutResult.PAID ? register.peek().getTransactions() : results[result.ordinal()].sum();
+    }
+
+    private long count(CheckoutResult result, Payment.Snapshot cash) {
+        return result == CheckoutResult.PAID ? cash.getTransactions() : results[result.ordinal()].sum();
+    }
+
+    /**
+     * Откаты: продавец отклонил, не хватило денег или резерв истёк до оплаты.
+     */
+    public long getRollbacks() {
+        return getCount(CheckoutResult.DECLINED) + getCount(CheckoutResult.INSUFFICIENT_FUNDS)
+                + getCount(CheckoutResult.HOLD_EXPIRED);
+    }
+
+    /**
+     * Строки корзин, которым при чекауте не хватило товара.
+     */
+    public long getStockouts() {
+        return stockouts.sum();
+    }
+
+    public long getRestocks() {
+        return restocks.sum();
+    }
+
+    public long getRestockedUnits() {
+        return restockedUnits.sum();
+    }
+
+    public long getRevenueMinor(Category category) {
+        return register.peek().getRevenueMinor(category);
+    }
+
+    /**
+     * Один оптимистичный срез кассы на весь отчёт: команда metrics и периодический дамп
+     * не блокируют полосы Payment.
+     */
+    public void print(PrintStream out, Store store) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        Payment.Snapshot cash = register.peek();
+        long served = 0;
+        for (CheckoutResult r : CheckoutResult.values()) served += count(r, cash);
+        out.printf("Uptime: %.1f s, customers: %d (%.1f/s)%n", seconds, served, seconds > 0 ? served / seconds : 0);
+        out.println("Checkout latency:    " + getCheckoutLatency() + " (1 in ~" + LATENCY_SAMPLE + " sampled)");
+        out.println("Reservation latency: " + getReservationLatency());
+        StringBuilder outcomes = new StringBuilder("Outcomes:");
+        for (CheckoutResult r : CheckoutResult.values()) outcomes.append(' ').append(r).append('=').append(count(r, cash));
+        out.println(outcomes);
+        out.println("Rollbacks: " + getRollbacks() + ", stockouts: " + getStockouts()
+                + ", restocks: " + getRestocks() + " (" + getRestockedUnits() + " units)");
+        StringBuilder revenue = new StringBuilder("Revenue:");
+        for (Category c : Category.values()) {
+            revenue.append(' ').append(c).append('=').append(Money.toBigDecimal(cash.getRevenueMinor(c)));
+        }
+        out.println(revenue);
+        out.println("Warehouse: " + store.getWarehouse());
+        out.println("Contention by thread:");
+        int shown = 0;
+        for (ContentionStats.Counters c : contention.snapshot()) {
+            if (shown++ == 16) {
+                out.println("  ...");
+                break;
+            }
+            out.println("  " + c);
+        }
+        if (shown == 0) out.println("  none");
+    }
+
+    /**
+     * Дописывает отчёт в file (с отметкой времени) раз в periodMillis в фоновом daemon-потоке.
+     */
+    public ScheduledExecutorService startDump(Store store, Path file, long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                dump(store, file);
+            } catch (IOException e) {
+                System.err.println("Metrics dump to " + file + " failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    public void dump(Store store, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), false, StandardCharsets.UTF_8)) {
+            out.println("=== " + LocalDateTime.now());
+            print(out, store);
+            out.println();
+        }
+    }
+}
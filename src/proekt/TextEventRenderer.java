@@ -0,0 +1,83 @@
+package proekt;
+
+/**
+ * Текстовый вывод событий — те же сообщения, что раньше печатал simulateCustomerArrival.
+ * Без ANSI-цветов, если пишем в файл.
+ */
+public class TextEventRenderer implements EventRenderer {
+
+    private static final String NL = System.lineSeparator();
+
+    private final ProductCatalog catalog;
+    private final boolean colored;
+
+    public TextEventRenderer(ProductCatalog catalog, boolean colored) {
+        this.catalog = catalog;
+        this.colored = colored;
+    }
+
+    @Override
+    public void render(StoreEvent e, StringBuilder out) {
+        switch (e.type) {
+            case ARRIVAL:
+                Ansi.banner(out, "CUSTOMER ARRIVED", color(Ansi.YELLOW));
+                out.append("ID=").append(e.customer.getUserId()).append(" Name=").append(e.customer.getName())
+                        .append(" Cash=").append(Money.toBigDecimal(e.amountMinor)).append(NL);
+                out.append("Wants:").append(NL);
+                for (ProductQuantity pq : e.desired) {
+                    out.append("  ").append(name(pq.getProductId())).append(" x").append(pq.getQuantity()).append(NL);
+                }
+                break;
+            case RESERVED:
+                line(out, Ansi.GREEN, " Reserved " + e.quantity + " x " + name(e.productId));
+                break;
+            case RESERVE_FAILED:
+                line(out, Ansi.RED, (e.afterRestock ? " Still failed to reserve " : " Failed to reserve ") + name(e.productId));
+                break;
+            case OUT_OF_STOCK:
+                line(out, Ansi.RED, " Not enough " + name(e.productId) + " in stock (have " + e.have + ", need " + e.quantity + ")");
+                break;
+            case RESTOCKED:
+                out.append(" Restocked ").append(e.quantity).append(" units. Trying to reserve...").append(NL);
+                break;
+            case SKIPPED:
+                out.append("Skipping ").append(name(e.productId)).append(NL);
+                break;
+            case EMPTY_BASKET:
+                out.append("Basket empty — customer leaves.").append(NL);
+                break;
+            case TOTAL:
+                line(out, Ansi.CYAN, "Total: " + Money.toBigDecimal(e.amountMinor));
+                break;
+            case DECLINED:
+                out.append("Payment declined by seller. Items returned to stock.").append(NL);
+                break;
+            case PAID:
+                line(out, Ansi.GREEN, "Payment successful. Customer leaves.");
+                out.append("Seller's register now: ").append(Money.toBigDecimal(e.registerMinor)).append(NL);
+                break;
+            case ROLLED_BACK:
+                line(out, Ansi.RED, "Customer has insufficient funds. Transaction rolled back.");
+                out.append("Items returned to stock.").append(NL);
+                break;
+            case HOLD_EXPIRED:
+                line(out, Ansi.RED, "Reservation expired before payment. Basket cancelled.");
+                break;
+        }
+    }
+
+    private String name(int productId) {
+        Product p = catalog.get(productId);
+        return p == null ? ("id:" + productId) : p.getName();
+    }
+
+    private String color(String ansi) {
+        return colored ? ansi : "";
+    }
+
+    private void line(StringBuilder out, String ansi, String text) {
+        if (colored) out.append(ansi).append(text).append(Ansi.RESET);
+        else out.append(text);
+        out.append(NL);
+    }
+}
@@ -0,0 +1,104 @@
+package proekt;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Хешированное колесо таймеров: запись (момент, long-значение) кладётся в корзину момент & mask.
+ * advance() обходит только корзины пройденных моментов, поэтому стоит O(сработавших + шагов),
+ * а не O(всех записей); записи «на следующих оборотах» остаются в корзине до своего момента.
+ * Единица момента задаёт пользователь (дни, миллисекунды, ...). Не потокобезопасно.
+ */
+final class TimerWheel {
+
+    private final long[][] ticks;
+    private final long[][] payloads;
+    private final int[] sizes;
+    private final int mask;
+    private long cursor;
+    private int size;
+
+    /**
+     * @param buckets число корзин (округляется до степени двойки)
+     * @param startTick последний уже обработанный момент
+     */
+    TimerWheel(int buckets, long startTick) {
+        int n = Integer.highestOneBit(Math.max(2, buckets) * 2 - 1);
+        ticks = new long[n][];
+        payloads = new long[n][];
+        sizes = new int[n];
+        mask = n - 1;
+        cursor = startTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Запись на уже пройденный момент сработает при ближайшем advance().
+     */
+    void schedule(long tick, long payload) {
+        int b = (int) (Math.max(tick, cursor + 1) & mask);
+        int n = sizes[b];
+        if (ticks[b] == null) {
+            ticks[b] = new long[4];
+            payloads[b] = new long[4];
+        } else if (n == ticks[b].length) {
+            ticks[b] = Arrays.copyOf(ticks[b], n * 2);
+            payloads[b] = Arrays.copyOf(payloads[b], n * 2);
+        }
+        ticks[b][n] = tick;
+        payloads[b][n] = payload;
+        sizes[b] = n + 1;
+        size++;
+    }
+
+    /**
+     * Продвигает колесо до момента now и отдаёт значения всех записей с моментом <= now.
+     */
+    void advance(long now, LongConsumer due) {
+        if (now <= cursor) return;
+        long steps = Math.min(now - cursor, ticks.length);
+        long t = cursor + 1;
+        cursor = now;
+        for (long i = 0; i < steps; i++, t++) {
+            int b = (int) (t & mask);
+            long[] bt = ticks[b];
+            long[] bp = payloads[b];
+            int n = sizes[b];
+            int kept = 0;
+            for (int j = 0; j < n; j++) {
+                if (bt[j] <= now) {
+                    size--;
+                    due.accept(bp[j]);
+                } else {
+                    bt[kept] = bt[j];
+                    bp[kept++] = bp[j];
+                }
+            }
+            sizes[b] = kept;
+        }
+    }
+
+    /**
+     * Значения записей с моментом в [from, to] без их удаления (просмотр корзин этого диапазона).
+     */
+    void forEachBetween(long from, long to, LongConsumer action) {
+        if (to < from) return;
+        long start = Math.max(from, cursor + 1);
+        if (start > to) return;
+        long steps = Math.min(to - start + 1, ticks.length);
+        for (long i = 0, t = start; i < steps; i++, t++) {
+            int b = (int) (t & mask);
+            for (int j = 0; j < sizes[b]; j++) {
+                long tick = ticks[b][j];
+                if (tick >= from && tick <= to) action.accept(payloads[b][j]);
+            }
+        }
+    }
+}
@@ -0,0 +1,551 @@
+package proekt;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Журнал изменений склада и кассы (event sourcing), только дописывание.
+ *
+ * Записи фиксированного размера (RECORD_SIZE байт) лежат в сегментах одинаковой длины,
+ * отображённых в память (MappedByteBuffer). Номер записи seq выдаёт один AtomicLong, поэтому
+ * писатели не блокируют друг друга: сегмент и смещение вычисляются из seq.
+ * Фоновый поток раз в flushIntervalMillis делает force() всем, что записано (group commit);
+ * в режиме syncCommit кассир после оплаты ждёт этого force() через awaitDurable().
+ * Долговечными объявляются только записи без пропусков: поток сверяет seq каждой записи
+ * подряд, поэтому медленный писатель с меньшим номером не окажется под force() недописанным.
+ * Сбой записи или свёртки закрывает журнал и будит ждущих с ошибкой, а не оставляет их висеть.
+ *
+ * Тот же поток сворачивает каждый заполненный и сброшенный на диск сегмент в снимок
+ * (остатки + итог кассы) и раз в snapshotEverySegments сегментов пишет снимок в файл,
+ * удаляя покрытые им сегменты. При запуске читается последний целый снимок и дописываются
+ * только более поздние записи, поэтому время восстановления не растёт вместе с журналом.
+ */
+public final class TransactionJournal implements StoreJournal, AutoCloseable {
+
+    static final int RECORD_SIZE = 32;
+    // seq записи публикуется release-записью и читается acquire: увидел seq — видишь и всю запись
+    private static final VarHandle SEQ = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final int TYPE_STOCK_ADDED = 1;
+    private static final int TYPE_STOCK_REMOVED = 2;
+    private static final int TYPE_PAID = 3;
+    private static final int TYPE_CASH_SET = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x534E4150; // "SNAP"
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private final Path dir;
+    private final int recordsPerSegment;
+    private final int snapshotEverySegments;
+    private final long flushIntervalNanos;
+    private final boolean syncCommit;
+
+    private final ConcurrentHashMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final Object segmentLock = new Object();
+
+    private final AtomicLong nextSeq;
+    private volatile long durableSeq;
+    private volatile Throwable failure;
+    // Lock, а не монитор: в JDK 21 wait() под synchronized не отпускает несущий поток виртуального потока
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durable = durableLock.newCondition();
+    private final ThreadLocal<long[]> lastWritten = ThreadLocal.withInitial(() -> new long[1]);
+
+    // Состояние, свёрнутое из снимка и всех запечатанных сегментов (только поток flusher)
+    private final State folded;
+    private long foldedSegments;
+    private long segmentsSinceSnapshot;
+
+    // Состояние на момент открытия: снимок + все целые записи журнала
+    private final State recovered;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private static final class Segment {
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Остатки и итог кассы, полученные сворачиванием записей.
+     */
+    static final class State {
+        final IntIntMap stock = new IntIntMap();
+        long totalMinor;
+        long seq;
+
+        void apply(int type, int productId, int quantity, long amount) {
+            switch (type) {
+                case TYPE_STOCK_ADDED -> stock.addTo(productId, quantity);
+                case TYPE_STOCK_REMOVED -> stock.addTo(productId, -quantity);
+                case TYPE_PAID -> totalMinor = Money.add(totalMinor, amount);
+                case TYPE_CASH_SET -> totalMinor = amount;
+                default -> throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        }
+
+        State copy() {
+            State s = new State();
+            stock.forEach(s.stock::put);
+            s.totalMinor = totalMinor;
+            s.seq = seq;
+            return s;
+        }
+    }
+
+    public TransactionJournal(Path dir, int recordsPerSegment, int snapshotEverySegments,
+                              long flushIntervalMillis, boolean syncCommit) throws IOException {
+        this.dir = dir;
+        this.recordsPerSegment = Math.max(1024, recordsPerSegment);
+        this.snapshotEverySegments = Math.max(1, snapshotEverySegments);
+        this.flushIntervalNanos = Math.max(1, flushIntervalMillis) * 1_000_000L;
+        this.syncCommit = syncCommit;
+        Files.createDirectories(dir);
+
+        this.folded = loadLatestSnapshot();
+        this.recovered = replaySegments();
+        this.nextSeq = new AtomicLong(recovered.seq + 1);
+        this.durableSeq = recovered.seq;
+
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static TransactionJournal open(Path dir) throws IOException {
+        return new TransactionJournal(dir, 256 * 1024, 4, 2, false);
+    }
+
+    public boolean isEmpty() {
+        return recovered.seq == 0;
+    }
+
+    public long getLastSeq() {
+        return nextSeq.get() - 1;
+    }
+
+    public long getDurableSeq() {
+        return durableSeq;
+    }
+
+    /**
+     * Переносит восстановленное состояние в пустые склад и кассу и подключает к ним журнал.
+     */
+    public void restoreInto(Warehouse warehouse, Payment payment) {
+        recovered.stock.forEach(warehouse::restoreStock);
+        payment.restoreTotalMinor(recovered.totalMinor);
+        warehouse.setJournal(this);
+        payment.setJournal(this);
+    }
+
+    // --- запись
+
+    @Override
+    public void stockAdded(int productId, int quantity) {
+        append(TYPE_STOCK_ADDED, productId, quantity, 0L);
+    }
+
+    @Override
+    public void stockRemoved(int productId, int quantity) {
+        append(TYPE_STOCK_REMOVED, productId, quantity, 0L);
+    }
+
+    @Override
+    public void paid(long amountMinor) {
+        append(TYPE_PAID, 0, 0, amountMinor);
+    }
+
+    @Override
+    public void cashSet(long totalMinor) {
+        append(TYPE_CASH_SET, 0, 0, totalMinor);
+    }
+
+    /**
+     * @throws IllegalStateException журнал сломался раньше, чем записи потока попали на диск
+     */
+    @Override
+    public void awaitDurable() {
+        if (!syncCommit) return;
+        long seq = lastWritten.get()[0];
+        if (seq <= durableSeq) return;
+        LockSupport.unpark(flusher);
+        durableLock.lock();
+        try {
+            while (durableSeq < seq && !closed) {
+                durable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            durableLock.unlock();
+        }
+        Throwable cause = failure;
+        if (durableSeq < seq && cause != null) throw new IllegalStateException("Journal failed", cause);
+    }
+
+    /**
+     * Ошибка, закрывшая журнал, или null.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private void append(int type, int productId, int quantity, long amount) {
+        if (closed) throw new IllegalStateException("Journal closed", failure);
+        long seq = nextSeq.getAndIncrement();
+        try {
+            MappedByteBuffer buf = segment(segmentOf(seq)).buffer;
+            int off = offsetOf(seq);
+            // Абсолютные put не трогают position, поэтому разные потоки пишут в свои записи без блокировок.
+            // seq пишется последним: запись без seq (или с неверной контрольной суммой) считается недописанной.
+            buf.putInt(off + 8, type);
+            buf.putInt(off + 12, productId);
+            buf.putInt(off + 16, quantity);
+            buf.putInt(off + 20, checksum(seq, type, productId, quantity, amount));
+            buf.putLong(off + 24, amount);
+            SEQ.setRelease(buf, off, seq);
+        } catch (RuntimeException | Error e) {
+            // Номер seq выдан, но записи нет: дальше неё ничего долговечным стать не может
+            fail(e);
+            throw e;
+        }
+        lastWritten.get()[0] = seq;
+    }
+
+    private long segmentOf(long seq) {
+        return (seq - 1) / recordsPerSegment;
+    }
+
+    private int offsetOf(long seq) {
+        return (int) ((seq - 1) % recordsPerSegment) * RECORD_SIZE;
+    }
+
+    private Segment segment(long index) {
+        Segment s = segments.get(index);
+        if (s != null) return s;
+        synchronized (segmentLock) {
+            s = segments.get(index);
+            if (s == null) {
+                try {
+                    s = map(segmentPath(index));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                segments.put(index, s);
+            }
+            return s;
+        }
+    }
+
+    private Segment map(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        return new Segment(ch, buf);
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%s%012d.jnl", SEGMENT_PREFIX, index));
+    }
+
+    private Path snapshotPath(long seq) {
+        return dir.resolve(String.format("%s%020d.snp", SNAPSHOT_PREFIX, seq));
+    }
+
+    static int checksum(long seq, int type, int productId, int quantity, long amount) {
+        long h = seq * 0x9E3779B97F4A7C15L;
+        h ^= type * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ (h >>> 29)) * 0xBF58476D1CE4E5B9L + productId;
+        h = (h ^ (h >>> 32)) * 0x94D049BB133111EBL + quantity;
+        h = (h ^ (h >>> 29)) * 0xBF58476D1CE4E5B9L + amount;
+        h ^= h >>> 31;
+        return (int) h | 1; // никогда не 0, чтобы нулевая область не выглядела записью
+    }
+
+    // --- group commit и снимки
+
+    private void signalDurable() {
+        durableLock.lock();
+        try {
+            durable.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * Закрывает журнал после сбоя: новые записи отклоняются, ждущие awaitDurable() получают ошибку.
+     */
+    private void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+            System.err.println("Journal " + dir + " failed: " + cause);
+        }
+        closed = true;
+        LockSupport.unpark(flusher);
+        signalDurable();
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                boolean stopping = closed;
+                long target = nextSeq.get() - 1;
+                if (target > durableSeq) {
+                    // Все выданные до target номера должны быть дописаны, прежде чем сбрасывать;
+                    // писатели заняты наносекунды, а упавший писатель ставит failure
+                    long ready = writtenUpTo(durableSeq, target);
+                    while (ready < target && failure == null) {
+                        Thread.onSpinWait();
+                        ready = writtenUpTo(ready, target);
+                    }
+                    if (ready > durableSeq) {
+                        for (long i = segmentOf(Math.max(1, durableSeq)); i <= segmentOf(ready); i++) {
+                            Segment s = segments.get(i);
+                            if (s != null) s.buffer.force();
+                        }
+                        durableSeq = ready;
+                        signalDurable();
+                    }
+                    if (failure != null) return;
+                    try {
+                        compact(ready);
+                    } catch (IOException e) {
+                        System.err.println("Journal snapshot failed: " + e.getMessage());
+                    }
+                }
+                if (stopping || failure != null) return;
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        } catch (RuntimeException | Error e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Последний seq, до которого после from все записи дописаны без пропусков (не дальше target).
+     */
+    private long writtenUpTo(long from, long target) {
+        long seq = from;
+        while (seq < target) {
+            Segment s = segments.get(segmentOf(seq + 1));
+            if (s == null || (long) SEQ.getAcquire(s.buffer, offsetOf(seq + 1)) != seq + 1) break;
+            seq++;
+        }
+        return seq;
+    }
+
+    /**
+     * Сворачивает сегменты, целиком лежащие на диске, и при необходимости пишет снимок.
+     */
+    private void compact(long durable) throws IOException {
+        long sealed = durable / recordsPerSegment; // число полностью записанных сегментов
+        while (foldedSegments < sealed) {
+            long index = foldedSegments;
+            Segment s = segments.remove(index);
+            if (s == null) s = map(segmentPath(index));
+            foldSegment(s.buffer, folded);
+            s.channel.close();
+            foldedSegments++;
+            segmentsSinceSnapshot++;
+            if (segmentsSinceSnapshot >= snapshotEverySegments) {
+                writeSnapshot(folded);
+                segmentsSinceSnapshot = 0;
+                deleteCoveredFiles(folded.seq);
+            }
+        }
+    }
+
+    /**
+     * Сворачивает полный сегмент; записи проверяются так же, как при восстановлении.
+     */
+    private void foldSegment(MappedByteBuffer buf, State state) {
+        if (countValid(buf, state.seq + 1) != recordsPerSegment) {
+            throw new IllegalStateException("Journal " + dir + " has a corrupt record after seq " + state.seq);
+        }
+        for (int off = 0; off < recordsPerSegment * RECORD_SIZE; off += RECORD_SIZE) {
+            state.apply(buf.getInt(off + 8), buf.getInt(off + 12), buf.getInt(off + 16), buf.getLong(off + 24));
+            state.seq = buf.getLong(off);
+        }
+    }
+
+    private void writeSnapshot(State state) throws IOException {
+        Path tmp = dir.resolve("snapshot.tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(tmp), crc)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(state.seq);
+            out.writeLong(state.totalMinor);
+            out.writeInt(state.stock.size());
+            IOException[] error = new IOException[1];
+            state.stock.forEach((id, q) -> {
+                try {
+                    out.writeInt(id);
+                    out.writeInt(q);
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) throw error[0];
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotPath(state.seq), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteCoveredFiles(long snapshotSeq) throws IOException {
+        long coveredSegments = snapshotSeq / recordsPerSegment;
+        for (Path p : list(SEGMENT_PREFIX)) {
+            long index = parseIndex(p, SEGMENT_PREFIX);
+            if (index < coveredSegments) Files.deleteIfExists(p);
+        }
+        for (Path p : list(SNAPSHOT_PREFIX)) {
+            if (parseIndex(p, SNAPSHOT_PREFIX) < snapshotSeq) Files.deleteIfExists(p);
+        }
+    }
+
+    // --- восстановление
+
+    private State loadLatestSnapshot() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            State s = readSnapshot(snapshots.get(i));
+            if (s != null) {
+                foldedSegments = s.seq / recordsPerSegment;
+                return s;
+            }
+        }
+        return new State();
+    }
+
+    private State readSnapshot(Path path) {
+        CRC32 crc = new CRC32();
+        // CheckedInputStream поверх буфера: в сумму попадают только прочитанные байты, без хвостовой CRC
+        try (BufferedInputStream raw = new BufferedInputStream(Files.newInputStream(path))) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc));
+            if (in.readInt() != SNAPSHOT_MAGIC) return null;
+            State s = new State();
+            s.seq = in.readLong();
+            s.totalMinor = in.readLong();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) s.stock.put(in.readInt(), in.readInt());
+            long expected = crc.getValue();
+            if (new DataInputStream(raw).readLong() != expected) return null;
+            return s;
+        } catch (IOException | RuntimeException e) {
+            return null; // повреждённый снимок — берём предыдущий
+        }
+    }
+
+    /**
+     * Дописывает к снимку все целые записи. Полные сегменты сворачиваются в folded,
+     * хвост последнего сегмента — только в итоговое состояние; мусор после хвоста затирается.
+     */
+    private State replaySegments() throws IOException {
+        long index = foldedSegments;
+        State result = null;
+        while (Files.exists(segmentPath(index))) {
+            Segment s = map(segmentPath(index));
+            int valid = countValid(s.buffer, folded.seq + 1);
+            if (valid == recordsPerSegment) {
+                foldSegment(s.buffer, folded);
+                foldedSegments++;
+                s.channel.close();
+                index++;
+                continue;
+            }
+            result = folded.copy();
+            for (int off = 0; off < valid * RECORD_SIZE; off += RECORD_SIZE) {
+                result.apply(s.buffer.getInt(off + 8), s.buffer.getInt(off + 12),
+                        s.buffer.getInt(off + 16), s.buffer.getLong(off + 24));
+                result.seq = s.buffer.getLong(off);
+            }
+            // Последний сегмент: очищаем недописанное, дальнейшие сегменты отбрасываем
+            for (int off = valid * RECORD_SIZE; off < recordsPerSegment * RECORD_SIZE; off += RECORD_SIZE) {
+                s.buffer.putLong(off, 0L);
+                s.buffer.putInt(off + 20, 0);
+            }
+            s.buffer.force();
+            segments.put(index, s);
+            index++;
+            break;
+        }
+        if (result == null) {
+            // Сегмента нет совсем: более поздние файлы означают дыру в журнале, молча терять их нельзя
+            for (Path p : list(SEGMENT_PREFIX)) {
+                if (parseIndex(p, SEGMENT_PREFIX) > index) {
+                    throw new IOException("Journal " + dir + " is missing segment " + index + " (found " + p.getFileName() + ")");
+                }
+            }
+            return folded.copy();
+        }
+        while (Files.exists(segmentPath(index))) Files.delete(segmentPath(index++));
+        return result;
+    }
+
+    private int countValid(MappedByteBuffer buf, long expected) {
+        int valid = 0;
+        for (int off = 0; off < recordsPerSegment * RECORD_SIZE; off += RECORD_SIZE, valid++, expected++) {
+            long seq = buf.getLong(off);
+            if (seq != expected || buf.getInt(off + 20) != checksum(seq, buf.getInt(off + 8),
+                    buf.getInt(off + 12), buf.getInt(off + 16), buf.getLong(off + 24))) break;
+        }
+        return valid;
+    }
+
+    private List<Path> list(String prefix) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().forEach(result::add);
+        }
+        return result;
+    }
+
+    private static long parseIndex(Path p, String prefix) {
+        String name = p.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.indexOf('.')));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        signalDurable();
+        for (Segment s : segments.values()) {
+            try {
+                s.channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -1,15 +1,17 @@
+package proekt;
+
 import java.math.BigDecimal;
 
 public class User {
 
     private Gender gender;
     private PsychoType type;
-    private BigDecimal cash;
+    private long cashMinor;
 
     public User(Gender gender, PsychoType type, BigDecimal cash) {
         this.gender = gender;
         this.type = type;
-        this.cash = cash == null ? BigDecimal.ZERO : cash;
+        this.cashMinor = Money.toMinor(cash);
     }
 
     public Gender getGender() {
@@ -29,11 +31,19 @@ public class User {
     }
 
     public BigDecimal getCash() {
-        return cash;
+        return Money.toBigDecimal(cashMinor);
     }
 
     public void setCash(BigDecimal cash) {
-        this.cash = cash;
+        this.cashMinor = Money.toMinor(cash);
+    }
+
+    public long getCashMinor() {
+        return cashMinor;
+    }
+
+    public void setCashMinor(long cashMinor) {
+        this.cashMinor = cashMinor;
     }
 
     public void leave() {
@@ -0,0 +1,523 @@
+package proekt;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасный склад. Остаток каждого товара — атомарный счётчик в StockStore (по умолчанию
+ * ConcurrentIntIntMap в памяти, для ассортимента больше кучи — CachedStockStore),
+ * резерв/списание идут через CAS без блокировок и без упаковки в Integer, поэтому кассы не мешают друг другу
+ * и продать больше, чем есть, невозможно. Резерв и расход по товарам — такие же счётчики в своих
+ * StockStore: со складом в файле в куче от них ничего не растёт с числом проданных товаров
+ * (в памяти остаются только каталог и партии со сроком).
+ * Зарезервированный товар всё ещё занимает место, пока покупка не подтверждена (commitReserved)
+ * или не отменена (release). Поэтому склад различает наличие (on-hand), резерв и доступное
+ * к продаже — и в целом, и по каждому товару.
+ * Занятое место ведётся отдельным счётчиком size и меняется на дельту, поэтому
+ * любая операция стоит O(1) независимо от числа товаров.
+ *
+ * Скоропортящийся товар заводится партиями со сроком (addLot, см. ExpiryLots): продаётся и списывается
+ * по FEFO — сначала партии с самым ранним сроком, а просроченные партии снимаются со склада
+ * evictExpired() по колесу дней истечения, а также при попытке резерва такого товара
+ * (по дате последнего evictExpired() — его стоит вызывать периодически).
+ */
+public class Warehouse {
+
+    /**
+     * Как reserveAll поступает с корзиной, которую нельзя зарезервировать целиком.
+     */
+    public enum ReserveMode {
+        /** Либо все строки, либо ни одной. */
+        ALL_OR_NOTHING,
+        /** Резервируются строки, которых хватает; остальные отмечаются как неудачные. */
+        BEST_EFFORT
+    }
+
+    /**
+     * Итог reserveAll по каждой строке корзины (в порядке исходного списка).
+     */
+    public static final class ReserveResult {
+        private final boolean[] reserved;
+        private int reservedLines;
+
+        ReserveResult(int lines) {
+            this.reserved = new boolean[lines];
+        }
+
+        public int getLines() {
+            return reserved.length;
+        }
+
+        public boolean isReserved(int line) {
+            return reserved[line];
+        }
+
+        public int getReservedLines() {
+            return reservedLines;
+        }
+
+        public boolean isComplete() {
+            return reservedLines == reserved.length;
+        }
+
+        void clear() {
+            Arrays.fill(reserved, false);
+            reservedLines = 0;
+        }
+    }
+
+    private final int capacity;
+    private final StockStore stock;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final StockStore reservedById;
+    private final StockStore consumed;
+    private final LongAdder reserveRequests = new LongAdder();
+    private final LongAdder stockouts = new LongAdder();
+    private volatile StoreJournal journal = StoreJournal.NONE;
+    private volatile ContentionStats contention = ContentionStats.NONE;
+    private final Clock clock;
+    private volatile int today;
+    private final ExpiryLots lots;
+    private final AtomicLong expired = new AtomicLong();
+
+    public Warehouse(int capacity) {
+        this(capacity, Clock.systemDefaultZone());
+    }
+
+    public Warehouse(int capacity, Clock clock) {
+        this(capacity, clock, new ConcurrentIntIntMap());
+    }
+
+    /**
+     * @param stock где хранить доступные остатки; должно быть пустым
+     */
+    public Warehouse(int capacity, Clock clock, StockStore stock) {
+        this(capacity, clock, stock, new ConcurrentIntIntMap(), new ConcurrentIntIntMap());
+    }
+
+    /**
+     * @param reserved резерв корзин по товарам; пустое
+     * @param consumed расход по товарам; пустое. Счётчик только растёт и может переполниться,
+     *                 поэтому CachedStockStore (ограничен ±2^30) сюда не подходит — берите StockFile
+     */
+    public Warehouse(int capacity, Clock clock, StockStore stock, StockStore reserved, StockStore consumed) {
+        this.capacity = Math.max(0, capacity);
+        this.stock = stock;
+        this.reservedById = reserved;
+        this.consumed = consumed;
+        this.clock = clock;
+        this.today = (int) LocalDate.now(clock).toEpochDay();
+        this.lots = new ExpiryLots(today - 1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getFreeSpace() {
+        return capacity - size.get();
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getReserved() {
+        return reserved.get();
+    }
+
+    /**
+     * Можно продать прямо сейчас: всё, что на складе, минус резервы корзин.
+     */
+    public int getAvailable() {
+        return size.get() - reserved.get();
+    }
+
+    /**
+     * Сколько единиц всего списано по истечении срока.
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public StockStore getStockStore() {
+        return stock;
+    }
+
+    public StockStore getReservedStore() {
+        return reservedById;
+    }
+
+    public StockStore getConsumedStore() {
+        return consumed;
+    }
+
+    public LocalDate getToday() {
+        return LocalDate.ofEpochDay(today);
+    }
+
+    public void setJournal(StoreJournal journal) {
+        this.journal = journal == null ? StoreJournal.NONE : journal;
+    }
+
+    /**
+     * Счётчики конкуренции склада и его хранилищ остатков, резервов и расхода.
+     */
+    public void setContentionStats(ContentionStats stats) {
+        this.contention = stats == null ? ContentionStats.NONE : stats;
+        stock.setContentionStats(stats);
+        reservedById.setContentionStats(stats);
+        consumed.setContentionStats(stats);
+    }
+
+    /**
+     * Доступные остатки (без нулевых позиций), только для чтения.
+     */
+    public Map<Integer, Integer> getStock() {
+        return stock.asPositiveMap();
+    }
+
+    /**
+     * Доступно к резерву (то же, что getAvailable(productId)).
+     */
+    public int getQuantity(int productId) {
+        return stock.get(productId);
+    }
+
+    public int getAvailable(int productId) {
+        return stock.get(productId);
+    }
+
+    public int getReserved(int productId) {
+        return reservedById.get(productId);
+    }
+
+    /**
+     * Сколько единиц товара ушло со склада продажами и списаниями (не по сроку) с начала работы.
+     * Счётчик int и может переполниться — для темпа расхода берите разность двух чтений.
+     */
+    public int getConsumed(int productId) {
+        return consumed.get(productId);
+    }
+
+    /**
+     * Строк резерва запрошено (tryReserve и строки reserveAll).
+     */
+    public long getReserveRequests() {
+        return reserveRequests.sum();
+    }
+
+    /**
+     * Из них не хватило товара.
+     */
+    public long getStockouts() {
+        return stockouts.sum();
+    }
+
+    /**
+     * Физически на складе: доступное плюс зарезервированное корзинами.
+     */
+    public int getOnHand(int productId) {
+        return stock.get(productId) + reservedById.get(productId);
+    }
+
+    public void forEachStock(IntIntConsumer action) {
+        stock.forEach((id, q) -> {
+            if (q > 0) action.accept(id, q);
+        });
+    }
+
+    public boolean addProduct(int productId, int quantity) {
+        if (quantity <= 0 || !claimSpace(quantity)) return false;
+        stock.addAndGet(productId, quantity);
+        journal.stockAdded(productId, quantity);
+        return true;
+    }
+
+    /**
+     * Поступление партии со сроком годности (включительно). Партия с уже истёкшим сроком
+     * не принимается; без срока — то же, что addProduct.
+     */
+    public boolean addLot(int productId, int quantity, LocalDate expireDate) {
+        if (expireDate == null) return addProduct(productId, quantity);
+        int day = (int) expireDate.toEpochDay();
+        if (day < today || quantity <= 0 || !claimSpace(quantity)) return false;
+        stock.addAndGet(productId, quantity);
+        lots.add(productId, quantity, day);
+        journal.stockAdded(productId, quantity);
+        return true;
+    }
+
+    /**
+     * Назначает срок единицам, уже принятым на склад (например, через addAll при загрузке ассортимента).
+     * Уже истёкшие партии будут списаны ближайшим evictExpired().
+     */
+    void dateStock(int productId, int quantity, LocalDate expireDate) {
+        if (expireDate == null || quantity <= 0) return;
+        lots.add(productId, quantity, (int) expireDate.toEpochDay());
+    }
+
+    /**
+     * Партии товара от самой ранней (пусто для бессрочного товара).
+     */
+    public List<StockLot> getLots(int productId) {
+        return lots.lotsOf(productId);
+    }
+
+    /**
+     * Партии, истекающие в ближайшие days дней (сегодня включительно), — кандидаты на уценку.
+     */
+    public List<StockLot> expiringWithin(int days) {
+        int from = today;
+        return lots.expiringBetween(from, from + Math.max(0, days));
+    }
+
+    /**
+     * Снимает со склада партии, чей срок истёк к текущей дате часов склада; возвращает число
+     * списанных единиц. Обрабатываются только товары из сработавших корзин колеса.
+     * Просроченные единицы, которые сейчас в резерве, будут списаны при следующем вызове,
+     * если покупка не состоится.
+     */
+    public int evictExpired() {
+        int day = (int) LocalDate.now(clock).toEpochDay();
+        if (day > today) today = day;
+        int[] evicted = new int[1];
+        lots.advance(today - 1, productId -> evicted[0] += evict(productId, today));
+        return evicted[0];
+    }
+
+    public boolean removeProduct(int productId, int quantity) {
+        if (!take(productId, quantity)) return false;
+        size.addAndGet(-quantity);
+        consumeLots(productId, quantity);
+        consumed.addAndGet(productId, quantity);
+        journal.stockRemoved(productId, quantity);
+        return true;
+    }
+
+    /**
+     * Пополнение паллетой: место под всю партию занимается одной операцией,
+     * либо партия не принимается целиком.
+     */
+    public boolean addAll(List<ProductQuantity> items) {
+        int total = 0;
+        for (ProductQuantity pq : items) {
+            if (pq.getQuantity() <= 0) return false;
+            total = Math.addExact(total, pq.getQuantity());
+        }
+        if (total == 0 || !claimSpace(total)) return false;
+        for (ProductQuantity pq : items) {
+            stock.addAndGet(pq.getProductId(), pq.getQuantity());
+            journal.stockAdded(pq.getProductId(), pq.getQuantity());
+        }
+        return true;
+    }
+
+    /**
+     * То же для партии в виде IntIntMap id -> количество (массовая загрузка остатков).
+     */
+    public boolean addAll(IntIntMap items) {
+        long[] total = new long[1];
+        boolean[] valid = {true};
+        items.forEach((id, q) -> {
+            if (q <= 0) valid[0] = false;
+            total[0] += q;
+        });
+        if (!valid[0] || total[0] == 0 || total[0] > Integer.MAX_VALUE || !claimSpace((int) total[0])) return false;
+        items.forEach((id, q) -> {
+            stock.addAndGet(id, q);
+            journal.stockAdded(id, q);
+        });
+        return true;
+    }
+
+    /**
+     * Списание нескольких позиций: либо все, либо ни одной.
+     */
+    public boolean removeAll(List<ProductQuantity> items) {
+        int taken = 0;
+        int total = 0;
+        for (; taken < items.size(); taken++) {
+            ProductQuantity pq = items.get(taken);
+            if (!take(pq.getProductId(), pq.getQuantity())) break;
+            total += pq.getQuantity();
+        }
+        if (taken < items.size()) {
+            for (int i = 0; i < taken; i++) {
+                ProductQuantity pq = items.get(i);
+                stock.addAndGet(pq.getProductId(), pq.getQuantity());
+            }
+            return false;
+        }
+        size.addAndGet(-total);
+        for (ProductQuantity pq : items) {
+            consumeLots(pq.getProductId(), pq.getQuantity());
+            consumed.addAndGet(pq.getProductId(), pq.getQuantity());
+            journal.stockRemoved(pq.getProductId(), pq.getQuantity());
+        }
+        return true;
+    }
+
+    /**
+     * Атомарно резервирует quantity единиц, если их хватает. Заменяет связку
+     * getStock().get() + removeProduct(), между которыми другой поток мог забрать товар.
+     */
+    public boolean tryReserve(int productId, int quantity) {
+        if (quantity <= 0) return false;
+        if (!lots.isEmpty()) evictIfExpired(productId);
+        reserveRequests.increment();
+        // Место остаётся занятым (size не меняется), пока резерв не выкуплен
+        if (!take(productId, quantity)) {
+            stockouts.increment();
+            return false;
+        }
+        reservedById.addAndGet(productId, quantity);
+        reserved.addAndGet(quantity);
+        return true;
+    }
+
+    /**
+     * Резервирует всю корзину за один проход. Строки обрабатываются в едином глобальном порядке
+     * (по productId), поэтому две корзины с общими товарами не перехватывают остатки крест-накрест
+     * так, что не удаётся ни одной. Блокировок нет — только CAS на счётчике товара;
+     * общие счётчики резерва меняются один раз на корзину.
+     * Строка резервируется целиком или не резервируется; при ALL_OR_NOTHING неудача любой строки
+     * откатывает уже взятые.
+     */
+    public ReserveResult reserveAll(List<ProductQuantity> items, ReserveMode mode) {
+        int n = items.size();
+        ReserveResult result = new ReserveResult(n);
+        if (n == 0) return result;
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) order[i] = ((long) items.get(i).getProductId() << 32) | i;
+        Arrays.sort(order);
+
+        boolean checkExpiry = !lots.isEmpty();
+        reserveRequests.add(n);
+        int total = 0;
+        for (int k = 0; k < n; k++) {
+            int line = (int) order[k];
+            ProductQuantity pq = items.get(line);
+            int quantity = pq.getQuantity();
+            if (quantity > 0 && checkExpiry) evictIfExpired(pq.getProductId());
+            if (take(pq.getProductId(), quantity)) {
+                reservedById.addAndGet(pq.getProductId(), quantity);
+                result.reserved[line] = true;
+                result.reservedLines++;
+                total += quantity;
+            } else {
+                stockouts.increment();
+                if (mode == ReserveMode.BEST_EFFORT) continue;
+                for (int j = 0; j < k; j++) {
+                    ProductQuantity taken = items.get((int) order[j]);
+                    stock.addAndGet(taken.getProductId(), taken.getQuantity());
+                    reservedById.addAndGet(taken.getProductId(), -taken.getQuantity());
+                }
+                result.clear();
+                return result;
+            }
+        }
+        if (total > 0) reserved.addAndGet(total);
+        return result;
+    }
+
+    /**
+     * Возвращает ранее зарезервированный товар в продажу.
+     */
+    public void release(int productId, int quantity) {
+        if (quantity <= 0) return;
+        stock.addAndGet(productId, quantity);
+        reservedById.addAndGet(productId, -quantity);
+        reserved.addAndGet(-quantity);
+    }
+
+    /**
+     * Резерв выкуплен — товар покидает склад и освобождает место.
+     */
+    public void commitReserved(int productId, int quantity) {
+        if (quantity <= 0) return;
+        reservedById.addAndGet(productId, -quantity);
+        reserved.addAndGet(-quantity);
+        size.addAndGet(-quantity);
+        consumeLots(productId, quantity);
+        consumed.addAndGet(productId, quantity);
+        journal.stockRemoved(productId, quantity);
+    }
+
+    /**
+     * Восстановление остатка при запуске (из журнала): без проверки вместимости и без записи в журнал.
+     */
+    void restoreStock(int productId, int quantity) {
+        if (quantity <= 0) return;
+        stock.addAndGet(productId, quantity);
+        size.addAndGet(quantity);
+    }
+
+    @Override
+    public String toString() {
+        return "Warehouse{capacity=" + capacity + ", onHand=" + size.get() + ", reserved=" + reserved.get()
+                + ", available=" + getAvailable() + ", products=" + stock.size() + ", expired=" + expired.get() + "}";
+    }
+
+    private void consumeLots(int productId, int quantity) {
+        if (lots.isEmpty()) return;
+        ExpiryLots.Lots l = lots.get(productId);
+        if (l != null) l.consume(quantity);
+    }
+
+    private void evictIfExpired(int productId) {
+        ExpiryLots.Lots l = lots.get(productId);
+        if (l != null && l.earliestDay() < today) evict(productId, today);
+    }
+
+    /**
+     * Списывает доступные единицы просроченных партий товара; то, что в резерве, остаётся на потом.
+     */
+    private int evict(int productId, int day) {
+        ExpiryLots.Lots l = lots.get(productId);
+        if (l == null) return 0;
+        synchronized (l) {
+            int due = l.quantityBefore(day);
+            if (due == 0) return 0;
+            int taken = takeUpTo(productId, due);
+            if (taken > 0) {
+                l.removeBefore(day, taken);
+                size.addAndGet(-taken);
+                expired.addAndGet(taken);
+                journal.stockRemoved(productId, taken);
+            }
+            if (taken < due) lots.retry(productId);
+            return taken;
+        }
+    }
+
+    private int takeUpTo(int productId, int quantity) {
+        while (true) {
+            int have = stock.get(productId);
+            int take = Math.min(have, quantity);
+            if (take <= 0) return 0;
+            if (stock.tryDecrement(productId, take)) return take;
+            contention.casRetry();
+        }
+    }
+
+    private boolean claimSpace(int quantity) {
+        while (true) {
+            int curr = size.get();
+            if (quantity > capacity - curr) return false;
+            if (size.compareAndSet(curr, curr + quantity)) return true;
+            contention.casRetry();
+        }
+    }
+
+    private boolean take(int productId, int quantity) {
+        return quantity > 0 && stock.tryDecrement(productId, quantity);
+    }
+}
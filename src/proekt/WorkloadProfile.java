@@ -0,0 +1,204 @@
+package proekt;
+
+import java.util.Arrays;
+
+/**
+ * Форма нагрузки для CustomerGenerator: популярность товаров, состав покупателей и то,
+ * как PsychoType и Gender влияют на корзину и кошелёк. Неизменяем; with...() возвращают копию.
+ *
+ * Популярность — Zipf по позиции в каталоге: ранг 1 — первый товар каталога (самый «горячий» SKU),
+ * вероятность ранга k ~ 1/k^zipf; zipf = 0 — все товары равновероятны.
+ */
+public final class WorkloadProfile {
+
+    /**
+     * Поведение одного психотипа: сколько разных товаров берёт (равномерно в [minLines, maxLines]),
+     * до скольки штук каждого и сколько денег носит: логнормально с медианой cashMedian и разбросом
+     * cashSigma (0 — равномерно от 0 до 2 * cashMedian).
+     */
+    public static final class Shape {
+        private final int minLines;
+        private final int maxLines;
+        private final int maxQuantity;
+        private final double cashMedian;
+        private final double cashSigma;
+
+        public Shape(int minLines, int maxLines, int maxQuantity, double cashMedian, double cashSigma) {
+            if (minLines < 1 || maxLines < minLines || maxQuantity < 1 || cashMedian < 0 || cashSigma < 0) {
+                throw new IllegalArgumentException("Invalid shape: lines " + minLines + ".." + maxLines
+                        + ", quantity 1.." + maxQuantity + ", cash " + cashMedian + "/" + cashSigma);
+            }
+            this.minLines = minLines;
+            this.maxLines = maxLines;
+            this.maxQuantity = maxQuantity;
+            this.cashMedian = cashMedian;
+            this.cashSigma = cashSigma;
+        }
+
+        public int getMinLines() {
+            return minLines;
+        }
+
+        public int getMaxLines() {
+            return maxLines;
+        }
+
+        public int getMaxQuantity() {
+            return maxQuantity;
+        }
+
+        public double getCashMedian() {
+            return cashMedian;
+        }
+
+        public double getCashSigma() {
+            return cashSigma;
+        }
+
+        @Override
+        public String toString() {
+            return "lines " + minLines + ".." + maxLines + ", qty 1.." + maxQuantity
+                    + ", cash " + cashMedian + (cashSigma > 0 ? " (lognormal " + cashSigma + ")" : " (uniform)");
+        }
+    }
+
+    private final String name;
+    private final double zipf;
+    private final double[] typeWeights;   // по PsychoType.ordinal()
+    private final Shape[] shapes;         // по PsychoType.ordinal()
+    private final double[] genderWeights;   // по Gender.ordinal()
+    private final double[] genderCashScale; // по Gender.ordinal()
+
+    /**
+     * Веса психотипов и полов нормируются (в сумме не обязаны давать 1).
+     */
+    public WorkloadProfile(String name, double zipf, double[] typeWeights, Shape[] shapes,
+                           double[] genderWeights, double[] genderCashScale) {
+        int genders = Gender.values().length;
+        if (zipf < 0 || shapes.length != PsychoType.values().length || genderCashScale.length != genders) {
+            throw new IllegalArgumentException("Invalid workload profile " + name);
+        }
+        this.name = name;
+        this.zipf = zipf;
+        this.typeWeights = normalize(name, "PsychoType", typeWeights, PsychoType.values().length);
+        this.shapes = shapes.clone();
+        this.genderWeights = normalize(name, "Gender", genderWeights, genders);
+        this.genderCashScale = genderCashScale.clone();
+    }
+
+    /**
+     * Прежняя форма: любой товар равновероятен, 1..3 товара по 1..5 штук, деньги равномерно 0..100,
+     * психотип и пол ни на что не влияют.
+     */
+    public static WorkloadProfile uniform() {
+        Shape any = new Shape(1, 3, 5, 50, 0);
+        return new WorkloadProfile("uniform", 0, new double[]{1, 1, 1, 1},
+                new Shape[]{any, any, any, any}, new double[]{1, 1, 0}, new double[]{1, 1, 1});
+    }
+
+    /**
+     * Магазин «как в жизни»: популярность по Zipf с показателем 1, спокойные берут средние корзины
+     * и платят уверенно, агрессивные — большие корзины и меньше денег, тревожные — 1-2 товара.
+     */
+    public static WorkloadProfile standard() {
+        Shape[] shapes = new Shape[PsychoType.values().length];
+        shapes[PsychoType.CALM.ordinal()] = new Shape(1, 3, 3, 60, 0.4);
+        shapes[PsychoType.AGGRESSIVE.ordinal()] = new Shape(2, 5, 5, 40, 0.8);
+        shapes[PsychoType.ANXIOUS.ordinal()] = new Shape(1, 2, 2, 25, 0.5);
+        shapes[PsychoType.NEUTRAL.ordinal()] = new Shape(1, 4, 4, 50, 0.6);
+        return new WorkloadProfile("standard", 1.0, new double[]{3, 1, 1, 5}, shapes,
+                new double[]{48, 48, 4}, new double[]{1.0, 1.1, 1.0});
+    }
+
+    /**
+     * Профиль по имени: standard или uniform.
+     */
+    public static WorkloadProfile named(String name) {
+        switch (name.toLowerCase()) {
+            case "standard":
+                return standard();
+            case "uniform":
+                return uniform();
+            default:
+                throw new IllegalArgumentException("Unknown workload profile: " + name + " (standard|uniform)");
+        }
+    }
+
+    public WorkloadProfile withZipf(double zipf) {
+        return new WorkloadProfile(name, zipf, typeWeights, shapes, genderWeights, genderCashScale);
+    }
+
+    public WorkloadProfile withShape(PsychoType type, Shape shape) {
+        Shape[] copy = shapes.clone();
+        copy[type.ordinal()] = shape;
+        return new WorkloadProfile(name, zipf, typeWeights, copy, genderWeights, genderCashScale);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getZipf() {
+        return zipf;
+    }
+
+    public double getTypeWeight(PsychoType type) {
+        return typeWeights[type.ordinal()];
+    }
+
+    public Shape getShape(PsychoType type) {
+        return shapes[type.ordinal()];
+    }
+
+    public double getGenderWeight(Gender gender) {
+        return genderWeights[gender.ordinal()];
+    }
+
+    public double getCashScale(Gender gender) {
+        return genderCashScale[gender.ordinal()];
+    }
+
+    /**
+     * Психотип по равномерному u из [0, 1) согласно весам профиля.
+     */
+    PsychoType pickType(double u) {
+        return PsychoType.values()[pick(typeWeights, u)];
+    }
+
+    Gender pickGender(double u) {
+        return Gender.values()[pick(genderWeights, u)];
+    }
+
+    // Последний индекс с ненулевым весом забирает остаток от погрешности округления
+    private static int pick(double[] weights, double u) {
+        int last = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] == 0) continue;
+            last = i;
+            u -= weights[i];
+            if (u < 0) return i;
+        }
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadProfile{" + name + ", zipf=" + zipf + ", types=" + Arrays.toString(typeWeights)
+                + ", genders=" + Arrays.toString(genderWeights) + "}";
+    }
+
+    private static double[] normalize(String profile, String what, double[] weights, int expected) {
+        if (weights.length != expected) {
+            throw new IllegalArgumentException(what + " weights of " + profile + ": expected " + expected);
+        }
+        double sum = 0;
+        for (double w : weights) {
+            if (w < 0) throw new IllegalArgumentException("Negative " + what + " weight in " + profile);
+            sum += w;
+        }
+        if (sum <= 0) throw new IllegalArgumentException("No " + what + " has weight in " + profile);
+        double[] result = new double[expected];
+        for (int i = 0; i < expected; i++) result[i] = weights[i] / sum;
+        return result;
+    }
+}
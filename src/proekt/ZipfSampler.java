@@ -0,0 +1,73 @@
+package proekt;
+
+import java.util.SplittableRandom;
+
+/**
+ * Выборка ранга 1..n с вероятностью ~ 1/k^exponent за O(1) без таблиц (rejection-inversion,
+ * W. Hörmann, G. Derflinger), поэтому годится и для каталога из миллионов товаров.
+ * Неизменяем; случайность приходит снаружи, так что один сэмплер делят все потоки.
+ */
+final class ZipfSampler {
+
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1) throw new IllegalArgumentException("n must be >= 1: " + n);
+        if (!(exponent > 0)) throw new IllegalArgumentException("exponent must be > 0: " + exponent);
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    int size() {
+        return n;
+    }
+
+    /**
+     * Ранг от 1 (самый популярный) до n.
+     */
+    int sample(SplittableRandom rnd) {
+        while (true) {
+            double u = hIntegralN + rnd.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) return k;
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) t = -1; // погрешность округления у края области
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x без потери точности около нуля
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x без потери точности около нуля
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
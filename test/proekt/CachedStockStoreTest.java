@@ -0,0 +1,139 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedStockStoreTest {
+
+    private static final int PRODUCTS = 1000;
+    private static final int CACHE = 16; // на порядки меньше числа товаров: вытеснение на каждом шагу
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Потоки меняют остатки, пока фоновая запись сбрасывает кэш в файл, а промахи вытесняют
+     * товары; после всего и кэш, и файл должны показывать каждое изменение ровно один раз.
+     */
+    @Test
+    void evictionAndWriteBehindKeepEveryUpdate() throws Exception {
+        StockFile file = StockFile.create(dir.resolve("stock.dat"), PRODUCTS);
+        CachedStockStore cache = new CachedStockStore(file, CACHE);
+        ScheduledExecutorService writeBehind = cache.start(1);
+        int threads = 4;
+        int rounds = 20;
+
+        run(threads, () -> {
+            for (int r = 0; r < rounds; r++) {
+                // Каждый поток проходит товары со своего места, чтобы наборы кэша делили разные товары
+                int start = ThreadLocalRandom.current().nextInt(PRODUCTS);
+                for (int k = 0; k < PRODUCTS; k++) {
+                    int id = 1 + (start + k) % PRODUCTS;
+                    cache.addAndGet(id, 2);
+                    assertTrue(cache.tryDecrement(id, 1));
+                }
+            }
+        });
+        writeBehind.shutdownNow();
+        assertTrue(writeBehind.awaitTermination(10, TimeUnit.SECONDS));
+
+        int expected = threads * rounds;
+        for (int id = 1; id <= PRODUCTS; id++) assertEquals(expected, cache.get(id), "product " + id);
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getWriteBacks() > 0);
+        long[] sum = new long[1];
+        cache.forEach((id, q) -> sum[0] += q);
+        assertEquals((long) expected * PRODUCTS, sum[0]);
+
+        cache.flush();
+        for (int id = 1; id <= PRODUCTS; id++) assertEquals(expected, file.get(id), "file, product " + id);
+        cache.close();
+    }
+
+    /**
+     * Нехватка решается по тому остатку, что сейчас в кэше или в файле: товар,
+     * вытесняемый между попытками, не продаётся сверх остатка.
+     */
+    @Test
+    void tryDecrementNeverOversellsUnderEviction() throws Exception {
+        StockFile file = StockFile.create(dir.resolve("stock.dat"), PRODUCTS);
+        CachedStockStore cache = new CachedStockStore(file, CACHE);
+        int initial = 50;
+        for (int id = 1; id <= PRODUCTS; id++) cache.addAndGet(id, initial);
+        ScheduledExecutorService writeBehind = cache.start(1);
+        AtomicIntegerArray sold = new AtomicIntegerArray(PRODUCTS + 1);
+
+        run(4, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 40_000; i++) {
+                int id = 1 + random.nextInt(PRODUCTS);
+                int units = 1 + random.nextInt(2);
+                if (cache.tryDecrement(id, units)) sold.addAndGet(id, units);
+            }
+        });
+        writeBehind.shutdownNow();
+        assertTrue(writeBehind.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int id = 1; id <= PRODUCTS; id++) {
+            int left = cache.get(id);
+            assertTrue(left >= 0, "product " + id + " oversold: " + left);
+            assertEquals(initial - sold.get(id), left, "product " + id);
+        }
+        cache.close();
+    }
+
+    /**
+     * Склад поверх кэшей остатков и резервов: то же сохранение единиц, что и в куче.
+     */
+    @Test
+    void warehouseOnCachedStoresBalancesReserves() throws IOException {
+        CachedStockStore stock = new CachedStockStore(StockFile.create(dir.resolve("stock.dat"), PRODUCTS), CACHE);
+        CachedStockStore reserved = new CachedStockStore(StockFile.create(dir.resolve("reserved.dat"), PRODUCTS), CACHE);
+        Warehouse warehouse = new Warehouse(Integer.MAX_VALUE, Clock.systemDefaultZone(), stock, reserved,
+                new ConcurrentIntIntMap());
+        for (int id = 1; id <= PRODUCTS; id++) warehouse.addProduct(id, 10);
+        for (int id = 1; id <= PRODUCTS; id++) assertTrue(warehouse.tryReserve(id, 3));
+        for (int id = 1; id <= PRODUCTS; id += 2) warehouse.commitReserved(id, 3);
+        for (int id = 2; id <= PRODUCTS; id += 2) warehouse.release(id, 3);
+
+        assertEquals(0, warehouse.getReserved());
+        for (int id = 1; id <= PRODUCTS; id++) {
+            assertEquals(0, warehouse.getReserved(id));
+            assertEquals(id % 2 == 1 ? 7 : 10, warehouse.getAvailable(id), "product " + id);
+        }
+        assertTrue(stock.getEvictions() > 0 && reserved.getEvictions() > 0);
+        stock.close();
+        reserved.close();
+    }
+
+    private static void run(int threads, Runnable task) throws InterruptedException {
+        List<Thread> started = new ArrayList<>();
+        Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((th, e) -> {
+                synchronized (failure) {
+                    if (failure[0] == null) failure[0] = e;
+                }
+            });
+            started.add(thread);
+            thread.start();
+        }
+        for (Thread thread : started) thread.join();
+        synchronized (failure) {
+            if (failure[0] != null) fail(failure[0]);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogLoaderTest {
+
+    private static final int THREADS = 2;
+    private static final int CHUNKS = 3; // файл ~3 МБ при куске не меньше 1 МБ
+
+    @TempDir
+    Path dir;
+
+    private static String name(int id) {
+        return "Item \"" + id + "\", boxed";
+    }
+
+    private static String description(int id) {
+        return "lot " + id + " " + "x".repeat(100 + id % 50);
+    }
+
+    private static String line(int id) {
+        String date = id % 3 == 0 ? "" : LocalDate.of(2030, 1 + id % 12, 1 + id % 28).toString();
+        return id + ",\"" + name(id).replace("\"", "\"\"") + "\"," + Category.values()[id % Category.values().length]
+                + "," + id + "." + (id % 100 < 10 ? "0" : "") + id % 100 + "," + date
+                + ",\"" + description(id) + "\"," + id % 7 + "\r\n";
+    }
+
+    /**
+     * Файл режется на куски по сырым смещениям; запись, через которую проходит граница,
+     * должна достаться ровно одному куску целиком.
+     */
+    @Test
+    void recordSplitByChunkBoundaryIsParsedOnce() throws IOException {
+        StringBuilder csv = new StringBuilder("id,name,category,price,expireDate,description,quantity\r\n");
+        csv.append("# комментарий\n\n");
+        int count = 0;
+        while (csv.length() < CHUNKS << 20) csv.append(line(++count));
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path path = dir.resolve("assortment.csv");
+        Files.write(path, bytes);
+        for (int i = 1; i < CHUNKS; i++) {
+            int raw = bytes.length / CHUNKS * i;
+            assertNotEquals('\n', bytes[raw - 1], "the boundary must fall inside a record");
+        }
+
+        CatalogLoader.Assortment assortment = CatalogLoader.readCsv(path, THREADS);
+        List<Product> products = assortment.getProducts();
+        assertEquals(count, products.size());
+        int stocked = 0;
+        for (int id = 1; id <= count; id++) {
+            Product p = products.get(id - 1);
+            assertEquals(id, p.getProductId());
+            assertEquals(name(id), p.getName());
+            assertEquals(description(id), p.getDescription());
+            assertEquals(Category.values()[id % Category.values().length], p.getCategory());
+            assertEquals(id * 100L + id % 100, p.getPriceMinor());
+            assertEquals(id % 3 == 0 ? null : LocalDate.of(2030, 1 + id % 12, 1 + id % 28), p.getExpireDate());
+            assertEquals(id % 7, assortment.getStock().get(id, 0));
+            if (id % 7 > 0) stocked++;
+        }
+        assertEquals(stocked, assortment.getStock().size());
+    }
+
+    @Test
+    void badLineReportsItsByteOffset() throws IOException {
+        String good = "1,Milk,FOOD,1.50,,,3\n";
+        Path path = dir.resolve("bad.csv");
+        Files.writeString(path, good + "2,\"Soap,HOME,2.00,,,1\n");
+
+        IOException e = assertThrows(IOException.class, () -> CatalogLoader.readCsv(path, THREADS));
+        assertTrue(e.getMessage().contains("byte " + good.length()), e.getMessage());
+        assertTrue(e.getMessage().contains("unterminated quote"), e.getMessage());
+    }
+}
@@ -0,0 +1,47 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentionStatsTest {
+
+    private static long casRetries(List<ContentionStats.Counters> counters) {
+        long sum = 0;
+        for (ContentionStats.Counters c : counters) sum += c.getCasRetries();
+        return sum;
+    }
+
+    @Test
+    void finishedThreadsAreFoldedIntoOneEntry() throws InterruptedException {
+        ContentionStats stats = new ContentionStats();
+        for (int i = 0; i < 10; i++) {
+            Thread t = new Thread(() -> {
+                stats.casRetry();
+                stats.casRetry();
+            }, "worker-" + i);
+            t.start();
+            t.join();
+        }
+
+        List<ContentionStats.Counters> snapshot = stats.snapshot();
+        assertEquals(1, snapshot.size(), snapshot.toString());
+        assertEquals("finished threads", snapshot.get(0).getThread());
+        assertEquals(20, casRetries(snapshot));
+        assertEquals(20, casRetries(stats.snapshot()), "folding happens once");
+    }
+
+    @Test
+    void storesDoNotShareCounters() {
+        ContentionStats first = new ContentionStats();
+        ContentionStats second = new ContentionStats();
+        first.spin();
+
+        assertEquals(1, first.snapshot().size());
+        assertTrue(second.snapshot().isEmpty());
+        ContentionStats.NONE.casRetry();
+        assertTrue(ContentionStats.NONE.snapshot().isEmpty());
+    }
+}
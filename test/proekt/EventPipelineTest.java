@@ -0,0 +1,45 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventPipelineTest {
+
+    @Test
+    @Timeout(10)
+    void blockingProducersDropOnceTheWriterDies() throws InterruptedException {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        EventRenderer renderer = (event, out) -> {
+            rendering.countDown();
+            try {
+                fail.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("renderer broke");
+        };
+        EventPipeline events = new EventPipeline(2, EventPipeline.OverflowPolicy.BLOCK, renderer,
+                new PrintStream(new ByteArrayOutputStream()), 16).start();
+
+        events.onEmptyBasket();
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+        events.onEmptyBasket(); // буфер на два события полон: писатель висит на первом
+        Thread producer = new Thread(events::onEmptyBasket);
+        producer.start();
+        fail.countDown();
+
+        // Без проверки писателя продюсер ждал бы освобождения места вечно
+        producer.join();
+        events.onEmptyBasket();
+        assertTrue(events.getDropped() >= 2, "dropped " + events.getDropped());
+        events.close();
+    }
+}
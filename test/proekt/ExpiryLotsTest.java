@@ -0,0 +1,109 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryLotsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 3, 10);
+
+    /**
+     * Часы склада, которые тест переводит по дням.
+     */
+    private static final class DayClock extends Clock {
+        volatile LocalDate day = TODAY;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+    }
+
+    private static void assertLots(List<StockLot> lots, Object... dayAndQuantity) {
+        assertEquals(dayAndQuantity.length / 2, lots.size(), lots.toString());
+        for (int i = 0; i < lots.size(); i++) {
+            assertEquals(dayAndQuantity[2 * i], lots.get(i).getExpireDate(), lots.toString());
+            assertEquals(dayAndQuantity[2 * i + 1], lots.get(i).getQuantity(), lots.toString());
+        }
+    }
+
+    @Test
+    void lotsAreKeptInExpiryOrderWhateverTheArrivalOrder() {
+        ExpiryLots.Lots lots = new ExpiryLots.Lots();
+        int day = (int) TODAY.toEpochDay();
+        lots.add(day + 5, 1);
+        lots.add(day + 1, 2);
+        assertFalse(lots.add(day + 5, 3), "same day is merged into the existing lot");
+        lots.add(day + 3, 4);
+        assertEquals(day + 1, lots.earliestDay());
+
+        // FEFO: сначала вся партия day+1, затем часть day+3
+        assertEquals(3, lots.consume(3));
+        assertEquals(day + 3, lots.earliestDay());
+        assertEquals(3, lots.quantityBefore(day + 4));
+        assertEquals(7, lots.consume(100));
+        assertEquals(Integer.MAX_VALUE, lots.earliestDay());
+    }
+
+    @Test
+    void saleTakesEarliestLotFirstAndUndatedStockLast() {
+        Warehouse warehouse = new Warehouse(100, new DayClock());
+        assertTrue(warehouse.addLot(1, 5, TODAY.plusDays(10)));
+        assertTrue(warehouse.addLot(1, 3, TODAY.plusDays(2)));
+        assertTrue(warehouse.addProduct(1, 4));
+        assertTrue(warehouse.addLot(1, 2, TODAY.plusDays(6)));
+        assertLots(warehouse.getLots(1), TODAY.plusDays(2), 3, TODAY.plusDays(6), 2, TODAY.plusDays(10), 5);
+
+        assertTrue(warehouse.removeProduct(1, 4));
+        assertLots(warehouse.getLots(1), TODAY.plusDays(6), 1, TODAY.plusDays(10), 5);
+        assertTrue(warehouse.tryReserve(1, 6));
+        warehouse.commitReserved(1, 6);
+        assertTrue(warehouse.getLots(1).isEmpty());
+        assertEquals(4, warehouse.getAvailable(1), "undated stock is sold last");
+    }
+
+    @Test
+    void evictionRemovesOnlyLotsPastTheirDateAndSkipsReservedUnits() {
+        DayClock clock = new DayClock();
+        Warehouse warehouse = new Warehouse(100, clock);
+        warehouse.addLot(1, 4, TODAY);
+        warehouse.addLot(1, 6, TODAY.plusDays(3));
+        warehouse.addLot(2, 5, TODAY.plusDays(1));
+        assertFalse(warehouse.addLot(3, 1, TODAY.minusDays(1)), "an expired lot is refused");
+        assertEquals(0, warehouse.evictExpired());
+        assertLots(warehouse.expiringWithin(1), TODAY, 4, TODAY.plusDays(1), 5);
+
+        assertTrue(warehouse.tryReserve(2, 2));
+        clock.day = TODAY.plusDays(2);
+        // Срок 1 прошёл целиком, у 2 в продаже 3 из 5 — остальное в резерве
+        assertEquals(4 + 3, warehouse.evictExpired());
+        assertLots(warehouse.getLots(1), TODAY.plusDays(3), 6);
+        assertEquals(6, warehouse.getAvailable(1));
+        assertEquals(0, warehouse.getAvailable(2));
+        assertEquals(7, warehouse.getExpired());
+
+        // Резерв вернули — просроченные единицы списываются следующим проходом
+        warehouse.release(2, 2);
+        assertEquals(2, warehouse.evictExpired());
+        assertTrue(warehouse.getLots(2).isEmpty());
+        assertEquals(6, warehouse.getSize());
+    }
+}
@@ -0,0 +1,92 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntMapTest {
+
+    private static final int EXPECTED = 64; // таблица на 128 ячеек, рехеша в тестах нет
+    private static final int MASK = IntIntMap.tableSizeFor(EXPECTED) - 1;
+
+    /**
+     * Первые count ключей (от 1), у которых домашняя ячейка — home.
+     */
+    private static int[] keysAt(int home, int count) {
+        int[] keys = new int[count];
+        int n = 0;
+        for (int k = 1; n < count; k++) {
+            if ((IntIntMap.mix(k) & MASK) == home) keys[n++] = k;
+        }
+        return keys;
+    }
+
+    @Test
+    void deleteThenProbeFindsKeysPastTheHole() {
+        int[] same = keysAt(5, 3);
+        int[] next = keysAt(6, 1);
+        IntIntMap map = new IntIntMap(EXPECTED);
+        // Кластер 5..8: same[0], same[1], same[2], next[0] (его дом 6 занят — сдвинут в 8)
+        for (int k : same) map.put(k, k * 10);
+        map.put(next[0], -1);
+
+        assertEquals(same[0] * 10, map.remove(same[0], 0));
+        // Без сдвига хвоста пробирование остановилось бы на дыре в ячейке 5
+        assertFalse(map.containsKey(same[0]));
+        assertEquals(same[1] * 10, map.get(same[1], 0));
+        assertEquals(same[2] * 10, map.get(same[2], 0));
+        assertEquals(-1, map.get(next[0], 0));
+        assertEquals(3, map.size());
+
+        // Повторная вставка удалённого ключа не создаёт дубликат
+        map.put(same[0], 7);
+        map.put(same[0], 8);
+        assertEquals(4, map.size());
+        assertEquals(8, map.get(same[0], 0));
+    }
+
+    @Test
+    void deleteKeepsKeysThatAreAlreadyHomeInPlace() {
+        int[] first = keysAt(MASK, 2); // кластер переходит через конец таблицы: 127, 0
+        int[] home = keysAt(1, 1);     // ячейка 1 — своя, её ключ сдвигать нельзя
+        IntIntMap map = new IntIntMap(EXPECTED);
+        map.put(first[0], 1);
+        map.put(first[1], 2);
+        map.put(home[0], 3);
+
+        map.remove(first[0], 0);
+        assertEquals(2, map.get(first[1], 0));
+        assertEquals(3, map.get(home[0], 0));
+
+        map.remove(first[1], 0);
+        assertEquals(3, map.get(home[0], 0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(500);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, i);
+                    expected.put(key, i);
+                }
+                case 1 -> {
+                    Integer old = expected.remove(key);
+                    assertEquals(old == null ? -1 : old, map.remove(key, -1));
+                }
+                default -> assertEquals(expected.merge(key, 3, Integer::sum), map.addTo(key, 3));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map.asMap());
+    }
+}
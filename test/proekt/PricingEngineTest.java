@@ -0,0 +1,59 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingEngineTest {
+
+    private static ProductCatalog catalog() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.add(new Product(1, "Milk", Category.FOOD, 10_000L, null, null));
+        catalog.add(new Product(2, "Soap", Category.HOME, 20_000L, null, null));
+        return catalog;
+    }
+
+    @Test
+    void priceChangeUpdatesCachedTablesInPlace() {
+        ProductCatalog catalog = catalog();
+        PricingEngine pricing = new PricingEngine(catalog);
+        PricingEngine.PriceTable tier = pricing.tableFor(500);
+        assertEquals(9_500L, tier.unitPriceMinor(1, 1));
+
+        catalog.setPrice(1, 30_000L);
+        assertSame(tier, pricing.tableFor(500), "a price change must not rebuild the table");
+        assertEquals(28_500L, tier.unitPriceMinor(1, 1));
+        assertEquals(19_000L, tier.unitPriceMinor(2, 1));
+    }
+
+    @Test
+    void promotionSwapsInRebuiltTablesAndOldOnesKeepTheirRules() {
+        ProductCatalog catalog = catalog();
+        PricingEngine pricing = new PricingEngine(catalog);
+        PricingEngine.PriceTable before = pricing.tableFor(0);
+
+        pricing.setCategoryPromotion(Category.FOOD, 0.10);
+        pricing.setQuantityBreak(3, 0.5);
+        PricingEngine.PriceTable after = pricing.tableFor(0);
+        assertNotSame(before, after);
+        assertEquals(10_000L, before.unitPriceMinor(1, 5), "a basket keeps the rules it started with");
+        assertEquals(9_000L, after.unitPriceMinor(1, 1));
+        assertEquals(4_500L, after.unitPriceMinor(1, 3));
+        assertEquals(20_000L, after.unitPriceMinor(2, 2));
+
+        pricing.clearPromotions();
+        assertEquals(10_000L, pricing.tableFor(0).unitPriceMinor(1, 3));
+    }
+
+    @Test
+    void productsAddedAfterTheTableArePricedByItsRules() {
+        ProductCatalog catalog = catalog();
+        PricingEngine pricing = new PricingEngine(catalog);
+        pricing.setCategoryPromotion(Category.HOME, 0.25);
+        PricingEngine.PriceTable tier = pricing.tableFor(1_000);
+
+        catalog.add(new Product(3, "Brush", Category.HOME, 4_000L, null, null));
+        assertEquals(2_700L, tier.unitPriceMinor(3, 1));
+        assertThrows(IllegalArgumentException.class, () -> tier.unitPriceMinor(42, 1));
+    }
+}
@@ -0,0 +1,105 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationHoldsTest {
+
+    private static final int PRODUCT = 1;
+    private static final int STOCK = 100_000;
+
+    @Test
+    void expiredHoldReturnsStockAndRefusesCommit() {
+        Warehouse warehouse = new Warehouse(STOCK);
+        warehouse.addProduct(PRODUCT, 10);
+        ReservationHolds holds = new ReservationHolds(warehouse, 1);
+
+        ReservationHolds.Hold hold = holds.open();
+        assertTrue(holds.reserve(hold, PRODUCT, 4));
+        assertEquals(6, warehouse.getAvailable(PRODUCT));
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(1, holds.expireDue());
+        assertFalse(hold.isActive());
+        assertEquals(10, warehouse.getAvailable(PRODUCT));
+        assertEquals(0, warehouse.getReserved(PRODUCT));
+        // Истёкший hold не берёт новый резерв и не выкупается
+        assertFalse(holds.reserve(hold, PRODUCT, 1));
+        assertFalse(holds.commit(hold));
+        assertEquals(10, warehouse.getAvailable(PRODUCT));
+        assertEquals(0, warehouse.getConsumed(PRODUCT));
+        assertEquals(0, holds.getActive());
+    }
+
+    /**
+     * Покупатели выкупают и отменяют holds, пока другой поток их истекает. Каждый hold
+     * закрывается ровно одним путём, и ни одна единица товара не теряется и не удваивается.
+     */
+    @Test
+    void commitReleaseAndExpiryRaceClosesEachHoldOnce() throws InterruptedException {
+        Warehouse warehouse = new Warehouse(STOCK);
+        warehouse.addProduct(PRODUCT, STOCK);
+        ReservationHolds holds = new ReservationHolds(warehouse, 1);
+        int threads = 4;
+        int perThread = 500;
+        AtomicLong committed = new AtomicLong();
+        AtomicLong committedUnits = new AtomicLong();
+        AtomicLong releaseCalls = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread expirer = new Thread(() -> {
+            while (running.get()) {
+                holds.expireDue();
+                Thread.yield();
+            }
+        });
+        expirer.start();
+        List<Thread> buyers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread buyer = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    ReservationHolds.Hold hold = holds.open();
+                    int units = 1 + random.nextInt(3);
+                    holds.reserve(hold, PRODUCT, units);
+                    // Часть покупателей думает дольше TTL — их hold истекает под ними
+                    if (random.nextInt(3) == 0) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                    if (random.nextInt(4) == 0) {
+                        releaseCalls.incrementAndGet();
+                        holds.release(hold);
+                    } else if (holds.commit(hold)) {
+                        committed.incrementAndGet();
+                        committedUnits.addAndGet(units);
+                    }
+                }
+            });
+            buyers.add(buyer);
+            buyer.start();
+        }
+        for (Thread buyer : buyers) buyer.join();
+        running.set(false);
+        expirer.join();
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        holds.expireDue();
+
+        long opened = (long) threads * perThread;
+        assertEquals(0, holds.getActive());
+        // Отменённые — остаток; отмена уже истёкшего hold ничего не закрывает
+        long releasedHolds = opened - committed.get() - holds.getExpired();
+        assertTrue(releasedHolds >= 0 && releasedHolds <= releaseCalls.get(), "released " + releasedHolds);
+        assertEquals(0, warehouse.getReserved());
+        assertEquals(0, warehouse.getReserved(PRODUCT));
+        assertEquals(committedUnits.get(), warehouse.getConsumed(PRODUCT));
+        assertEquals(STOCK - committedUnits.get(), warehouse.getAvailable(PRODUCT));
+        assertEquals(STOCK - committedUnits.get(), warehouse.getSize());
+    }
+}
@@ -0,0 +1,120 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesAnalyticsTest {
+
+    private static final AuthUser CUSTOMER =
+            new AuthUser(1, "Test", 30, Gender.MALE, PsychoType.CALM, new BigDecimal("1000"), 0);
+
+    /**
+     * Часы, которые двигает тест.
+     */
+    private static final class ManualClock extends Clock {
+        volatile long millis;
+
+        ManualClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+
+    private static ProductCatalog catalog() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.add(new Product(1, "Milk", Category.FOOD, 100L, null, null));
+        catalog.add(new Product(2, "Soap", Category.HOME, 250L, null, null));
+        return catalog;
+    }
+
+    private static void sell(SalesAnalytics analytics, int productId, int quantity, long unitPriceMinor) {
+        Basket basket = new Basket(1, 1);
+        basket.add(productId, quantity, unitPriceMinor);
+        basket.buy();
+        analytics.record(CUSTOMER, basket);
+    }
+
+    @Test
+    void closeCountsEverySaleQueuedBeforeIt() throws InterruptedException {
+        ManualClock clock = new ManualClock(1_700_000_000_000L);
+        SalesAnalytics analytics = new SalesAnalytics(catalog(), 1 << 16, clock).start();
+        int sales = 20_000;
+        for (int i = 0; i < sales; i++) sell(analytics, 1, 1, 100L);
+        analytics.close();
+
+        SalesAnalytics.Report report = analytics.query(SalesAnalytics.Window.DAY, SalesAnalytics.Mode.SLIDING, 1);
+        assertEquals(sales - analytics.getDropped(), report.getOrders());
+        assertEquals(0, analytics.getDropped());
+
+        sell(analytics, 1, 1, 100L);
+        assertEquals(1, analytics.getDropped(), "a sale after close is dropped, not queued forever");
+    }
+
+    @Test
+    void windowsRollOverAsTheClockMoves() throws InterruptedException {
+        long minute = 1_700_000_040_000L; // начало минуты (UTC)
+        ManualClock clock = new ManualClock(minute + 10_000L);
+        SalesAnalytics analytics = new SalesAnalytics(catalog(), 1024, clock).start();
+        sell(analytics, 1, 2, 100L);
+        clock.millis = minute + 40_000L;
+        sell(analytics, 2, 1, 250L);
+
+        SalesAnalytics.Report last = analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.SLIDING, 10);
+        assertEquals(2, last.getOrders());
+        assertEquals(200L, last.getRevenueMinor(Category.FOOD));
+        assertEquals(2, last.getUnits(Category.FOOD));
+        assertEquals(450L, last.getRevenueMinor());
+        assertEquals(2, last.getTop().size());
+        assertEquals(2, last.getTop().get(0).getProductId(), "top is ordered by revenue");
+
+        // Первая продажа старше минуты — выпадает из скользящего окна; вторая — из прошлой минуты
+        clock.millis = minute + 75_000L;
+        last = analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.SLIDING, 10);
+        assertEquals(1, last.getOrders());
+        assertEquals(0L, last.getRevenueMinor(Category.FOOD));
+        assertEquals(250L, last.getRevenueMinor(Category.HOME));
+        SalesAnalytics.Report current = analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.TUMBLING, 10);
+        assertEquals(0, current.getOrders());
+
+        sell(analytics, 1, 1, 100L);
+        current = analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.TUMBLING, 10);
+        assertEquals(1, current.getOrders());
+        assertEquals(100L, current.getRevenueMinor());
+        assertEquals(2, analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.SLIDING, 10).getOrders());
+        assertEquals(3, analytics.query(SalesAnalytics.Window.HOUR, SalesAnalytics.Mode.SLIDING, 10).getOrders());
+
+        // Скачок дальше окна очищает его целиком; окно часа ещё помнит все продажи
+        clock.millis = minute + 10 * 60_000L;
+        assertEquals(0, analytics.query(SalesAnalytics.Window.MINUTE, SalesAnalytics.Mode.SLIDING, 10).getOrders());
+        SalesAnalytics.Report hour = analytics.query(SalesAnalytics.Window.HOUR, SalesAnalytics.Mode.SLIDING, 10);
+        assertEquals(3, hour.getOrders());
+        assertEquals(550L, hour.getRevenueMinor());
+        analytics.close();
+    }
+}
@@ -0,0 +1,117 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionJournalTest {
+
+    private static final int RECORDS_PER_SEGMENT = 1024;
+    private static final int PRODUCT = 7;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsDroppedAndLaterRecordsAreErased() throws IOException {
+        try (TransactionJournal journal = open()) {
+            for (int i = 1; i <= 10; i++) journal.stockAdded(PRODUCT, i);
+            journal.awaitDurable();
+        }
+        // Восьмая запись недописана: seq на месте, а количество не сходится с контрольной суммой
+        tear(8);
+
+        try (TransactionJournal journal = open()) {
+            assertEquals(7, journal.getLastSeq());
+            Warehouse warehouse = restore(journal);
+            assertEquals(1 + 2 + 3 + 4 + 5 + 6 + 7, warehouse.getAvailable(PRODUCT));
+            journal.stockAdded(PRODUCT, 100);
+            journal.awaitDurable();
+        }
+
+        // Целые записи 9 и 10 после разрыва стёрты: новая запись 8 не склеилась с ними
+        try (TransactionJournal journal = open()) {
+            assertEquals(8, journal.getLastSeq());
+            assertEquals(28 + 100, restore(journal).getAvailable(PRODUCT));
+        }
+    }
+
+    @Test
+    void tornTailAfterSnapshotsKeepsFoldedState() throws IOException {
+        int records = 5 * RECORDS_PER_SEGMENT - 24;
+        long paidMinor = 0;
+        int stock = 0;
+        try (TransactionJournal journal = open()) {
+            for (int seq = 1; seq <= records; seq++) {
+                if (seq % 3 == 0) {
+                    journal.paid(seq);
+                    if (seq < records) paidMinor += seq;
+                } else {
+                    journal.stockAdded(PRODUCT, 1);
+                    if (seq < records) stock++;
+                }
+            }
+            journal.awaitDurable();
+        }
+        assertTrue(files("snapshot-") > 0, "flusher should have written a snapshot");
+        tear(records);
+
+        try (TransactionJournal journal = open()) {
+            assertEquals(records - 1, journal.getLastSeq());
+            Payment payment = new Payment();
+            Warehouse warehouse = new Warehouse(Integer.MAX_VALUE);
+            journal.restoreInto(warehouse, payment);
+            assertEquals(stock, warehouse.getAvailable(PRODUCT));
+            assertEquals(paidMinor, payment.getTotalMinor());
+        }
+    }
+
+    @Test
+    void missingSegmentIsReportedInsteadOfSkipped() throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(dir, RECORDS_PER_SEGMENT, 100, 1, true)) {
+            for (int i = 0; i < 3 * RECORDS_PER_SEGMENT; i++) journal.stockAdded(PRODUCT, 1);
+            journal.awaitDurable();
+        }
+        Files.delete(dir.resolve(String.format("segment-%012d.jnl", 0)));
+        // Снимков нет (snapshotEverySegments больше числа сегментов), так что сегмент 0 ничем не покрыт
+        assertEquals(0, files("snapshot-"));
+        assertThrows(IOException.class, this::open);
+    }
+
+    private TransactionJournal open() throws IOException {
+        return new TransactionJournal(dir, RECORDS_PER_SEGMENT, 2, 1, true);
+    }
+
+    private Warehouse restore(TransactionJournal journal) {
+        Warehouse warehouse = new Warehouse(Integer.MAX_VALUE);
+        journal.restoreInto(warehouse, new Payment());
+        return warehouse;
+    }
+
+    /**
+     * Портит поле количества записи seq, не трогая её номер.
+     */
+    private void tear(long seq) throws IOException {
+        long index = (seq - 1) / RECORDS_PER_SEGMENT;
+        long offset = (seq - 1) % RECORDS_PER_SEGMENT * TransactionJournal.RECORD_SIZE;
+        Path segment = dir.resolve(String.format("segment-%012d.jnl", index));
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, 999), offset + 16);
+        }
+    }
+
+    private long files(String prefix) throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.filter(p -> p.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
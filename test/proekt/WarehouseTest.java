@@ -0,0 +1,131 @@
+package proekt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarehouseTest {
+
+    private static final int CAPACITY = 1_000;
+
+    /**
+     * Покупатели наперегонки резервируют последний товар: продано ровно столько, сколько было.
+     */
+    @Test
+    void concurrentReservationsNeverOversell() throws InterruptedException {
+        Warehouse warehouse = new Warehouse(CAPACITY);
+        warehouse.addProduct(1, 500);
+        AtomicLong reserved = new AtomicLong();
+        List<Thread> buyers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread buyer = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (warehouse.tryReserve(1, 1)) reserved.incrementAndGet();
+                }
+            });
+            buyers.add(buyer);
+            buyer.start();
+        }
+        for (Thread buyer : buyers) buyer.join();
+
+        assertEquals(500, reserved.get());
+        assertEquals(0, warehouse.getAvailable(1));
+        assertEquals(500, warehouse.getReserved(1));
+        assertEquals(8 * 200 - 500, warehouse.getStockouts());
+    }
+
+    @Test
+    void releaseReturnsReservedStock() {
+        Warehouse warehouse = new Warehouse(CAPACITY);
+        warehouse.addProduct(1, 5);
+        assertTrue(warehouse.tryReserve(1, 3));
+        assertFalse(warehouse.tryReserve(1, 3));
+
+        warehouse.release(1, 3);
+        assertEquals(5, warehouse.getAvailable(1));
+        assertEquals(0, warehouse.getReserved(1));
+        assertEquals(0, warehouse.getReserved());
+        assertEquals(5, warehouse.getOnHand(1));
+    }
+
+    @Test
+    void removeAllRollsBackTakenLinesWhenOneIsShort() {
+        Warehouse warehouse = new Warehouse(CAPACITY);
+        assertTrue(warehouse.addAll(List.of(new ProductQuantity(1, 10), new ProductQuantity(2, 1))));
+        assertEquals(11, warehouse.getSize());
+
+        assertFalse(warehouse.removeAll(List.of(new ProductQuantity(1, 4), new ProductQuantity(2, 2))));
+        assertEquals(10, warehouse.getAvailable(1));
+        assertEquals(1, warehouse.getAvailable(2));
+        assertEquals(11, warehouse.getSize());
+        assertEquals(0, warehouse.getConsumed(1));
+
+        assertTrue(warehouse.removeAll(List.of(new ProductQuantity(1, 4), new ProductQuantity(2, 1))));
+        assertEquals(6, warehouse.getSize());
+        assertEquals(CAPACITY - 6, warehouse.getFreeSpace());
+        assertEquals(4, warehouse.getConsumed(1));
+    }
+
+    @Test
+    void addAllTakesSpaceForTheWholePalletOrNothing() {
+        Warehouse warehouse = new Warehouse(10);
+        assertTrue(warehouse.addProduct(1, 6));
+        assertFalse(warehouse.addAll(List.of(new ProductQuantity(2, 3), new ProductQuantity(3, 2))));
+        assertEquals(0, warehouse.getAvailable(2));
+        assertEquals(6, warehouse.getSize());
+        assertFalse(warehouse.addAll(List.of(new ProductQuantity(2, 3), new ProductQuantity(3, 0))));
+
+        assertTrue(warehouse.addAll(List.of(new ProductQuantity(2, 3), new ProductQuantity(3, 1))));
+        assertEquals(10, warehouse.getSize());
+        assertEquals(0, warehouse.getFreeSpace());
+    }
+
+    @Test
+    void reserveAllOrNothingRollsBackOnPartialFailure() {
+        Warehouse warehouse = new Warehouse(CAPACITY);
+        warehouse.addProduct(1, 5);
+        warehouse.addProduct(2, 5);
+        warehouse.addProduct(3, 1);
+        // Строки идут по productId: 1 и 2 уже взяты, когда не хватает 3
+        List<ProductQuantity> basket = List.of(
+                new ProductQuantity(3, 2), new ProductQuantity(1, 2), new ProductQuantity(2, 3));
+
+        Warehouse.ReserveResult result = warehouse.reserveAll(basket, Warehouse.ReserveMode.ALL_OR_NOTHING);
+        assertFalse(result.isComplete());
+        assertEquals(0, result.getReservedLines());
+        for (int line = 0; line < basket.size(); line++) assertFalse(result.isReserved(line));
+        assertEquals(5, warehouse.getAvailable(1));
+        assertEquals(5, warehouse.getAvailable(2));
+        assertEquals(1, warehouse.getAvailable(3));
+        assertEquals(0, warehouse.getReserved(1));
+        assertEquals(0, warehouse.getReserved(2));
+        assertEquals(0, warehouse.getReserved());
+        assertEquals(3, warehouse.getReserveRequests());
+        assertEquals(1, warehouse.getStockouts());
+    }
+
+    @Test
+    void reserveAllBestEffortKeepsLinesThatFitAndCountsStockouts() {
+        Warehouse warehouse = new Warehouse(CAPACITY);
+        warehouse.addProduct(1, 5);
+        warehouse.addProduct(2, 1);
+        List<ProductQuantity> basket = List.of(
+                new ProductQuantity(2, 2), new ProductQuantity(1, 2), new ProductQuantity(4, 1));
+
+        Warehouse.ReserveResult result = warehouse.reserveAll(basket, Warehouse.ReserveMode.BEST_EFFORT);
+        assertEquals(1, result.getReservedLines());
+        assertFalse(result.isReserved(0));
+        assertTrue(result.isReserved(1));
+        assertFalse(result.isReserved(2));
+        assertEquals(3, warehouse.getAvailable(1));
+        assertEquals(2, warehouse.getReserved(1));
+        assertEquals(1, warehouse.getAvailable(2));
+        assertEquals(2, warehouse.getReserved());
+        assertEquals(3, warehouse.getReserveRequests());
+        assertEquals(2, warehouse.getStockouts());
+    }
+}